@@ -1,8 +1,13 @@
 import { html, css, LitElement } from 'lit';
 import '@vaadin/board';
 import '@vaadin/board/vaadin-board-row.js';
+import '@vaadin/button';
 import '@vaadin/charts';
+import '@vaadin/checkbox';
+import '@vaadin/combo-box';
 import '@vaadin/grid';
+import '@vaadin/icon';
+import '@vaadin/icons';
 import '../storefront/order-card.js';
 import './dashboard-counter-label.js';
 import { sharedStyles } from '../../../styles/shared-styles.js';
@@ -47,6 +52,24 @@ class DashboardView extends LitElement {
           min-height: 355px;
         }
 
+        .period-navigation {
+          display: flex;
+          align-items: center;
+          justify-content: center;
+          padding: var(--lumo-space-s);
+        }
+
+        #period {
+          min-width: 10em;
+          text-align: center;
+          font-weight: 500;
+        }
+
+        #location,
+        #autoRefresh {
+          margin-left: var(--lumo-space-m);
+        }
+
         vaadin-board-row.custom-board-row {
           --vaadin-board-width-medium: 1440px;
           --vaadin-board-width-small: 1024px;
@@ -79,6 +102,25 @@ class DashboardView extends LitElement {
             class="gray"
           ></dashboard-counter-label>
         </vaadin-board-row>
+        <vaadin-board-row>
+          <div class="period-navigation">
+            <vaadin-button id="previousYear" theme="tertiary icon" aria-label="Previous year">
+              <vaadin-icon icon="vaadin:angle-double-left"></vaadin-icon>
+            </vaadin-button>
+            <vaadin-button id="previousPeriod" theme="tertiary icon" aria-label="Previous month">
+              <vaadin-icon icon="vaadin:angle-left"></vaadin-icon>
+            </vaadin-button>
+            <span id="period"></span>
+            <vaadin-button id="nextPeriod" theme="tertiary icon" aria-label="Next month">
+              <vaadin-icon icon="vaadin:angle-right"></vaadin-icon>
+            </vaadin-button>
+            <vaadin-button id="nextYear" theme="tertiary icon" aria-label="Next year">
+              <vaadin-icon icon="vaadin:angle-double-right"></vaadin-icon>
+            </vaadin-button>
+            <vaadin-combo-box id="location" aria-label="Pickup location"></vaadin-combo-box>
+            <vaadin-checkbox id="autoRefresh" label="Auto-refresh"></vaadin-checkbox>
+          </div>
+        </vaadin-board-row>
         <vaadin-board-row>
           <div class="vaadin-board-cell">
             <vaadin-chart
@@ -102,6 +144,13 @@ class DashboardView extends LitElement {
             theme="classic"
           ></vaadin-chart>
         </vaadin-board-row>
+        <vaadin-board-row>
+          <vaadin-chart
+            id="salesForecast"
+            class="column-chart"
+            theme="classic"
+          ></vaadin-chart>
+        </vaadin-board-row>
         <vaadin-board-row class="custom-board-row">
           <div class="vaadin-board-cell">
             <vaadin-chart
@@ -129,6 +178,7 @@ class DashboardView extends LitElement {
     this._chartsLoaded = new Promise((resolve, reject) => {
       // save the 'resolve' callback to trigger it later from the server
       this._chartsLoadedResolve = () => {
+        window.performance.mark && window.performance.mark('bakery-all-charts-loaded');
         resolve();
       };
     });
@@ -148,6 +198,11 @@ class DashboardView extends LitElement {
       window.performance.mark && window.performance.mark('bakery-page-loaded');
     });
   }
+
+  // Called from the server when the first chart has been filled with data
+  _firstChartLoaded() {
+    window.performance.mark && window.performance.mark('bakery-first-chart-loaded');
+  }
 }
 
 customElements.define(DashboardView.is, DashboardView);
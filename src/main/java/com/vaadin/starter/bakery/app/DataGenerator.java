@@ -174,7 +174,7 @@ public class DataGenerator implements HasLogger {
 
 	private List<HistoryItem> createOrderHistory(Order order, User barista, User baker) {
 		ArrayList<HistoryItem> history = new ArrayList<>();
-		HistoryItem item = new HistoryItem(barista, "Order placed");
+		HistoryItem item = new HistoryItem(barista, Order.ORDER_PLACED_MESSAGE);
 		item.setNewState(OrderState.NEW);
 		LocalDateTime orderPlaced = order.getDueDate().minusDays(random.nextInt(5) + 2L).atTime(random.nextInt(10) + 7,
 				00);
@@ -1,7 +1,8 @@
 package com.vaadin.starter.bakery.backend.data;
 
+import java.util.Collections;
 import java.util.LinkedHashMap;
-import java.util.List;
+import java.util.Map;
 
 import com.vaadin.starter.bakery.backend.data.entity.Product;
 
@@ -9,25 +10,33 @@ import com.vaadin.starter.bakery.backend.data.entity.Product;
  * Stores dashboard statistics and delivery/sales data for the bakery application.
  * <p>
  * Provides aggregate information for dashboard views, including deliveries per day/month,
- * sales per month, and product-specific delivery quantities.
+ * sales per month, and product-specific delivery quantities. The same information is
+ * also available for each pickup location, so that views can switch between locations
+ * without querying again.
  */
 public class DashboardData {
 
     /** Delivery statistics summary (e.g., completed and pending deliveries). */
     private DeliveryStats deliveryStats;
 
-    /** List containing the number of deliveries for each day of the current month. */
-    private List<Number> deliveriesThisMonth;
+    /** Series containing the number of deliveries for each day of the current month. */
+    private TimeSeries deliveriesThisMonth;
 
-    /** List containing the number of deliveries for each month of the current year. */
-    private List<Number> deliveriesThisYear;
+    /** Series containing the number of deliveries for each month of the current year. */
+    private TimeSeries deliveriesThisYear;
 
-    /** Matrix with sales statistics per month. Each row represents a month; columns represent different sales figures. */
-    private Number[][] salesPerMonth;
+    /** Sales per month series. Each element represents a year, starting from the current one. */
+    private TimeSeries[] salesPerMonth;
 
     /** Map of delivered products and their respective quantities. */
     private LinkedHashMap<Product, Integer> productDeliveries;
 
+    /** The same data restricted to each pickup location, by location id. */
+    private Map<Long, DashboardData> locationData = Collections.emptyMap();
+
+    /** The data of locations without orders, created on first use and shared by them. */
+    private volatile DashboardData emptyLocationData;
+
     /**
      * Returns the delivery statistics summary.
      *
@@ -47,58 +56,58 @@ public class DashboardData {
     }
 
     /**
-     * Returns the list of deliveries for each day of the current month.
+     * Returns the series of deliveries for each day of the current month.
      *
-     * @return a list of deliveries per day for the current month
+     * @return a series of deliveries per day for the current month
      */
-    public List<Number> getDeliveriesThisMonth() {
+    public TimeSeries getDeliveriesThisMonth() {
         return deliveriesThisMonth;
     }
 
     /**
-     * Sets the list of deliveries for each day of the current month.
+     * Sets the series of deliveries for each day of the current month.
      *
      * @param deliveriesThisMonth the deliveries per day to set for the current month
      */
-    public void setDeliveriesThisMonth(List<Number> deliveriesThisMonth) {
+    public void setDeliveriesThisMonth(TimeSeries deliveriesThisMonth) {
         this.deliveriesThisMonth = deliveriesThisMonth;
     }
 
     /**
-     * Returns the list of deliveries for each month of the current year.
+     * Returns the series of deliveries for each month of the current year.
      *
-     * @return a list of deliveries per month for the current year
+     * @return a series of deliveries per month for the current year
      */
-    public List<Number> getDeliveriesThisYear() {
+    public TimeSeries getDeliveriesThisYear() {
         return deliveriesThisYear;
     }
 
     /**
-     * Sets the list of deliveries for each month of the current year.
+     * Sets the series of deliveries for each month of the current year.
      *
      * @param deliveriesThisYear the deliveries per month to set for the current year
      */
-    public void setDeliveriesThisYear(List<Number> deliveriesThisYear) {
+    public void setDeliveriesThisYear(TimeSeries deliveriesThisYear) {
         this.deliveriesThisYear = deliveriesThisYear;
     }
 
     /**
-     * Sets the sales statistics matrix per month.
+     * Sets the sales per month series, one for each year.
      *
-     * @param salesPerMonth a 2D array representing sales statistics per month
+     * @param salesPerMonth the sales series, starting from the current year
      */
-    public void setSalesPerMonth(Number[][] salesPerMonth) {
+    public void setSalesPerMonth(TimeSeries[] salesPerMonth) {
         this.salesPerMonth = salesPerMonth;
     }
 
     /**
-     * Returns the sales statistics for a given month.
+     * Returns the sales per month of a given year.
      *
-     * @param monthIndex the index of the month (0-based)
-     * @return an array of sales statistics for the specified month
+     * @param yearIndex the index of the year (0 for the current year, 1 for the previous one, ...)
+     * @return the sales per month of the specified year
      */
-    public Number[] getSalesPerMonth(int monthIndex) {
-        return salesPerMonth[monthIndex];
+    public TimeSeries getSalesPerMonth(int yearIndex) {
+        return salesPerMonth[yearIndex];
     }
 
     /**
@@ -118,4 +127,52 @@ public class DashboardData {
     public void setProductDeliveries(LinkedHashMap<Product, Integer> productDeliveries) {
         this.productDeliveries = productDeliveries;
     }
+
+    /**
+     * Returns the data restricted to one pickup location.
+     *
+     * @param locationId the id of the pickup location
+     * @return the data of the location, empty if the location has no orders
+     */
+    public DashboardData getLocationData(Long locationId) {
+        DashboardData data = locationData.get(locationId);
+        if (data != null) {
+            return data;
+        }
+        DashboardData empty = emptyLocationData;
+        if (empty == null) {
+            // Creating it twice on concurrent first use is harmless
+            empty = createEmpty();
+            emptyLocationData = empty;
+        }
+        return empty;
+    }
+
+    /**
+     * Creates data of the same period without any orders.
+     *
+     * @return empty data with series of the same sizes
+     */
+    private DashboardData createEmpty() {
+        DashboardData empty = new DashboardData();
+        empty.setDeliveryStats(new DeliveryStats());
+        empty.setDeliveriesThisMonth(new TimeSeries(deliveriesThisMonth.size()));
+        empty.setDeliveriesThisYear(new TimeSeries(deliveriesThisYear.size()));
+        TimeSeries[] emptySales = new TimeSeries[salesPerMonth.length];
+        for (int i = 0; i < emptySales.length; i++) {
+            emptySales[i] = new TimeSeries(salesPerMonth[i].size());
+        }
+        empty.setSalesPerMonth(emptySales);
+        empty.setProductDeliveries(new LinkedHashMap<>());
+        return empty;
+    }
+
+    /**
+     * Sets the data restricted to each pickup location.
+     *
+     * @param locationData the data per pickup location id
+     */
+    public void setLocationData(Map<Long, DashboardData> locationData) {
+        this.locationData = locationData;
+    }
 }
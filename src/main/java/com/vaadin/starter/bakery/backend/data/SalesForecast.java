@@ -0,0 +1,118 @@
+package com.vaadin.starter.bakery.backend.data;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.Collections;
+import java.util.List;
+
+import com.vaadin.starter.bakery.backend.data.entity.Product;
+
+/**
+ * Stores the forecast delivered sales per product for the next month and the next
+ * quarter.
+ * <p>
+ * Instances are computed in the background and shared by all users, so they are
+ * immutable.
+ */
+public class SalesForecast {
+
+	/**
+	 * Forecast sales of one product, in cents.
+	 */
+	public static class ProductForecast {
+
+		private final Product product;
+		private final long nextMonth;
+		private final long nextQuarter;
+
+		/**
+		 * Creates the forecast of one product.
+		 *
+		 * @param product     the product
+		 * @param nextMonth   forecast sales of the next month
+		 * @param nextQuarter forecast sales of the next three months
+		 */
+		public ProductForecast(Product product, long nextMonth, long nextQuarter) {
+			this.product = product;
+			this.nextMonth = nextMonth;
+			this.nextQuarter = nextQuarter;
+		}
+
+		/**
+		 * Returns the product.
+		 *
+		 * @return the product
+		 */
+		public Product getProduct() {
+			return product;
+		}
+
+		/**
+		 * Returns the forecast sales of the next month.
+		 *
+		 * @return sales in cents
+		 */
+		public long getNextMonth() {
+			return nextMonth;
+		}
+
+		/**
+		 * Returns the forecast sales of the next three months.
+		 *
+		 * @return sales in cents
+		 */
+		public long getNextQuarter() {
+			return nextQuarter;
+		}
+	}
+
+	/** First month of the forecast. */
+	private final YearMonth nextMonth;
+
+	/** When the forecast was computed. */
+	private final LocalDateTime computedAt;
+
+	/** Forecast per product, ordered by product id. */
+	private final List<ProductForecast> products;
+
+	/**
+	 * Creates a forecast.
+	 *
+	 * @param nextMonth  the first forecast month
+	 * @param computedAt when the forecast was computed
+	 * @param products   the forecast per product
+	 */
+	public SalesForecast(YearMonth nextMonth, LocalDateTime computedAt, List<ProductForecast> products) {
+		this.nextMonth = nextMonth;
+		this.computedAt = computedAt;
+		this.products = Collections.unmodifiableList(products);
+	}
+
+	/**
+	 * Returns the first forecast month; the quarter is this month and the two
+	 * following ones.
+	 *
+	 * @return the next month
+	 */
+	public YearMonth getNextMonth() {
+		return nextMonth;
+	}
+
+	/**
+	 * Returns when the forecast was computed.
+	 *
+	 * @return the computation time
+	 */
+	public LocalDateTime getComputedAt() {
+		return computedAt;
+	}
+
+	/**
+	 * Returns the forecast per product.
+	 *
+	 * @return the product forecasts, ordered by product id
+	 */
+	public List<ProductForecast> getProducts() {
+		return products;
+	}
+}
@@ -0,0 +1,114 @@
+package com.vaadin.starter.bakery.backend.data;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * A fixed-size series of primitive values where each point may be missing.
+ * <p>
+ * Values are stored in a {@code long} array and a bitmap tells which points are
+ * present, so a series does not box its points. Boxing only happens when the
+ * series is handed to a chart with {@link #toNumbers()}.
+ * </p>
+ */
+public class TimeSeries {
+
+	private final long[] values;
+	private final BitSet present;
+
+	/**
+	 * Creates a series of the given size with all points missing.
+	 *
+	 * @param size the number of points
+	 */
+	public TimeSeries(int size) {
+		this.values = new long[size];
+		this.present = new BitSet(size);
+	}
+
+	/**
+	 * Returns the number of points in the series, including missing ones.
+	 *
+	 * @return the size of the series
+	 */
+	public int size() {
+		return values.length;
+	}
+
+	/**
+	 * Sets the value of a point and marks it as present.
+	 *
+	 * @param index the index of the point
+	 * @param value the value
+	 */
+	public void set(int index, long value) {
+		values[index] = value;
+		present.set(index);
+	}
+
+	/**
+	 * Marks a point as missing.
+	 *
+	 * @param index the index of the point
+	 */
+	public void clear(int index) {
+		values[index] = 0;
+		present.clear(index);
+	}
+
+	/**
+	 * Returns whether the given point is present.
+	 *
+	 * @param index the index of the point
+	 * @return {@code true} if the point has a value
+	 */
+	public boolean isPresent(int index) {
+		return present.get(index);
+	}
+
+	/**
+	 * Returns the value of a point.
+	 *
+	 * @param index the index of the point
+	 * @return the value, or 0 if the point is missing
+	 */
+	public long get(int index) {
+		return values[index];
+	}
+
+	/**
+	 * Returns the points as numbers, with {@code null} for missing points, as
+	 * expected by the chart series.
+	 *
+	 * @return the boxed points
+	 */
+	public Number[] toNumbers() {
+		Number[] numbers = new Number[values.length];
+		for (int i = present.nextSetBit(0); i >= 0; i = present.nextSetBit(i + 1)) {
+			numbers[i] = values[i];
+		}
+		return numbers;
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) {
+			return true;
+		}
+		if (o == null || getClass() != o.getClass()) {
+			return false;
+		}
+		TimeSeries that = (TimeSeries) o;
+		return Arrays.equals(values, that.values) && present.equals(that.present);
+	}
+
+	@Override
+	public int hashCode() {
+		return 31 * Arrays.hashCode(values) + present.hashCode();
+	}
+
+	@Override
+	public String toString() {
+		return Arrays.toString(toNumbers());
+	}
+}
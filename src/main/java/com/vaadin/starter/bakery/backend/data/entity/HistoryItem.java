@@ -3,7 +3,9 @@ package com.vaadin.starter.bakery.backend.data.entity;
 import java.time.LocalDateTime;
 
 import javax.persistence.Entity;
+import javax.persistence.Index;
 import javax.persistence.ManyToOne;
+import javax.persistence.Table;
 import javax.validation.constraints.NotBlank;
 import javax.validation.constraints.NotNull;
 import javax.validation.constraints.Size;
@@ -23,6 +25,7 @@ import com.vaadin.starter.bakery.backend.data.OrderState;
  * </p>
  */
 @Entity
+@Table(indexes = @Index(columnList = "message, timestamp"))
 public class HistoryItem extends AbstractEntity {
 
 	/**
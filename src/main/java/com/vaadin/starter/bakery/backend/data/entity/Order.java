@@ -37,11 +37,12 @@ import com.vaadin.starter.bakery.backend.data.OrderState;
 		@NamedAttributeNode("items"),
 		@NamedAttributeNode("history")
 })})
-@Table(indexes = @Index(columnList = "dueDate"))
+@Table(indexes = { @Index(columnList = "dueDate, dueTime, id"), @Index(columnList = "state, dueDate") })
 public class Order extends AbstractEntity implements OrderSummary {
 
 	public static final String ENTITY_GRAPTH_BRIEF = "Order.brief";
 	public static final String ENTITY_GRAPTH_FULL = "Order.full";
+	public static final String ORDER_PLACED_MESSAGE = "Order placed";
 
 	@NotNull(message = "{bakery.due.date.required}")
 	private LocalDate dueDate;
@@ -76,7 +77,7 @@ public class Order extends AbstractEntity implements OrderSummary {
 	public Order(User createdBy) {
 		this.state = OrderState.NEW;
 		setCustomer(new Customer());
-		addHistoryItem(createdBy, "Order placed");
+		addHistoryItem(createdBy, ORDER_PLACED_MESSAGE);
 		this.items = new ArrayList<>();
 	}
 
@@ -0,0 +1,20 @@
+package com.vaadin.starter.bakery.backend.data.entity;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+import com.vaadin.starter.bakery.backend.data.OrderState;
+
+/**
+ * The scheduling fields of an order, used where the items, customer and pickup
+ * location are not needed.
+ */
+public interface OrderDueSummary {
+	Long getId();
+
+	OrderState getState();
+
+	LocalDate getDueDate();
+
+	LocalTime getDueTime();
+}
@@ -1,7 +1,11 @@
 package com.vaadin.starter.bakery.backend.data.entity;
 
+import java.util.Objects;
+
 import javax.persistence.Entity;
 import javax.persistence.ManyToOne;
+import javax.persistence.PrePersist;
+import javax.persistence.PreUpdate;
 import javax.validation.constraints.Min;
 import javax.validation.constraints.NotNull;
 import javax.validation.constraints.Size;
@@ -20,11 +24,27 @@ public class OrderItem extends AbstractEntity {
 	@Size(max = 255)
 	private String comment;
 
+	/**
+	 * Price of one unit when the item was saved, in cents. Later changes to the
+	 * product price do not affect it.
+	 */
+	private Integer unitPrice;
+
+	/**
+	 * Quantity times unit price when the item was saved, in cents. Revenue is
+	 * summed from this column without joining the products.
+	 */
+	private Integer totalPrice;
+
 	public Product getProduct() {
 		return product;
 	}
 
 	public void setProduct(Product product) {
+		if (this.product == null || product == null || !Objects.equals(this.product.getId(), product.getId())) {
+			// Taken from the new product when saved
+			unitPrice = null;
+		}
 		this.product = product;
 	}
 
@@ -44,7 +64,28 @@ public class OrderItem extends AbstractEntity {
 		this.comment = comment;
 	}
 
+	/**
+	 * Returns the unit price stored with the item, or the current product price if
+	 * the item has not been saved with this product yet.
+	 *
+	 * @return the unit price in cents, {@code null} without a product
+	 */
+	public Integer getUnitPrice() {
+		if (unitPrice != null) {
+			return unitPrice;
+		}
+		return product == null ? null : product.getPrice();
+	}
+
 	public int getTotalPrice() {
-		return quantity == null || product == null ? 0 : quantity * product.getPrice();
+		Integer price = getUnitPrice();
+		return quantity == null || price == null ? 0 : quantity * price;
+	}
+
+	@PrePersist
+	@PreUpdate
+	private void snapshotPrice() {
+		unitPrice = getUnitPrice();
+		totalPrice = getTotalPrice();
 	}
 }
@@ -0,0 +1,70 @@
+package com.vaadin.starter.bakery.backend.data.entity;
+
+import java.time.LocalDate;
+
+import javax.persistence.Entity;
+import javax.persistence.Index;
+import javax.persistence.ManyToOne;
+import javax.persistence.Table;
+import javax.validation.constraints.NotNull;
+
+import com.vaadin.starter.bakery.backend.data.OrderState;
+
+/**
+ * Pre-aggregated sales of one product on one due date for orders in one state.
+ * <p>
+ * The rows are derived from the orders and are kept up to date by the order
+ * service, so reports can read them instead of joining orders, items and
+ * products.
+ * </p>
+ */
+@Entity
+@Table(indexes = @Index(columnList = "state, dueDate"))
+public class SalesRollup extends AbstractEntity {
+
+	@NotNull
+	private LocalDate dueDate;
+
+	@ManyToOne
+	@NotNull
+	private Product product;
+
+	@NotNull
+	private OrderState state;
+
+	private long quantity;
+
+	private long revenue;
+
+	protected SalesRollup() {
+		// Empty constructor is needed by Spring Data / JPA
+	}
+
+	public SalesRollup(LocalDate dueDate, Product product, OrderState state, long quantity, long revenue) {
+		this.dueDate = dueDate;
+		this.product = product;
+		this.state = state;
+		this.quantity = quantity;
+		this.revenue = revenue;
+	}
+
+	public LocalDate getDueDate() {
+		return dueDate;
+	}
+
+	public Product getProduct() {
+		return product;
+	}
+
+	public OrderState getState() {
+		return state;
+	}
+
+	public long getQuantity() {
+		return quantity;
+	}
+
+	public long getRevenue() {
+		return revenue;
+	}
+}
@@ -1,69 +1,96 @@
 package com.vaadin.starter.bakery.backend.repositories;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
 import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.EntityGraph.EntityGraphType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 
 import com.vaadin.starter.bakery.backend.data.OrderState;
 import com.vaadin.starter.bakery.backend.data.entity.Order;
-import com.vaadin.starter.bakery.backend.data.entity.OrderSummary;
+import com.vaadin.starter.bakery.backend.data.entity.OrderDueSummary;
 
 public interface OrderRepository extends JpaRepository<Order, Long> {
 
 	@EntityGraph(value = Order.ENTITY_GRAPTH_BRIEF, type = EntityGraphType.LOAD)
-	Page<Order> findByDueDateAfter(LocalDate filterDate, Pageable pageable);
+	Slice<Order> findByDueDateAfter(LocalDate filterDate, Pageable pageable);
 
 	@EntityGraph(value = Order.ENTITY_GRAPTH_BRIEF, type = EntityGraphType.LOAD)
-	Page<Order> findByCustomerFullNameContainingIgnoreCase(String searchQuery, Pageable pageable);
+	Slice<Order> findByCustomerFullNameContainingIgnoreCase(String searchQuery, Pageable pageable);
 
 	@EntityGraph(value = Order.ENTITY_GRAPTH_BRIEF, type = EntityGraphType.LOAD)
-	Page<Order> findByCustomerFullNameContainingIgnoreCaseAndDueDateAfter(String searchQuery, LocalDate dueDate, Pageable pageable);
+	Slice<Order> findByCustomerFullNameContainingIgnoreCaseAndDueDateAfter(String searchQuery, LocalDate dueDate, Pageable pageable);
+
+	@EntityGraph(value = Order.ENTITY_GRAPTH_BRIEF, type = EntityGraphType.LOAD)
+	Slice<Order> findAllBy(Pageable pageable);
+
+	@EntityGraph(value = Order.ENTITY_GRAPTH_BRIEF, type = EntityGraphType.LOAD)
+	@Query("SELECT o FROM OrderInfo o WHERE o.dueDate>=?1 AND (o.dueDate>?1 OR o.dueTime>?2 OR (o.dueTime=?2 AND o.id>?3)) ORDER BY o.dueDate, o.dueTime, o.id")
+	List<Order> findFollowing(LocalDate dueDate, LocalTime dueTime, Long id, Pageable pageable);
+
+	@EntityGraph(value = Order.ENTITY_GRAPTH_BRIEF, type = EntityGraphType.LOAD)
+	@Query("SELECT o FROM OrderInfo o WHERE o.dueDate>?4 AND o.dueDate>=?1 AND (o.dueDate>?1 OR o.dueTime>?2 OR (o.dueTime=?2 AND o.id>?3)) ORDER BY o.dueDate, o.dueTime, o.id")
+	List<Order> findFollowingAndDueDateAfter(LocalDate dueDate, LocalTime dueTime, Long id, LocalDate filterDate,
+			Pageable pageable);
 
 	@Override
 	@EntityGraph(value = Order.ENTITY_GRAPTH_BRIEF, type = EntityGraphType.LOAD)
 	List<Order> findAll();
 
+	@EntityGraph(value = Order.ENTITY_GRAPTH_BRIEF, type = EntityGraphType.LOAD)
+	List<Order> findByIdIn(Collection<Long> ids);
+
 	@Override
 	@EntityGraph(value = Order.ENTITY_GRAPTH_BRIEF, type = EntityGraphType.LOAD)
 	Page<Order> findAll(Pageable pageable);
 
-	@EntityGraph(value = Order.ENTITY_GRAPTH_BRIEF, type = EntityGraphType.LOAD)
-	List<OrderSummary> findByDueDateGreaterThanEqual(LocalDate dueDate);
+	@Query("SELECT o.id as id, o.state as state, o.dueDate as dueDate, o.dueTime as dueTime FROM OrderInfo o WHERE o.dueDate>=?1 ORDER BY o.dueDate, o.dueTime, o.id")
+	Slice<OrderDueSummary> findDueSummariesStartingFrom(LocalDate dueDate, Pageable pageable);
+
+	@Query("SELECT o.id as id, o.state as state, o.dueDate as dueDate, o.dueTime as dueTime FROM OrderInfo o WHERE o.state=?1 AND o.dueDate>=?2 ORDER BY o.dueDate, o.dueTime, o.id")
+	Slice<OrderDueSummary> findDueSummariesByStateStartingFrom(OrderState state, LocalDate dueDate, Pageable pageable);
 
 	@Override
 	@EntityGraph(value = Order.ENTITY_GRAPTH_FULL, type = EntityGraphType.LOAD)
 	Optional<Order> findById(Long id);
 
-	long countByDueDateAfter(LocalDate dueDate);
-
 	long countByCustomerFullNameContainingIgnoreCase(String searchQuery);
 
 	long countByCustomerFullNameContainingIgnoreCaseAndDueDateAfter(String searchQuery, LocalDate dueDate);
 
-	long countByDueDate(LocalDate dueDate);
+	@Query("SELECT h.timestamp FROM HistoryItem h WHERE h.message=?1 ORDER BY h.timestamp DESC")
+	List<LocalDateTime> findHistoryTimestamps(String message, Pageable pageable);
 
-	long countByDueDateAndStateIn(LocalDate dueDate, Collection<OrderState> state);
+	default Optional<LocalDateTime> findLatestOrderPlacedTimestamp() {
+		return findHistoryTimestamps(Order.ORDER_PLACED_MESSAGE, PageRequest.of(0, 1)).stream().findFirst();
+	}
 
-	long countByState(OrderState state);
+	@Query("SELECT o.id as id, o.state as state, o.dueDate as dueDate, o.dueTime as dueTime FROM OrderInfo o WHERE o.id=?1")
+	Optional<OrderDueSummary> findDueSummaryById(Long id);
 
-	@Query("SELECT month(dueDate) as month, count(*) as deliveries FROM OrderInfo o where o.state=?1 and year(dueDate)=?2 group by month(dueDate)")
-	List<Object[]> countPerMonth(OrderState orderState, int year);
+	@Query("SELECT o.id, o.dueDate, o.state, o.pickupLocation.id, o.version FROM OrderInfo o")
+	List<Object[]> findStateIndexEntries();
 
-	@Query("SELECT year(o.dueDate) as y, month(o.dueDate) as m, sum(oi.quantity*p.price) as deliveries FROM OrderInfo o JOIN o.items oi JOIN oi.product p where o.state=?1 and year(o.dueDate)<=?2 AND year(o.dueDate)>=(?2-3) group by year(o.dueDate), month(o.dueDate) order by y desc, month(o.dueDate)")
-	List<Object[]> sumPerMonthLastThreeYears(OrderState orderState, int year);
+	@Query("SELECT o.id, o.dueDate, oi.quantity, p, coalesce(oi.unitPrice, p.price), o.pickupLocation.id, o.version FROM OrderInfo o LEFT JOIN o.items oi LEFT JOIN oi.product p WHERE o.state=?1 AND o.dueDate>=?2 AND o.dueDate<?3")
+	List<Object[]> findItemsByStateBetween(OrderState orderState, LocalDate start, LocalDate end);
 
-	@Query("SELECT day(dueDate) as day, count(*) as deliveries FROM OrderInfo o where o.state=?1 and year(dueDate)=?2 and month(dueDate)=?3 group by day(dueDate)")
-	List<Object[]> countPerDay(OrderState orderState, int year, int month);
+	@Modifying
+	@Query("UPDATE OrderItem oi SET oi.unitPrice=(SELECT p.price FROM Product p WHERE p=oi.product) WHERE oi.unitPrice IS NULL")
+	int fillMissingItemUnitPrices();
 
-	@Query("SELECT sum(oi.quantity), p FROM OrderInfo o JOIN o.items oi JOIN oi.product p WHERE o.state=?1 AND year(o.dueDate)=?2 AND month(o.dueDate)=?3 GROUP BY p.id ORDER BY p.id")
-	List<Object[]> countPerProduct(OrderState orderState, int year, int month);
+	@Modifying
+	@Query("UPDATE OrderItem oi SET oi.totalPrice=oi.quantity*oi.unitPrice WHERE oi.totalPrice IS NULL")
+	int fillMissingItemTotalPrices();
 
 }
@@ -0,0 +1,31 @@
+package com.vaadin.starter.bakery.backend.repositories;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import com.vaadin.starter.bakery.backend.data.OrderState;
+import com.vaadin.starter.bakery.backend.data.entity.SalesRollup;
+
+public interface SalesRollupRepository extends JpaRepository<SalesRollup, Long> {
+
+	@Query("SELECT o.dueDate, o.state, oi.product.id, sum(oi.quantity), sum(oi.totalPrice) FROM OrderInfo o JOIN o.items oi GROUP BY o.dueDate, o.state, oi.product.id")
+	List<Object[]> sumOrderItems();
+
+	@Query("SELECT o.dueDate, o.state, oi.product.id, sum(oi.quantity), sum(oi.totalPrice) FROM OrderInfo o JOIN o.items oi WHERE o.dueDate=?1 AND o.state=?2 GROUP BY o.dueDate, o.state, oi.product.id")
+	List<Object[]> sumOrderItems(LocalDate dueDate, OrderState state);
+
+	@Query("SELECT r.dueDate, r.state, r.product.id, r.quantity, r.revenue FROM SalesRollup r")
+	List<Object[]> findRows();
+
+	@Query("SELECT p, year(r.dueDate), month(r.dueDate), sum(r.revenue) FROM SalesRollup r JOIN r.product p WHERE r.state=?1 AND r.dueDate>=?2 AND r.dueDate<?3 GROUP BY p.id, year(r.dueDate), month(r.dueDate)")
+	List<Object[]> sumPerProductAndMonthBetween(OrderState state, LocalDate start, LocalDate end);
+
+	@Modifying
+	@Query("DELETE FROM SalesRollup r WHERE r.dueDate=?1 AND r.state=?2")
+	int deleteByDueDateAndState(LocalDate dueDate, OrderState state);
+
+}
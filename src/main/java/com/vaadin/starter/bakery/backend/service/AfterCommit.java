@@ -0,0 +1,33 @@
+package com.vaadin.starter.bakery.backend.service;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Defers the updates of derived in-memory data until a write has been
+ * committed, so that a rolled back write leaves them unchanged.
+ */
+final class AfterCommit {
+
+	private AfterCommit() {
+	}
+
+	/**
+	 * Runs the given action after the current transaction has committed, or
+	 * immediately if there is no transaction.
+	 *
+	 * @param action the action to run
+	 */
+	static void run(Runnable action) {
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+				@Override
+				public void afterCommit() {
+					action.run();
+				}
+			});
+		} else {
+			action.run();
+		}
+	}
+}
@@ -0,0 +1,266 @@
+package com.vaadin.starter.bakery.backend.service;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A compressed set of non-negative ids.
+ * <p>
+ * The ids are split into chunks of 65536 by their high bits. A chunk holding
+ * few ids stores them as a sorted array of their low 16 bits; once it holds more
+ * than {@value #ARRAY_LIMIT} ids it switches to a plain 65536-bit bitmap. This
+ * keeps sparse sets small while intersections of dense sets become word-wise
+ * {@code AND}s.
+ * </p>
+ * <p>
+ * Not thread-safe.
+ * </p>
+ */
+class CompressedBitmap {
+
+	/** Maximum number of ids kept in an array chunk. */
+	static final int ARRAY_LIMIT = 4096;
+
+	private static final int WORDS = 1 << 10;
+
+	/**
+	 * The ids of one chunk: either {@code values} (sorted low bits) or
+	 * {@code words} (a bitmap) is set.
+	 */
+	private static class Chunk {
+		private char[] values = new char[4];
+		private long[] words;
+		private int cardinality;
+
+		boolean contains(char low) {
+			if (words != null) {
+				return (words[low >>> 6] & (1L << low)) != 0;
+			}
+			return Arrays.binarySearch(values, 0, cardinality, low) >= 0;
+		}
+
+		boolean add(char low) {
+			if (words != null) {
+				long bit = 1L << low;
+				if ((words[low >>> 6] & bit) != 0) {
+					return false;
+				}
+				words[low >>> 6] |= bit;
+				cardinality++;
+				return true;
+			}
+			int index = Arrays.binarySearch(values, 0, cardinality, low);
+			if (index >= 0) {
+				return false;
+			}
+			if (cardinality == ARRAY_LIMIT) {
+				toWords();
+				return add(low);
+			}
+			index = -index - 1;
+			if (cardinality == values.length) {
+				values = Arrays.copyOf(values, Math.min(ARRAY_LIMIT, cardinality * 2));
+			}
+			System.arraycopy(values, index, values, index + 1, cardinality - index);
+			values[index] = low;
+			cardinality++;
+			return true;
+		}
+
+		boolean remove(char low) {
+			if (words != null) {
+				long bit = 1L << low;
+				if ((words[low >>> 6] & bit) == 0) {
+					return false;
+				}
+				words[low >>> 6] &= ~bit;
+				cardinality--;
+				if (cardinality <= ARRAY_LIMIT / 2) {
+					toValues();
+				}
+				return true;
+			}
+			int index = Arrays.binarySearch(values, 0, cardinality, low);
+			if (index < 0) {
+				return false;
+			}
+			System.arraycopy(values, index + 1, values, index, cardinality - index - 1);
+			cardinality--;
+			return true;
+		}
+
+		Chunk and(Chunk other) {
+			Chunk result = new Chunk();
+			if (words != null && other.words != null) {
+				result.words = new long[WORDS];
+				for (int i = 0; i < WORDS; i++) {
+					result.words[i] = words[i] & other.words[i];
+					result.cardinality += Long.bitCount(result.words[i]);
+				}
+				if (result.cardinality <= ARRAY_LIMIT) {
+					result.toValues();
+				}
+				return result;
+			}
+			Chunk array = words == null ? this : other;
+			Chunk probe = array == this ? other : this;
+			result.values = new char[Math.max(4, array.cardinality)];
+			for (int i = 0; i < array.cardinality; i++) {
+				if (probe.contains(array.values[i])) {
+					result.values[result.cardinality++] = array.values[i];
+				}
+			}
+			return result;
+		}
+
+		int andCardinality(Chunk other) {
+			if (words != null && other.words != null) {
+				int count = 0;
+				for (int i = 0; i < WORDS; i++) {
+					count += Long.bitCount(words[i] & other.words[i]);
+				}
+				return count;
+			}
+			if (words != null) {
+				return other.andCardinality(this);
+			}
+			int count = 0;
+			if (other.words != null) {
+				for (int i = 0; i < cardinality; i++) {
+					if (other.contains(values[i])) {
+						count++;
+					}
+				}
+				return count;
+			}
+			int i = 0;
+			int j = 0;
+			while (i < cardinality && j < other.cardinality) {
+				if (values[i] < other.values[j]) {
+					i++;
+				} else if (values[i] > other.values[j]) {
+					j++;
+				} else {
+					count++;
+					i++;
+					j++;
+				}
+			}
+			return count;
+		}
+
+		private void toWords() {
+			words = new long[WORDS];
+			for (int i = 0; i < cardinality; i++) {
+				words[values[i] >>> 6] |= 1L << values[i];
+			}
+			values = null;
+		}
+
+		private void toValues() {
+			values = new char[Math.max(4, cardinality)];
+			int index = 0;
+			for (int i = 0; i < WORDS; i++) {
+				long word = words[i];
+				while (word != 0) {
+					values[index++] = (char) (i * 64 + Long.numberOfTrailingZeros(word));
+					word &= word - 1;
+				}
+			}
+			words = null;
+		}
+	}
+
+	private final Map<Long, Chunk> chunks = new HashMap<>();
+	private long cardinality;
+
+	/**
+	 * Adds an id.
+	 *
+	 * @param id the id, not negative
+	 */
+	public void add(long id) {
+		if (chunks.computeIfAbsent(id >>> 16, k -> new Chunk()).add((char) id)) {
+			cardinality++;
+		}
+	}
+
+	/**
+	 * Removes an id.
+	 *
+	 * @param id the id
+	 */
+	public void remove(long id) {
+		Chunk chunk = chunks.get(id >>> 16);
+		if (chunk != null && chunk.remove((char) id)) {
+			cardinality--;
+			if (chunk.cardinality == 0) {
+				chunks.remove(id >>> 16);
+			}
+		}
+	}
+
+	/**
+	 * Returns whether the set contains an id.
+	 *
+	 * @param id the id
+	 * @return {@code true} if the id is in the set
+	 */
+	public boolean contains(long id) {
+		Chunk chunk = chunks.get(id >>> 16);
+		return chunk != null && chunk.contains((char) id);
+	}
+
+	/**
+	 * Returns the number of ids in the set.
+	 *
+	 * @return the cardinality
+	 */
+	public long cardinality() {
+		return cardinality;
+	}
+
+	/**
+	 * Returns the ids in both this and the other set.
+	 *
+	 * @param other the other set
+	 * @return the intersection, a new set
+	 */
+	public CompressedBitmap and(CompressedBitmap other) {
+		Map<Long, Chunk> smaller = chunks.size() <= other.chunks.size() ? chunks : other.chunks;
+		Map<Long, Chunk> larger = smaller == chunks ? other.chunks : chunks;
+		CompressedBitmap result = new CompressedBitmap();
+		for (Map.Entry<Long, Chunk> entry : smaller.entrySet()) {
+			Chunk chunk = larger.get(entry.getKey());
+			if (chunk != null) {
+				Chunk intersection = entry.getValue().and(chunk);
+				if (intersection.cardinality > 0) {
+					result.chunks.put(entry.getKey(), intersection);
+					result.cardinality += intersection.cardinality;
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the number of ids in both this and the other set, without
+	 * materializing the intersection.
+	 *
+	 * @param other the other set
+	 * @return the cardinality of the intersection
+	 */
+	public long andCardinality(CompressedBitmap other) {
+		Map<Long, Chunk> smaller = chunks.size() <= other.chunks.size() ? chunks : other.chunks;
+		Map<Long, Chunk> larger = smaller == chunks ? other.chunks : chunks;
+		long count = 0;
+		for (Map.Entry<Long, Chunk> entry : smaller.entrySet()) {
+			Chunk chunk = larger.get(entry.getKey());
+			if (chunk != null) {
+				count += entry.getValue().andCardinality(chunk);
+			}
+		}
+		return count;
+	}
+}
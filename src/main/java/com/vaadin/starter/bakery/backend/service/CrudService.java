@@ -11,8 +11,25 @@ public interface CrudService<T extends AbstractEntity> {
 
 	JpaRepository<T, Long> getRepository();
 
+	/**
+	 * Returns the class of the entities of this service.
+	 *
+	 * @return the entity class
+	 */
+	Class<T> getEntityClass();
+
+	/**
+	 * Returns the write versions incremented by the saves and deletes of this
+	 * service.
+	 *
+	 * @return the write versions
+	 */
+	WriteVersions getWriteVersions();
+
 	default T save(User currentUser, T entity) {
-		return getRepository().saveAndFlush(entity);
+		T saved = getRepository().saveAndFlush(entity);
+		getWriteVersions().written(getEntityClass());
+		return saved;
 	}
 
 	default void delete(User currentUser, T entity) {
@@ -20,6 +37,7 @@ public interface CrudService<T extends AbstractEntity> {
 			throw new EntityNotFoundException();
 		}
 		getRepository().delete(entity);
+		getWriteVersions().written(getEntityClass());
 	}
 
 	default void delete(User currentUser, long id) {
@@ -38,5 +56,16 @@ public interface CrudService<T extends AbstractEntity> {
 		return entity;
 	}
 
+	/**
+	 * Returns the write version of the entities of this service, which is
+	 * incremented once a save or delete made by any user has been committed.
+	 * Callers caching entities compare it to tell whether they may be outdated.
+	 *
+	 * @return the write version
+	 */
+	default long getWriteVersion() {
+		return getWriteVersions().get(getEntityClass());
+	}
+
 	T createNew(User currentUser);
 }
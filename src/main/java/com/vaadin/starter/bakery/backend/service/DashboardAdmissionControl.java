@@ -0,0 +1,224 @@
+package com.vaadin.starter.bakery.backend.service;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+
+/**
+ * Limits the number of dashboard computations running at the same time, so
+ * that reporting cannot take the whole CPU from the order writes and the other
+ * views.
+ * <p>
+ * The computations do not use the database: each one scans the in-memory
+ * {@link DashboardAggregates} and {@link OrderStateIndex} on the calling
+ * thread and, for large stores, the common fork-join pool. Computations of the same
+ * period are already shared through {@link DashboardDataCache}, so this limit
+ * applies to computations of different periods, e.g. when many users browse
+ * the months at once or right after an order write has invalidated the cache.
+ * </p>
+ * <p>
+ * At most {@code bakery.dashboard.admission.max-concurrent} computations run at
+ * once, by default half the available processors. A computation keeps one
+ * core busy, and the scans of large stores share the common pool, which has
+ * one thread per core; half the cores are thus left to the order writes and
+ * the other views even when all slots are taken. Further callers wait for up to
+ * {@code bakery.dashboard.admission.timeout-millis}, and at most
+ * {@code bakery.dashboard.admission.max-queued} of them may wait at the same
+ * time. Callers that are not admitted get a {@link RejectedException}, so they
+ * can fall back to older data.
+ * </p>
+ * <p>
+ * The number of waiting callers, of admitted, rejected and timed out
+ * computations and the CPU time of the computations are exported over JMX as
+ * {@code bakery:name=dashboardAdmissionControl}, so that the limit can be
+ * sized against the actual cost of a computation. The CPU time is that of the
+ * calling thread and leaves out the parallel scans of large stores.
+ * </p>
+ */
+@Component
+@ManagedResource(objectName = "bakery:name=dashboardAdmissionControl")
+public class DashboardAdmissionControl {
+
+	/**
+	 * Thrown when a computation is not admitted, either because too many callers
+	 * are already waiting or because no slot became free in time.
+	 */
+	public static class RejectedException extends RuntimeException {
+
+		RejectedException(String message) {
+			super(message);
+		}
+	}
+
+	private final Semaphore permits;
+	private final int maxConcurrent;
+	private final int maxQueued;
+	private final long timeoutMillis;
+
+	private final AtomicInteger queued = new AtomicInteger();
+	private final LongAccumulator maxQueueDepth = new LongAccumulator(Long::max, 0);
+	private final LongAdder admitted = new LongAdder();
+	private final LongAdder rejected = new LongAdder();
+	private final LongAdder timedOut = new LongAdder();
+	private final LongAdder cpuNanos = new LongAdder();
+	private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+
+	/**
+	 * Creates the admission control.
+	 *
+	 * @param maxConcurrent the number of computations that may run at once, 0
+	 *                      for half the available processors
+	 * @param maxQueued     the number of callers that may wait for a slot
+	 * @param timeoutMillis the time a caller waits for a slot
+	 */
+	@Autowired
+	public DashboardAdmissionControl(@Value("${bakery.dashboard.admission.max-concurrent:0}") int maxConcurrent,
+			@Value("${bakery.dashboard.admission.max-queued:16}") int maxQueued,
+			@Value("${bakery.dashboard.admission.timeout-millis:2000}") long timeoutMillis) {
+		this.maxConcurrent = maxConcurrent > 0 ? maxConcurrent
+				: Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+		this.permits = new Semaphore(this.maxConcurrent, true);
+		this.maxQueued = maxQueued;
+		this.timeoutMillis = timeoutMillis;
+	}
+
+	/**
+	 * Runs a computation once a slot is free.
+	 *
+	 * @param <T>         the type of the result
+	 * @param computation the computation
+	 * @return the result of the computation
+	 * @throws RejectedException if the computation is not admitted
+	 */
+	public <T> T run(Supplier<T> computation) {
+		if (!permits.tryAcquire()) {
+			await();
+		}
+		admitted.increment();
+		long cpuStart = cpuTime();
+		try {
+			return computation.get();
+		} finally {
+			cpuNanos.add(cpuTime() - cpuStart);
+			permits.release();
+		}
+	}
+
+	private void await() {
+		int depth = queued.incrementAndGet();
+		try {
+			if (depth > maxQueued) {
+				rejected.increment();
+				throw new RejectedException("Too many dashboard computations waiting");
+			}
+			maxQueueDepth.accumulate(depth);
+			if (!permits.tryAcquire(timeoutMillis, TimeUnit.MILLISECONDS)) {
+				timedOut.increment();
+				throw new RejectedException("No dashboard computation slot within " + timeoutMillis + " ms");
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			rejected.increment();
+			throw new RejectedException("Interrupted while waiting for a dashboard computation slot");
+		} finally {
+			queued.decrementAndGet();
+		}
+	}
+
+	private long cpuTime() {
+		return threads.isCurrentThreadCpuTimeSupported() ? threads.getCurrentThreadCpuTime() : 0;
+	}
+
+	/**
+	 * Returns the number of computations that may run at once.
+	 *
+	 * @return the limit
+	 */
+	@ManagedAttribute
+	public int getMaxConcurrent() {
+		return maxConcurrent;
+	}
+
+	/**
+	 * Returns the number of callers currently waiting for a slot.
+	 *
+	 * @return the queue depth
+	 */
+	@ManagedAttribute
+	public int getQueueDepth() {
+		return queued.get();
+	}
+
+	/**
+	 * Returns the highest number of callers that have waited for a slot at the
+	 * same time.
+	 *
+	 * @return the maximum queue depth
+	 */
+	@ManagedAttribute
+	public long getMaxQueueDepth() {
+		return maxQueueDepth.get();
+	}
+
+	/**
+	 * Returns the number of computations that have been run.
+	 *
+	 * @return the admitted count
+	 */
+	@ManagedAttribute
+	public long getAdmittedCount() {
+		return admitted.sum();
+	}
+
+	/**
+	 * Returns the number of callers rejected because the queue was full.
+	 *
+	 * @return the rejected count
+	 */
+	@ManagedAttribute
+	public long getRejectedCount() {
+		return rejected.sum();
+	}
+
+	/**
+	 * Returns the number of callers that gave up waiting for a slot.
+	 *
+	 * @return the timed out count
+	 */
+	@ManagedAttribute
+	public long getTimedOutCount() {
+		return timedOut.sum();
+	}
+
+	/**
+	 * Returns the CPU time the computations have taken on their calling threads.
+	 *
+	 * @return the total CPU time, in milliseconds
+	 */
+	@ManagedAttribute
+	public long getCpuMillis() {
+		return cpuNanos.sum() / 1_000_000;
+	}
+
+	/**
+	 * Returns the average CPU time of a computation on its calling thread.
+	 *
+	 * @return the average CPU time, in milliseconds, or 0 if nothing has run
+	 */
+	@ManagedAttribute
+	public double getAverageCpuMillis() {
+		long count = getAdmittedCount();
+		return count == 0 ? 0 : cpuNanos.sum() / 1_000_000.0 / count;
+	}
+}
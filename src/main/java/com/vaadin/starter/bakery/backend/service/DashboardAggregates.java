@@ -0,0 +1,610 @@
+package com.vaadin.starter.bakery.backend.service;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.IntStream;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import com.vaadin.starter.bakery.backend.data.OrderState;
+import com.vaadin.starter.bakery.backend.data.TimeSeries;
+import com.vaadin.starter.bakery.backend.data.entity.Order;
+import com.vaadin.starter.bakery.backend.data.entity.OrderItem;
+import com.vaadin.starter.bakery.backend.data.entity.Product;
+import com.vaadin.starter.bakery.backend.repositories.OrderRepository;
+
+/**
+ * In-memory columnar store of the items of delivered orders, used to answer the
+ * dashboard series.
+ * <p>
+ * Each item is a row spread over primitive column arrays: the due date as epoch
+ * day, the order state, the pickup location, the product id, the quantity and
+ * the unit price stored with the item. The series are computed with plain loops
+ * over these arrays, split into chunks scanned in parallel once the store is
+ * large enough. Each scan sums the values over all orders and per pickup
+ * location in the same pass.
+ * </p>
+ * <p>
+ * The store is loaded one year at a time, with a {@code dueDate} range query
+ * served by the {@code (state, dueDate)} index of the orders: the current year
+ * when the application starts, and any other year the first time a series of it
+ * is asked for. Loaded years are then kept up to date by {@link OrderService}
+ * whenever an order save or delete commits. Changing an order marks its previous rows as removed and
+ * appends new ones; removed rows are compacted away once they make up half of
+ * the store. A delivered order without items is stored as a single row without
+ * a product, so that it is still counted as a delivery.
+ * </p>
+ * <p>
+ * The version of each stored or written order is kept, and deleted orders are
+ * remembered, so that a save committed earlier but registered late cannot
+ * replace the rows of a later save, or bring back a deleted order.
+ * </p>
+ * <p>
+ * Only the latest version of each product is kept. Product changes are
+ * registered by {@link ProductService}, so that renamed products and changed
+ * prices are shown on the dashboard; the sales use the unit price stored with
+ * each item and are not affected.
+ * </p>
+ */
+@Component
+public class DashboardAggregates {
+
+	private static final int INITIAL_CAPACITY = 1024;
+
+	/** Number of rows from which the scans run in parallel. */
+	private static final int PARALLEL_THRESHOLD = 1 << 16;
+
+	/** Number of rows scanned by one parallel task. */
+	private static final int CHUNK_SIZE = 1 << 14;
+
+	private static final byte DELIVERED = (byte) OrderState.DELIVERED.ordinal();
+
+	/** Product id of the row of an order without items. */
+	private static final long NO_PRODUCT = Long.MIN_VALUE;
+
+	/** Version registered for a deleted order, newer than any save. */
+	private static final int DELETED = Integer.MAX_VALUE;
+
+	/**
+	 * Adds the values of the rows {@code from} (inclusive) to {@code to}
+	 * (exclusive) to the given totals, laid out as one group of buckets per
+	 * location slot.
+	 */
+	@FunctionalInterface
+	private interface RowScan {
+		void scan(int from, int to, long[] totals);
+	}
+
+	/**
+	 * The totals of a scan: the buckets over all rows followed by the buckets of
+	 * each pickup location.
+	 */
+	private static final class Grouped {
+		private final long[] totals;
+		private final int buckets;
+		private final long[] locationIds;
+
+		Grouped(long[] totals, int buckets, long[] locationIds) {
+			this.totals = totals;
+			this.buckets = buckets;
+			this.locationIds = locationIds;
+		}
+
+		/**
+		 * Converts the buckets of all rows and of each location with any non-zero
+		 * bucket.
+		 */
+		<T> LocationBreakdown<T> map(Function<long[], T> converter) {
+			Map<Long, T> byLocation = new HashMap<>();
+			for (int slot = 1; slot <= locationIds.length; slot++) {
+				long[] slice = Arrays.copyOfRange(totals, slot * buckets, (slot + 1) * buckets);
+				if (Arrays.stream(slice).anyMatch(value -> value != 0)) {
+					byLocation.put(locationIds[slot - 1], converter.apply(slice));
+				}
+			}
+			return new LocationBreakdown<>(converter.apply(Arrays.copyOf(totals, buckets)), byLocation);
+		}
+	}
+
+	private final OrderRepository orderRepository;
+
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+	private int size;
+	private int[] epochDays = new int[INITIAL_CAPACITY];
+	private byte[] states = new byte[INITIAL_CAPACITY];
+	/** 0 for orders without a pickup location, otherwise 1 + the index in {@link #locationIds}. */
+	private int[] locationSlots = new int[INITIAL_CAPACITY];
+	private long[] productIds = new long[INITIAL_CAPACITY];
+	private int[] quantities = new int[INITIAL_CAPACITY];
+	private int[] prices = new int[INITIAL_CAPACITY];
+	/** Marks the first row of each order, so that orders can be counted. */
+	private boolean[] firstItems = new boolean[INITIAL_CAPACITY];
+	private final BitSet removed = new BitSet();
+	private int removedCount;
+
+	/** Row numbers of the items of each stored order. */
+	private final Map<Long, int[]> orderRows = new HashMap<>();
+	/** Latest version of each stored order and of each order written since the start. */
+	private final Map<Long, Integer> orderVersions = new HashMap<>();
+	private final Map<Long, Product> products = new HashMap<>();
+	private final List<Long> locationIds = new ArrayList<>();
+	private final Map<Long, Integer> locationSlotsById = new HashMap<>();
+	private final Set<Integer> loadedYears = ConcurrentHashMap.newKeySet();
+
+	/**
+	 * Creates the store.
+	 *
+	 * @param orderRepository the repository used to load the years
+	 */
+	@Autowired
+	public DashboardAggregates(OrderRepository orderRepository) {
+		this.orderRepository = orderRepository;
+	}
+
+	/**
+	 * Loads the current year when the application starts, so that the first
+	 * dashboard does not wait for it.
+	 */
+	@EventListener(ApplicationReadyEvent.class)
+	public void load() {
+		ensureLoaded(LocalDate.now().getYear());
+	}
+
+	/**
+	 * Registers the current state of a saved order. Should be called once the
+	 * change has been committed.
+	 *
+	 * @param order the saved order
+	 */
+	public void orderSaved(Order order) {
+		lock.writeLock().lock();
+		try {
+			if (!registerVersion(order.getId(), order.getVersion())) {
+				// A later write has already been registered
+				return;
+			}
+			removeRows(order.getId());
+			// The load of a year not loaded yet sees the committed order
+			if (order.getState() == OrderState.DELIVERED && order.getDueDate() != null
+					&& loadedYears.contains(order.getDueDate().getYear())) {
+				int epochDay = (int) order.getDueDate().toEpochDay();
+				Long locationId = order.getPickupLocation() == null ? null : order.getPickupLocation().getId();
+				if (order.getItems() != null) {
+					for (OrderItem item : order.getItems()) {
+						if (item.getProduct() != null && item.getQuantity() != null) {
+							addRow(order.getId(), epochDay, DELIVERED, locationId, item.getProduct(),
+									item.getQuantity(), item.getUnitPrice());
+						}
+					}
+				}
+				if (!orderRows.containsKey(order.getId())) {
+					addRow(order.getId(), epochDay, DELIVERED, locationId, null, 0, null);
+				}
+			}
+			compactIfNeeded();
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Registers the current state of a saved product, replacing the version kept
+	 * for the product's rows. Should be called once the change has been
+	 * committed.
+	 *
+	 * @param product the saved product
+	 */
+	public void productSaved(Product product) {
+		lock.writeLock().lock();
+		try {
+			putProduct(product);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Removes a deleted order from the store. Should be called once the change
+	 * has been committed.
+	 *
+	 * @param orderId the id of the deleted order
+	 */
+	public void orderDeleted(Long orderId) {
+		lock.writeLock().lock();
+		try {
+			orderVersions.put(orderId, DELETED);
+			removeRows(orderId);
+			compactIfNeeded();
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Returns the number of delivered orders per day of the given month.
+	 *
+	 * @param month the month (1–12)
+	 * @param year  the year
+	 * @return deliveries per day, missing for days without deliveries
+	 */
+	public TimeSeries getDeliveriesPerDay(int month, int year) {
+		return getDeliveriesPerDayByLocation(month, year).getTotal();
+	}
+
+	/**
+	 * Returns the number of delivered orders per day of the given month, in total
+	 * and per pickup location.
+	 *
+	 * @param month the month (1–12)
+	 * @param year  the year
+	 * @return deliveries per day, missing for days without deliveries
+	 */
+	LocationBreakdown<TimeSeries> getDeliveriesPerDayByLocation(int month, int year) {
+		YearMonth yearMonth = YearMonth.of(year, month);
+		int start = (int) yearMonth.atDay(1).toEpochDay();
+		int days = yearMonth.lengthOfMonth();
+		Grouped deliveries = scan(year, days, (from, to, totals) -> {
+			for (int row = from; row < to; row++) {
+				int day = epochDays[row] - start;
+				if (day >= 0 && day < days && firstItems[row] && states[row] == DELIVERED && !removed.get(row)) {
+					add(totals, days, locationSlots[row], day, 1);
+				}
+			}
+		});
+		return deliveries.map(totals -> toSeries(totals, 0, days));
+	}
+
+	/**
+	 * Returns the number of delivered orders per month of the given year.
+	 *
+	 * @param year the year
+	 * @return deliveries per month, missing for months without deliveries
+	 */
+	public TimeSeries getDeliveriesPerMonth(int year) {
+		return getDeliveriesPerMonthByLocation(year).getTotal();
+	}
+
+	/**
+	 * Returns the number of delivered orders per month of the given year, in total
+	 * and per pickup location.
+	 *
+	 * @param year the year
+	 * @return deliveries per month, missing for months without deliveries
+	 */
+	LocationBreakdown<TimeSeries> getDeliveriesPerMonthByLocation(int year) {
+		return scanMonths(year).map(totals -> toSeries(totals, 0, 12));
+	}
+
+	/**
+	 * Returns the delivered sales (in cents) per month of the given year.
+	 *
+	 * @param year the year
+	 * @return sales per month, missing for months without deliveries
+	 */
+	public TimeSeries getSalesPerMonth(int year) {
+		return getSalesPerMonthByLocation(year).getTotal();
+	}
+
+	/**
+	 * Returns the delivered sales (in cents) per month of the given year, in total
+	 * and per pickup location.
+	 *
+	 * @param year the year
+	 * @return sales per month, missing for months without deliveries
+	 */
+	LocationBreakdown<TimeSeries> getSalesPerMonthByLocation(int year) {
+		return scanMonths(year).map(totals -> toSeries(totals, 12, 12));
+	}
+
+	/**
+	 * Returns the delivered quantity per product for the given month, ordered by
+	 * product id.
+	 *
+	 * @param month the month (1–12)
+	 * @param year  the year
+	 * @return delivered quantities per product
+	 */
+	public LinkedHashMap<Product, Integer> getProductDeliveries(int month, int year) {
+		return getProductDeliveriesByLocation(month, year).getTotal();
+	}
+
+	/**
+	 * Returns the delivered quantity per product for the given month, ordered by
+	 * product id, in total and per pickup location.
+	 *
+	 * @param month the month (1–12)
+	 * @param year  the year
+	 * @return delivered quantities per product
+	 */
+	LocationBreakdown<LinkedHashMap<Product, Integer>> getProductDeliveriesByLocation(int month, int year) {
+		ensureLoaded(year);
+		YearMonth yearMonth = YearMonth.of(year, month);
+		int start = (int) yearMonth.atDay(1).toEpochDay();
+		int end = start + yearMonth.lengthOfMonth();
+
+		lock.readLock().lock();
+		try {
+			TreeMap<Long, Product> sortedProducts = new TreeMap<>(products);
+			long[] ids = sortedProducts.keySet().stream().mapToLong(Long::longValue).toArray();
+			Grouped quantitiesPerProduct = scanLocked(ids.length, (from, to, totals) -> {
+				for (int row = from; row < to; row++) {
+					if (epochDays[row] >= start && epochDays[row] < end && states[row] == DELIVERED
+							&& productIds[row] != NO_PRODUCT && !removed.get(row)) {
+						add(totals, ids.length, locationSlots[row], Arrays.binarySearch(ids, productIds[row]),
+								quantities[row]);
+					}
+				}
+			});
+
+			return quantitiesPerProduct.map(totals -> {
+				LinkedHashMap<Product, Integer> productDeliveries = new LinkedHashMap<>();
+				for (int i = 0; i < ids.length; i++) {
+					if (totals[i] != 0) {
+						productDeliveries.put(sortedProducts.get(ids[i]), (int) totals[i]);
+					}
+				}
+				return productDeliveries;
+			});
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Sums the delivered orders (first 12 totals) and the sales (last 12 totals)
+	 * per month of the given year.
+	 */
+	private Grouped scanMonths(int year) {
+		int[] monthStarts = new int[13];
+		for (int month = 0; month <= 12; month++) {
+			monthStarts[month] = (int) LocalDate.of(year, 1, 1).plusMonths(month).toEpochDay();
+		}
+		return scan(year, 24, (from, to, totals) -> {
+			for (int row = from; row < to; row++) {
+				int day = epochDays[row];
+				if (day >= monthStarts[0] && day < monthStarts[12] && states[row] == DELIVERED && !removed.get(row)) {
+					int month = 0;
+					while (day >= monthStarts[month + 1]) {
+						month++;
+					}
+					if (firstItems[row]) {
+						add(totals, 24, locationSlots[row], month, 1);
+					}
+					add(totals, 24, locationSlots[row], 12 + month, (long) quantities[row] * prices[row]);
+				}
+			}
+		});
+	}
+
+	/**
+	 * Creates a series of the given size from the totals starting at
+	 * {@code offset}. A point is present where the delivery count, stored at the
+	 * start of the totals, is not 0.
+	 */
+	private static TimeSeries toSeries(long[] totals, int offset, int size) {
+		TimeSeries series = new TimeSeries(size);
+		for (int i = 0; i < size; i++) {
+			if (totals[i] != 0) {
+				series.set(i, totals[offset + i]);
+			}
+		}
+		return series;
+	}
+
+	/**
+	 * Adds a value to a bucket of all rows and to the same bucket of the row's
+	 * location.
+	 */
+	private static void add(long[] totals, int buckets, int locationSlot, int bucket, long value) {
+		totals[bucket] += value;
+		if (locationSlot != 0) {
+			totals[locationSlot * buckets + bucket] += value;
+		}
+	}
+
+	/**
+	 * Runs a scan over all rows under the read lock, once the given year has been
+	 * loaded.
+	 */
+	private Grouped scan(int year, int buckets, RowScan rowScan) {
+		ensureLoaded(year);
+		lock.readLock().lock();
+		try {
+			return scanLocked(buckets, rowScan);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Runs a scan over all rows, in parallel chunks for large stores. The read
+	 * lock must be held.
+	 */
+	private Grouped scanLocked(int buckets, RowScan rowScan) {
+		int rows = size;
+		long[] locations = locationIds.stream().mapToLong(Long::longValue).toArray();
+		int length = buckets * (locations.length + 1);
+		if (rows < PARALLEL_THRESHOLD) {
+			long[] totals = new long[length];
+			rowScan.scan(0, rows, totals);
+			return new Grouped(totals, buckets, locations);
+		}
+		int chunks = (rows + CHUNK_SIZE - 1) / CHUNK_SIZE;
+		long[] totals = IntStream.range(0, chunks).parallel().mapToObj(chunk -> {
+			long[] chunkTotals = new long[length];
+			rowScan.scan(chunk * CHUNK_SIZE, Math.min(rows, (chunk + 1) * CHUNK_SIZE), chunkTotals);
+			return chunkTotals;
+		}).reduce((a, b) -> {
+			for (int i = 0; i < length; i++) {
+				a[i] += b[i];
+			}
+			return a;
+		}).orElseGet(() -> new long[length]);
+		return new Grouped(totals, buckets, locations);
+	}
+
+	/**
+	 * Loads the items of the orders delivered in the given year from the
+	 * database, unless this has already been done.
+	 */
+	private void ensureLoaded(int year) {
+		if (loadedYears.contains(year)) {
+			return;
+		}
+		lock.writeLock().lock();
+		try {
+			if (loadedYears.contains(year)) {
+				return;
+			}
+			for (Object[] row : orderRepository.findItemsByStateBetween(OrderState.DELIVERED,
+					LocalDate.of(year, 1, 1), LocalDate.of(year + 1, 1, 1))) {
+				Long orderId = (Long) row[0];
+				Integer known = orderVersions.get(orderId);
+				int version = (Integer) row[6];
+				if (known != null && known > version) {
+					// Deleted, or saved since with a due date in another year
+					continue;
+				} else if (known != null && known < version) {
+					// Moved from another year by a save whose rows are not replaced yet
+					removeRows(orderId);
+				}
+				orderVersions.put(orderId, version);
+				// Orders without items have a single row without a product
+				addRow(orderId, (int) ((LocalDate) row[1]).toEpochDay(), DELIVERED, (Long) row[5], (Product) row[3],
+						row[3] == null || row[2] == null ? 0 : (Integer) row[2], (Integer) row[4]);
+			}
+			loadedYears.add(year);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Registers the version of a written order, unless a later version or a
+	 * delete has already been registered. The write lock must be held.
+	 *
+	 * @return {@code true} if the write is the latest one and is to be applied
+	 */
+	private boolean registerVersion(Long orderId, int version) {
+		Integer known = orderVersions.get(orderId);
+		if (known != null && known > version) {
+			return false;
+		}
+		orderVersions.put(orderId, version);
+		return true;
+	}
+
+	/**
+	 * Appends a row for an order item, or for an order without items if the
+	 * product is {@code null}. The write lock must be held.
+	 */
+	private void addRow(Long orderId, int epochDay, byte state, Long locationId, Product product, int quantity,
+			Integer price) {
+		if (size == epochDays.length) {
+			resize(size * 2);
+		}
+		int[] rows = orderRows.get(orderId);
+		int[] newRows = rows == null ? new int[1] : Arrays.copyOf(rows, rows.length + 1);
+		newRows[newRows.length - 1] = size;
+		orderRows.put(orderId, newRows);
+		if (product != null) {
+			putProduct(product);
+		}
+
+		epochDays[size] = epochDay;
+		states[size] = state;
+		locationSlots[size] = locationId == null ? 0 : locationSlotsById.computeIfAbsent(locationId, id -> {
+			locationIds.add(id);
+			return locationIds.size();
+		});
+		productIds[size] = product == null ? NO_PRODUCT : product.getId();
+		quantities[size] = quantity;
+		prices[size] = price == null ? 0 : price;
+		firstItems[size] = rows == null;
+		size++;
+	}
+
+	/**
+	 * Keeps the given product unless a later version of it is already known, as
+	 * the products of saved orders may have been read before a product change.
+	 * The write lock must be held.
+	 */
+	private void putProduct(Product product) {
+		products.merge(product.getId(), product,
+				(known, saved) -> saved.getVersion() >= known.getVersion() ? saved : known);
+	}
+
+	/**
+	 * Marks the rows of an order as removed. The write lock must be held.
+	 */
+	private void removeRows(Long orderId) {
+		int[] rows = orderRows.remove(orderId);
+		if (rows != null) {
+			for (int row : rows) {
+				removed.set(row);
+			}
+			removedCount += rows.length;
+		}
+	}
+
+	/**
+	 * Drops the removed rows once they make up half of the store. The write lock
+	 * must be held.
+	 */
+	private void compactIfNeeded() {
+		if (removedCount < INITIAL_CAPACITY || removedCount * 2 < size) {
+			return;
+		}
+		int[] newIndex = new int[size];
+		int live = 0;
+		for (int row = 0; row < size; row++) {
+			if (!removed.get(row)) {
+				epochDays[live] = epochDays[row];
+				states[live] = states[row];
+				locationSlots[live] = locationSlots[row];
+				productIds[live] = productIds[row];
+				quantities[live] = quantities[row];
+				prices[live] = prices[row];
+				firstItems[live] = firstItems[row];
+				newIndex[row] = live++;
+			}
+		}
+		orderRows.replaceAll((orderId, rows) -> {
+			for (int i = 0; i < rows.length; i++) {
+				rows[i] = newIndex[rows[i]];
+			}
+			return rows;
+		});
+		size = live;
+		removed.clear();
+		removedCount = 0;
+		resize(Math.max(INITIAL_CAPACITY, size * 2));
+	}
+
+	private void resize(int capacity) {
+		epochDays = Arrays.copyOf(epochDays, capacity);
+		states = Arrays.copyOf(states, capacity);
+		locationSlots = Arrays.copyOf(locationSlots, capacity);
+		productIds = Arrays.copyOf(productIds, capacity);
+		quantities = Arrays.copyOf(quantities, capacity);
+		prices = Arrays.copyOf(prices, capacity);
+		firstItems = Arrays.copyOf(firstItems, capacity);
+	}
+}
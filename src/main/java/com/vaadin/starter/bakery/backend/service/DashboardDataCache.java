@@ -0,0 +1,232 @@
+package com.vaadin.starter.bakery.backend.service;
+
+import java.time.Clock;
+import java.time.YearMonth;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import org.springframework.stereotype.Component;
+
+import com.vaadin.starter.bakery.backend.data.DashboardData;
+
+/**
+ * Application-wide cache of {@link DashboardData}, shared by all users.
+ * <p>
+ * Entries are keyed by month and year and are valid for the current time bucket
+ * (one minute) only, as the delivery statistics depend on the current date. Any
+ * order write through {@link OrderService} invalidates all entries.
+ * </p>
+ * <p>
+ * Concurrent requests for the same missing entry wait for a single computation
+ * instead of each running the dashboard queries.
+ * </p>
+ * <p>
+ * The last successfully computed data of the {@value #MAX_FALLBACK_PERIODS}
+ * most recently used periods is kept even after it has expired or been
+ * invalidated, as a fallback when a new computation is not possible. A computation only replaces it if it was started later, so a slow
+ * computation of outdated data cannot overwrite newer data.
+ * </p>
+ */
+@Component
+public class DashboardDataCache {
+
+	/** Length of the time bucket an entry is valid for, in milliseconds. */
+	static final long BUCKET_MILLIS = 60_000;
+
+	/** Number of periods whose last computed data is kept as a fallback. */
+	static final int MAX_FALLBACK_PERIODS = 12;
+
+	/**
+	 * A cached (or in progress) computation together with the time bucket and the
+	 * write version it was started in.
+	 */
+	private static class Entry {
+		private final long bucket;
+		private final long version;
+		private final FutureTask<DashboardData> task;
+
+		Entry(long bucket, long version, Supplier<DashboardData> loader) {
+			this.bucket = bucket;
+			this.version = version;
+			this.task = new FutureTask<>(loader::get);
+		}
+
+		boolean isValid(long bucket, long version) {
+			return this.bucket == bucket && this.version == version;
+		}
+	}
+
+	/**
+	 * Successfully computed data together with the write version and the time
+	 * bucket its computation was started in.
+	 */
+	private static class Computed {
+		private final long version;
+		private final long bucket;
+		private final DashboardData data;
+
+		Computed(Entry entry, DashboardData data) {
+			this.version = entry.version;
+			this.bucket = entry.bucket;
+			this.data = data;
+		}
+
+		/**
+		 * Returns whether the computation was started after the given one. The
+		 * write version never decreases over time, so it takes precedence over
+		 * the time bucket.
+		 */
+		boolean isNewerThan(Computed other) {
+			return version != other.version ? version > other.version : bucket >= other.bucket;
+		}
+	}
+
+	private final Clock clock;
+	private final Map<YearMonth, Entry> entries = new ConcurrentHashMap<>();
+	/** The last computed data in access order, guarded by itself. */
+	private final Map<YearMonth, Computed> lastComputed = new LinkedHashMap<YearMonth, Computed>(16, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<YearMonth, Computed> eldest) {
+			return size() > MAX_FALLBACK_PERIODS;
+		}
+	};
+	private final AtomicLong version = new AtomicLong();
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder fallbacks = new LongAdder();
+
+	/**
+	 * Creates a cache using the system clock for the time buckets.
+	 */
+	public DashboardDataCache() {
+		this(Clock.systemUTC());
+	}
+
+	/**
+	 * Creates a cache using the given clock for the time buckets.
+	 *
+	 * @param clock the clock
+	 */
+	DashboardDataCache(Clock clock) {
+		this.clock = clock;
+	}
+
+	/**
+	 * Returns the dashboard data for the given period, computing it with the given
+	 * loader if there is no valid entry.
+	 *
+	 * @param month  the month (1–12)
+	 * @param year   the year
+	 * @param loader computes the dashboard data on a cache miss
+	 * @return the dashboard data, shared between callers and not to be modified
+	 */
+	public DashboardData get(int month, int year, Supplier<DashboardData> loader) {
+		YearMonth key = YearMonth.of(year, month);
+		long bucket = clock.millis() / BUCKET_MILLIS;
+		Entry created = new Entry(bucket, version.get(), loader);
+		Entry entry = entries.compute(key,
+				(k, existing) -> existing != null && existing.isValid(created.bucket, created.version) ? existing
+						: created);
+		if (entry == created) {
+			misses.increment();
+			entry.task.run();
+		} else {
+			hits.increment();
+		}
+
+		try {
+			DashboardData data = entry.task.get();
+			if (entry == created) {
+				synchronized (lastComputed) {
+					lastComputed.merge(key, new Computed(entry, data),
+							(known, computed) -> computed.isNewerThan(known) ? computed : known);
+				}
+			}
+			return data;
+		} catch (ExecutionException e) {
+			entries.remove(key, entry);
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new IllegalStateException("Unable to compute dashboard data", e.getCause());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while waiting for dashboard data", e);
+		}
+	}
+
+	/**
+	 * Returns the most recently started successful computation of the given
+	 * period, which may be outdated.
+	 *
+	 * @param month the month (1–12)
+	 * @param year  the year
+	 * @return the last computed data, or empty if the period has never been
+	 *         computed
+	 */
+	public Optional<DashboardData> getLastComputed(int month, int year) {
+		Computed computed;
+		synchronized (lastComputed) {
+			computed = lastComputed.get(YearMonth.of(year, month));
+		}
+		Optional<DashboardData> data = Optional.ofNullable(computed).map(c -> c.data);
+		if (data.isPresent()) {
+			fallbacks.increment();
+		}
+		return data;
+	}
+
+	/**
+	 * Invalidates all entries, e.g. after an order has been changed.
+	 */
+	public void invalidate() {
+		version.incrementAndGet();
+		entries.clear();
+	}
+
+	/**
+	 * Returns the number of requests answered from the cache.
+	 *
+	 * @return the hit count
+	 */
+	public long getHitCount() {
+		return hits.sum();
+	}
+
+	/**
+	 * Returns the number of requests that required computing the data.
+	 *
+	 * @return the miss count
+	 */
+	public long getMissCount() {
+		return misses.sum();
+	}
+
+	/**
+	 * Returns the number of requests answered with outdated data through
+	 * {@link #getLastComputed(int, int)}.
+	 *
+	 * @return the fallback count
+	 */
+	public long getFallbackCount() {
+		return fallbacks.sum();
+	}
+
+	/**
+	 * Returns the share of requests answered from the cache.
+	 *
+	 * @return the hit ratio between 0 and 1, or 0 if there have been no requests
+	 */
+	public double getHitRatio() {
+		long hitCount = getHitCount();
+		long total = hitCount + getMissCount();
+		return total == 0 ? 0 : (double) hitCount / total;
+	}
+}
@@ -0,0 +1,60 @@
+package com.vaadin.starter.bakery.backend.service;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Supplier;
+
+/**
+ * A value computed over all orders together with the same value per pickup
+ * location, as produced by one grouped pass.
+ *
+ * @param <T> the type of the value
+ */
+final class LocationBreakdown<T> {
+
+	private final T total;
+	private final Map<Long, T> byLocation;
+
+	/**
+	 * Creates a breakdown.
+	 *
+	 * @param total      the value over all orders
+	 * @param byLocation the value per pickup location id
+	 */
+	LocationBreakdown(T total, Map<Long, T> byLocation) {
+		this.total = total;
+		this.byLocation = Collections.unmodifiableMap(new TreeMap<>(byLocation));
+	}
+
+	/**
+	 * Returns the value over all orders.
+	 *
+	 * @return the total
+	 */
+	T getTotal() {
+		return total;
+	}
+
+	/**
+	 * Returns the value per pickup location id, for the locations that have any
+	 * matching orders.
+	 *
+	 * @return the values ordered by location id
+	 */
+	Map<Long, T> getByLocation() {
+		return byLocation;
+	}
+
+	/**
+	 * Returns the value of one pickup location.
+	 *
+	 * @param locationId the location id
+	 * @param empty      supplies the value of a location without matching orders
+	 * @return the value of the location
+	 */
+	T forLocation(Long locationId, Supplier<T> empty) {
+		T value = byLocation.get(locationId);
+		return value != null ? value : empty.get();
+	}
+}
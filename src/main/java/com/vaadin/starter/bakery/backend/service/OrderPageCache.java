@@ -0,0 +1,259 @@
+package com.vaadin.starter.bakery.backend.service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.vaadin.starter.bakery.backend.data.entity.Order;
+import com.vaadin.starter.bakery.backend.repositories.OrderRepository;
+
+/**
+ * Application-wide cache of the order pages shown in the storefront, shared by
+ * all users.
+ * <p>
+ * Most users look at the same pages of today's and upcoming orders, so these
+ * are read once and shared. Entries are keyed by the due date filter, which
+ * also covers the current day, and by the requested page, including its sort.
+ * Any order write through {@link OrderService} increments the write version and
+ * invalidates all entries.
+ * </p>
+ * <p>
+ * Concurrent requests for the same missing page wait for a single read. At most
+ * {@value #MAX_ENTRIES} pages are kept, evicting the least recently used one.
+ * </p>
+ * <p>
+ * Only the ids of the orders of a page are kept. A hit reads the orders by
+ * primary key, together with their customer and pickup location, so every
+ * request receives its own entities: changes a user makes to the orders it has
+ * been given are never seen by other users, and no entity read in a persistence
+ * context is shared. Reading a few rows by primary key is much cheaper than the
+ * filtered and sorted page read it replaces, and the cached ids cost no copying.
+ * </p>
+ */
+@Component
+public class OrderPageCache {
+
+	/** Maximum number of pages kept. */
+	static final int MAX_ENTRIES = 128;
+
+	/**
+	 * Identifies a page by its due date filter and its offset, size and sort.
+	 */
+	private static final class Key {
+		private final Optional<LocalDate> filterDate;
+		private final Pageable pageable;
+
+		Key(Optional<LocalDate> filterDate, Pageable pageable) {
+			this.filterDate = filterDate;
+			this.pageable = pageable;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) {
+				return true;
+			}
+			if (!(o instanceof Key)) {
+				return false;
+			}
+			Key that = (Key) o;
+			return filterDate.equals(that.filterDate) && pageable.equals(that.pageable);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(filterDate, pageable);
+		}
+	}
+
+	/**
+	 * A read page, with the ids of its orders.
+	 */
+	private static final class Snapshot {
+		private final List<Long> ids;
+		private final Pageable pageable;
+		private final long total;
+
+		Snapshot(Page<Order> page) {
+			List<Long> orderIds = new ArrayList<>(page.getNumberOfElements());
+			page.forEach(order -> orderIds.add(order.getId()));
+			this.ids = Collections.unmodifiableList(orderIds);
+			this.pageable = page.getPageable();
+			this.total = page.getTotalElements();
+		}
+	}
+
+	/**
+	 * A cached (or in progress) read together with the write version it was
+	 * started in.
+	 */
+	private static class CachedPage {
+		private final long version;
+		private final CompletableFuture<Snapshot> snapshot = new CompletableFuture<>();
+
+		CachedPage(long version) {
+			this.version = version;
+		}
+	}
+
+	private final Map<Key, CachedPage> entries = new LinkedHashMap<Key, CachedPage>(16, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Key, CachedPage> eldest) {
+			return size() > MAX_ENTRIES;
+		}
+	};
+	private final AtomicLong version = new AtomicLong();
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+
+	private final OrderRepository orderRepository;
+
+	/**
+	 * Creates a new {@code OrderPageCache}.
+	 *
+	 * @param orderRepository the repository the orders of a cached page are read
+	 *                        from
+	 */
+	@Autowired
+	public OrderPageCache(OrderRepository orderRepository) {
+		this.orderRepository = orderRepository;
+	}
+
+	/**
+	 * Returns a page of orders, reading it with the given loader if there is no
+	 * entry for the current write version.
+	 *
+	 * @param filterDate the due date filter of the page, empty for all orders
+	 * @param pageable   the requested page
+	 * @param loader     reads the page on a cache miss
+	 * @return the page, with orders that are not shared with other callers
+	 */
+	public Page<Order> get(Optional<LocalDate> filterDate, Pageable pageable, Supplier<Page<Order>> loader) {
+		Key key = new Key(filterDate, pageable);
+		CachedPage created = new CachedPage(version.get());
+		CachedPage entry;
+		synchronized (entries) {
+			entry = entries.get(key);
+			if (entry == null || entry.version != created.version) {
+				entries.put(key, created);
+				entry = created;
+			}
+		}
+		if (entry == created) {
+			misses.increment();
+			try {
+				Page<Order> page = loader.get();
+				created.snapshot.complete(new Snapshot(page));
+				return page;
+			} catch (RuntimeException e) {
+				remove(key, created);
+				created.snapshot.completeExceptionally(e);
+				throw e;
+			}
+		}
+
+		hits.increment();
+		try {
+			return read(entry.snapshot.get());
+		} catch (ExecutionException e) {
+			remove(key, entry);
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new IllegalStateException("Unable to read orders", e.getCause());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while waiting for orders", e);
+		}
+	}
+
+	private void remove(Key key, CachedPage entry) {
+		synchronized (entries) {
+			entries.remove(key, entry);
+		}
+	}
+
+	/**
+	 * Reads the orders of a cached page by their ids, in the order of the page.
+	 * Orders deleted since the page was read are left out.
+	 */
+	private Page<Order> read(Snapshot snapshot) {
+		Map<Long, Order> byId = new HashMap<>();
+		if (!snapshot.ids.isEmpty()) {
+			orderRepository.findByIdIn(snapshot.ids).forEach(order -> byId.put(order.getId(), order));
+		}
+		List<Order> orders = new ArrayList<>(snapshot.ids.size());
+		for (Long id : snapshot.ids) {
+			Order order = byId.get(id);
+			if (order != null) {
+				orders.add(order);
+			}
+		}
+		return new PageImpl<>(orders, snapshot.pageable, snapshot.total);
+	}
+
+	/**
+	 * Invalidates all entries, e.g. after an order has been changed.
+	 */
+	public void invalidate() {
+		version.incrementAndGet();
+		synchronized (entries) {
+			entries.clear();
+		}
+	}
+
+	/**
+	 * Returns the number of order writes seen so far.
+	 *
+	 * @return the write version
+	 */
+	public long getVersion() {
+		return version.get();
+	}
+
+	/**
+	 * Returns the number of requests answered from the cache.
+	 *
+	 * @return the hit count
+	 */
+	public long getHitCount() {
+		return hits.sum();
+	}
+
+	/**
+	 * Returns the number of requests that required reading the orders.
+	 *
+	 * @return the miss count
+	 */
+	public long getMissCount() {
+		return misses.sum();
+	}
+
+	/**
+	 * Returns the share of requests answered from the cache.
+	 *
+	 * @return the hit ratio between 0 and 1, or 0 if there have been no requests
+	 */
+	public double getHitRatio() {
+		long hitCount = getHitCount();
+		long total = hitCount + getMissCount();
+		return total == 0 ? 0 : (double) hitCount / total;
+	}
+}
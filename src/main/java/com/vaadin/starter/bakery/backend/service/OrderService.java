@@ -1,30 +1,37 @@
 package com.vaadin.starter.bakery.backend.service;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.time.YearMonth;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.EnumSet;
 import java.util.LinkedHashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 import javax.transaction.Transactional;
 
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Service;
 
 import com.vaadin.starter.bakery.backend.data.DashboardData;
 import com.vaadin.starter.bakery.backend.data.DeliveryStats;
 import com.vaadin.starter.bakery.backend.data.OrderState;
+import com.vaadin.starter.bakery.backend.data.TimeSeries;
 import com.vaadin.starter.bakery.backend.data.entity.Order;
-import com.vaadin.starter.bakery.backend.data.entity.OrderSummary;
+import com.vaadin.starter.bakery.backend.data.entity.OrderDueSummary;
 import com.vaadin.starter.bakery.backend.data.entity.Product;
 import com.vaadin.starter.bakery.backend.data.entity.User;
 import com.vaadin.starter.bakery.backend.repositories.OrderRepository;
@@ -42,17 +49,52 @@ public class OrderService implements CrudService<Order> {
 
 	private final OrderRepository orderRepository;
 
+	private final DashboardAggregates dashboardAggregates;
+
+	private final DashboardDataCache dashboardDataCache;
+
+	private final SalesRollupService salesRollupService;
+
+	private final OrderStateIndex orderStateIndex;
+
+	private final DashboardAdmissionControl dashboardAdmissionControl;
+
+	private final OrderPageCache orderPageCache;
+	private final WriteVersions writeVersions;
+
 	/**
 	 * Creates a new {@code OrderService} with the given repository.
 	 *
-	 * @param orderRepository the repository used for accessing order data
+	 * @param orderRepository           the repository used for accessing order data
+	 * @param dashboardAggregates       the aggregates kept up to date on order writes
+	 * @param dashboardDataCache        the shared dashboard cache invalidated on order writes
+	 * @param salesRollupService        maintains the sales rollup on order writes
+	 * @param orderStateIndex           answers the order counts, kept up to date on order writes
+	 * @param dashboardAdmissionControl limits the concurrent dashboard computations
+	 * @param orderPageCache            the shared storefront page cache invalidated on order writes
+	 * @param writeVersions             incremented on order writes
 	 */
 	@Autowired
-	public OrderService(OrderRepository orderRepository) {
+	public OrderService(OrderRepository orderRepository, DashboardAggregates dashboardAggregates,
+			DashboardDataCache dashboardDataCache, SalesRollupService salesRollupService, OrderStateIndex orderStateIndex,
+			DashboardAdmissionControl dashboardAdmissionControl, OrderPageCache orderPageCache,
+			WriteVersions writeVersions) {
 		super();
 		this.orderRepository = orderRepository;
+		this.dashboardAggregates = dashboardAggregates;
+		this.dashboardDataCache = dashboardDataCache;
+		this.salesRollupService = salesRollupService;
+		this.orderStateIndex = orderStateIndex;
+		this.dashboardAdmissionControl = dashboardAdmissionControl;
+		this.orderPageCache = orderPageCache;
+		this.writeVersions = writeVersions;
 	}
 
+	/**
+	 * Number of upcoming orders fetched at once by {@link #findDueStartingFrom(LocalDate)}.
+	 */
+	private static final int DUE_SUMMARY_SLICE_SIZE = 50;
+
 	/**
 	 * Set of states where orders are not available.
 	 */
@@ -70,13 +112,16 @@ public class OrderService implements CrudService<Order> {
 	@Transactional(rollbackOn = Exception.class)
 	public Order saveOrder(User currentUser, Long id, BiConsumer<User, Order> orderFiller) {
 		Order order;
+		Optional<OrderDueSummary> previous;
 		if (id == null) {
 			order = new Order(currentUser);
+			previous = Optional.empty();
 		} else {
 			order = load(id);
+			previous = orderRepository.findDueSummaryById(id);
 		}
 		orderFiller.accept(currentUser, order);
-		return orderRepository.save(order);
+		return saved(orderRepository.save(order), previous);
 	}
 
 	/**
@@ -87,7 +132,8 @@ public class OrderService implements CrudService<Order> {
 	 */
 	@Transactional(rollbackOn = Exception.class)
 	public Order saveOrder(Order order) {
-		return orderRepository.save(order);
+		Optional<OrderDueSummary> previous = findPrevious(order);
+		return saved(orderRepository.save(order), previous);
 	}
 
 	/**
@@ -100,19 +146,93 @@ public class OrderService implements CrudService<Order> {
 	 */
 	@Transactional(rollbackOn = Exception.class)
 	public Order addComment(User currentUser, Order order, String comment) {
+		Optional<OrderDueSummary> previous = findPrevious(order);
 		order.addHistoryItem(currentUser, comment);
-		return orderRepository.save(order);
+		return saved(orderRepository.save(order), previous);
+	}
+
+	/**
+	 * Saves the given order, e.g. when edited in the storefront.
+	 *
+	 * @param currentUser the user saving the order
+	 * @param entity      the order to save
+	 * @return the saved order
+	 */
+	@Override
+	@Transactional(rollbackOn = Exception.class)
+	public Order save(User currentUser, Order entity) {
+		Optional<OrderDueSummary> previous = findPrevious(entity);
+		return saved(CrudService.super.save(currentUser, entity), previous);
+	}
+
+	/**
+	 * Deletes the given order.
+	 *
+	 * @param currentUser the user deleting the order
+	 * @param entity      the order to delete
+	 */
+	@Override
+	@Transactional(rollbackOn = Exception.class)
+	public void delete(User currentUser, Order entity) {
+		Optional<OrderDueSummary> previous = findPrevious(entity);
+		CrudService.super.delete(currentUser, entity);
+		AfterCommit.run(() -> {
+			dashboardAggregates.orderDeleted(entity.getId());
+			orderStateIndex.orderDeleted(entity.getId());
+			dashboardDataCache.invalidate();
+			orderPageCache.invalidate();
+			previous.ifPresent(p -> salesRollupService.refresh(p.getDueDate(), p.getState()));
+		});
+	}
+
+	/**
+	 * Reads the due date and state of an order as currently stored, before it is
+	 * changed.
+	 *
+	 * @param order the order about to be changed
+	 * @return the stored due date and state, empty for a new order
+	 */
+	private Optional<OrderDueSummary> findPrevious(Order order) {
+		return order == null || order.getId() == null ? Optional.empty()
+				: orderRepository.findDueSummaryById(order.getId());
+	}
+
+	/**
+	 * Updates the derived order data, including the sales rollup of the previous
+	 * and the new due date and state of the order, once the save has been
+	 * committed.
+	 *
+	 * @param order    the saved order
+	 * @param previous the due date and state of the order before the save
+	 * @return the same order, for chaining
+	 */
+	private Order saved(Order order, Optional<OrderDueSummary> previous) {
+		LocalDate dueDate = order.getDueDate();
+		OrderState state = order.getState();
+		AfterCommit.run(() -> {
+			dashboardAggregates.orderSaved(order);
+			orderStateIndex.orderSaved(order);
+			dashboardDataCache.invalidate();
+			orderPageCache.invalidate();
+			previous.filter(p -> !p.getDueDate().equals(dueDate) || p.getState() != state)
+					.ifPresent(p -> salesRollupService.refresh(p.getDueDate(), p.getState()));
+			salesRollupService.refresh(dueDate, state);
+		});
+		return order;
 	}
 
 	/**
 	 * Finds orders matching a filter and/or after a given due date.
+	 * <p>
+	 * Only the requested slice is read; the matching orders are not counted.
+	 * </p>
 	 *
 	 * @param optionalFilter     optional name filter
 	 * @param optionalFilterDate optional due date filter
 	 * @param pageable           paging information
-	 * @return a page of matching orders
+	 * @return a slice of matching orders
 	 */
-	public Page<Order> findAnyMatchingAfterDueDate(Optional<String> optionalFilter,
+	public Slice<Order> findAnyMatchingAfterDueDate(Optional<String> optionalFilter,
 												   Optional<LocalDate> optionalFilterDate,
 												   Pageable pageable) {
 		if (optionalFilter.isPresent() && !optionalFilter.get().isEmpty()) {
@@ -126,23 +246,95 @@ public class OrderService implements CrudService<Order> {
 			if (optionalFilterDate.isPresent()) {
 				return orderRepository.findByDueDateAfter(optionalFilterDate.get(), pageable);
 			} else {
-				return orderRepository.findAll(pageable);
+				return orderRepository.findAllBy(pageable);
 			}
 		}
 	}
 
 	/**
-	 * Finds all orders due today or later.
+	 * Finds the orders that follow the given one in the order of due date, due
+	 * time and id, optionally limited to the orders due after a given date.
+	 * <p>
+	 * Unlike {@link #findAnyMatchingAfterDueDate(Optional, Optional, Pageable)}
+	 * with a page offset, this seeks to the given order in the due date index, so
+	 * reading deep into the list does not skip over all previous orders.
+	 * </p>
 	 *
-	 * @return list of matching order summaries
+	 * @param optionalFilterDate optional date; only orders due after this date are included
+	 * @param previous           the order to continue after
+	 * @param limit              the maximum number of orders
+	 * @return the following orders, ordered by due date, due time and id
 	 */
-	@Transactional
-	public List<OrderSummary> findAnyMatchingStartingToday() {
-		return orderRepository.findByDueDateGreaterThanEqual(LocalDate.now());
+	public List<Order> findAnyFollowing(Optional<LocalDate> optionalFilterDate, OrderDueSummary previous,
+			int limit) {
+		Pageable pageable = PageRequest.of(0, limit);
+		if (optionalFilterDate.isPresent()) {
+			return orderRepository.findFollowingAndDueDateAfter(previous.getDueDate(), previous.getDueTime(),
+					previous.getId(), optionalFilterDate.get(), pageable);
+		} else {
+			return orderRepository.findFollowing(previous.getDueDate(), previous.getDueTime(), previous.getId(),
+					pageable);
+		}
+	}
+
+	/**
+	 * Iterates over the orders due on the given date or later, ordered by due date
+	 * and time.
+	 * <p>
+	 * Only the scheduling fields are loaded, one slice at a time as the iterator
+	 * advances, so callers that stop early do not load all upcoming orders.
+	 * </p>
+	 *
+	 * @param dueDate the first due date to include
+	 * @return iterator over the matching orders
+	 */
+	public Iterator<OrderDueSummary> findDueStartingFrom(LocalDate dueDate) {
+		return new SliceIterator<>(pageable -> orderRepository.findDueSummariesStartingFrom(dueDate, pageable),
+				DUE_SUMMARY_SLICE_SIZE);
+	}
+
+	/**
+	 * Iterates over the orders in the given state due on the given date or later,
+	 * ordered by due date and time.
+	 * <p>
+	 * The state is filtered in the query, so looking for the next order in a state
+	 * does not read the upcoming orders in other states.
+	 * </p>
+	 *
+	 * @param dueDate the first due date to include
+	 * @param state   the state of the orders to include
+	 * @return iterator over the matching orders
+	 */
+	public Iterator<OrderDueSummary> findDueStartingFrom(LocalDate dueDate, OrderState state) {
+		return new SliceIterator<>(
+				pageable -> orderRepository.findDueSummariesByStateStartingFrom(state, dueDate, pageable),
+				DUE_SUMMARY_SLICE_SIZE);
+	}
+
+	/**
+	 * Finds when the most recent order was placed.
+	 *
+	 * @return the timestamp of the latest "Order placed" history item, if any
+	 */
+	public Optional<LocalDateTime> findLatestOrderPlacedTimestamp() {
+		return orderRepository.findLatestOrderPlacedTimestamp();
+	}
+
+	/**
+	 * Finds the earliest due date of any order, from {@link OrderStateIndex}.
+	 *
+	 * @return the earliest due date, or empty if there are no orders
+	 */
+	public Optional<LocalDate> findEarliestDueDate() {
+		return orderStateIndex.getEarliestDueDate();
 	}
 
 	/**
 	 * Counts the number of orders matching optional filters.
+	 * <p>
+	 * Without a name filter, or with an empty one, the count comes from
+	 * {@link OrderStateIndex}.
+	 * </p>
 	 *
 	 * @param optionalFilter     optional name filter
 	 * @param optionalFilterDate optional due date filter
@@ -150,124 +342,158 @@ public class OrderService implements CrudService<Order> {
 	 */
 	public long countAnyMatchingAfterDueDate(Optional<String> optionalFilter,
 											 Optional<LocalDate> optionalFilterDate) {
+		optionalFilter = optionalFilter.filter(filter -> !filter.isEmpty());
 		if (optionalFilter.isPresent() && optionalFilterDate.isPresent()) {
 			return orderRepository.countByCustomerFullNameContainingIgnoreCaseAndDueDateAfter(
 					optionalFilter.get(), optionalFilterDate.get());
 		} else if (optionalFilter.isPresent()) {
 			return orderRepository.countByCustomerFullNameContainingIgnoreCase(optionalFilter.get());
 		} else if (optionalFilterDate.isPresent()) {
-			return orderRepository.countByDueDateAfter(optionalFilterDate.get());
+			return orderStateIndex.countDueAfter(optionalFilterDate.get());
 		} else {
-			return orderRepository.count();
+			return orderStateIndex.count();
 		}
 	}
 
 	/**
 	 * Collects delivery statistics for today and upcoming orders.
+	 * <p>
+	 * All values are counted on one consistent state of {@link OrderStateIndex},
+	 * without querying the database.
+	 * </p>
 	 *
 	 * @return delivery statistics
 	 */
-	private DeliveryStats getDeliveryStats() {
-		DeliveryStats stats = new DeliveryStats();
-		LocalDate today = LocalDate.now();
-		stats.setDueToday((int) orderRepository.countByDueDate(today));
-		stats.setDueTomorrow((int) orderRepository.countByDueDate(today.plusDays(1)));
-		stats.setDeliveredToday((int) orderRepository.countByDueDateAndStateIn(today,
-				Collections.singleton(OrderState.DELIVERED)));
-		stats.setNotAvailableToday((int) orderRepository.countByDueDateAndStateIn(today, notAvailableStates));
-		stats.setNewOrders((int) orderRepository.countByState(OrderState.NEW));
-		return stats;
+	public DeliveryStats getDeliveryStats() {
+		return orderStateIndex.getDeliveryStats(LocalDate.now(), notAvailableStates);
 	}
 
 	/**
-	 * Collects dashboard data for a given month and year.
+	 * Returns dashboard data for a given month and year.
+	 * <p>
+	 * The data is shared between all callers through {@link DashboardDataCache}
+	 * and must not be modified.
+	 * </p>
+	 * <p>
+	 * Computations go through {@link DashboardAdmissionControl}, which bounds
+	 * the CPU taken by concurrent computations. When one is not admitted, or the
+	 * query pool is full, the last data computed for the period is returned
+	 * instead.
+	 * </p>
 	 *
 	 * @param month the month (1–12)
 	 * @param year  the year
 	 * @return dashboard data
+	 * @throws DashboardAdmissionControl.RejectedException if the computation is
+	 *                                                     not admitted and the
+	 *                                                     period has never been
+	 *                                                     computed
 	 */
 	public DashboardData getDashboardData(int month, int year) {
-		DashboardData data = new DashboardData();
-		data.setDeliveryStats(getDeliveryStats());
-		data.setDeliveriesThisMonth(getDeliveriesPerDay(month, year));
-		data.setDeliveriesThisYear(getDeliveriesPerMonth(year));
-
-		Number[][] salesPerMonth = new Number[3][12];
-		data.setSalesPerMonth(salesPerMonth);
-		List<Object[]> sales = orderRepository.sumPerMonthLastThreeYears(OrderState.DELIVERED, year);
-
-		for (Object[] salesData : sales) {
-			int y = year - (int) salesData[0];
-			int m = (int) salesData[1] - 1;
-			if (y == 0 && m == month - 1) {
-				// skip current month as it contains incomplete data
-				continue;
-			}
-			long count = (long) salesData[2];
-			salesPerMonth[y][m] = count;
+		try {
+			return dashboardDataCache.get(month, year,
+					() -> dashboardAdmissionControl.run(() -> computeDashboardData(month, year)));
+		} catch (DashboardAdmissionControl.RejectedException e) {
+			return dashboardDataCache.getLastComputed(month, year).orElseThrow(() -> e);
 		}
+	}
 
-		LinkedHashMap<Product, Integer> productDeliveries = new LinkedHashMap<>();
-		data.setProductDeliveries(productDeliveries);
-		for (Object[] result : orderRepository.countPerProduct(OrderState.DELIVERED, year, month)) {
-			int sum = ((Long) result[0]).intValue();
-			Product p = (Product) result[1];
-			productDeliveries.put(p, sum);
+	/**
+	 * Collects dashboard data for a given month and year, in total and for each
+	 * pickup location.
+	 * <p>
+	 * The parts are computed one after another on the calling thread, without a
+	 * transaction, as they are answered from memory; the scans of large stores
+	 * already run in parallel inside {@link DashboardAggregates}. Each part is
+	 * computed for all pickup locations in one grouped pass.
+	 * </p>
+	 *
+	 * @param month the month (1–12)
+	 * @param year  the year
+	 * @return dashboard data
+	 */
+	private DashboardData computeDashboardData(int month, int year) {
+		LocationBreakdown<DeliveryStats> stats = orderStateIndex.getDeliveryStatsByLocation(LocalDate.now(),
+				notAvailableStates);
+		LocationBreakdown<TimeSeries> perDay = dashboardAggregates.getDeliveriesPerDayByLocation(month, year);
+		LocationBreakdown<TimeSeries> perMonth = dashboardAggregates.getDeliveriesPerMonthByLocation(year);
+		List<LocationBreakdown<TimeSeries>> salesPerYear = new ArrayList<>();
+		for (int y = 0; y < 3; y++) {
+			salesPerYear.add(dashboardAggregates.getSalesPerMonthByLocation(year - y));
 		}
+		LocationBreakdown<LinkedHashMap<Product, Integer>> products = dashboardAggregates
+				.getProductDeliveriesByLocation(month, year);
+		int days = YearMonth.of(year, month).lengthOfMonth();
+
+		// A null location id stands for all locations
+		Function<Long, DashboardData> assemble = locationId -> {
+			DashboardData data = new DashboardData();
+			data.setDeliveryStats(select(stats, locationId, DeliveryStats::new));
+			data.setDeliveriesThisMonth(select(perDay, locationId, () -> new TimeSeries(days)));
+			data.setDeliveriesThisYear(select(perMonth, locationId, () -> new TimeSeries(12)));
+			TimeSeries[] salesPerMonth = new TimeSeries[salesPerYear.size()];
+			for (int y = 0; y < salesPerMonth.length; y++) {
+				salesPerMonth[y] = select(salesPerYear.get(y), locationId, () -> new TimeSeries(12));
+			}
+			// skip current month as it contains incomplete data
+			YearMonth now = YearMonth.now();
+			if (year == now.getYear()) {
+				salesPerMonth[0].clear(now.getMonthValue() - 1);
+			}
+			data.setSalesPerMonth(salesPerMonth);
+			data.setProductDeliveries(select(products, locationId, LinkedHashMap::new));
+			return data;
+		};
 
+		DashboardData data = assemble.apply(null);
+		Map<Long, DashboardData> locationData = new LinkedHashMap<>();
+		for (Long locationId : stats.getByLocation().keySet()) {
+			locationData.put(locationId, assemble.apply(locationId));
+		}
+		data.setLocationData(locationData);
 		return data;
 	}
 
 	/**
-	 * Returns daily deliveries for a given month and year.
+	 * Returns the total of a breakdown, or the value of one location.
 	 *
-	 * @param month the month (1–12)
-	 * @param year  the year
-	 * @return list of deliveries per day (null if no data for that day)
+	 * @param breakdown  the breakdown
+	 * @param locationId the location id, {@code null} for the total
+	 * @param empty      supplies the value of a location without matching orders
+	 * @return the selected value
 	 */
-	private List<Number> getDeliveriesPerDay(int month, int year) {
-		int daysInMonth = YearMonth.of(year, month).lengthOfMonth();
-		return flattenAndReplaceMissingWithNull(daysInMonth,
-				orderRepository.countPerDay(OrderState.DELIVERED, year, month));
+	private static <T> T select(LocationBreakdown<T> breakdown, Long locationId, Supplier<T> empty) {
+		return locationId == null ? breakdown.getTotal() : breakdown.forLocation(locationId, empty);
 	}
 
 	/**
-	 * Returns monthly deliveries for a given year.
+	 * Returns the JPA repository backing this service.
 	 *
-	 * @param year the year
-	 * @return list of deliveries per month (null if no data for that month)
+	 * @return the order repository
 	 */
-	private List<Number> getDeliveriesPerMonth(int year) {
-		return flattenAndReplaceMissingWithNull(12, orderRepository.countPerMonth(OrderState.DELIVERED, year));
+	@Override
+	public JpaRepository<Order, Long> getRepository() {
+		return orderRepository;
 	}
 
 	/**
-	 * Helper method to fill a list with counts, replacing missing values with null.
+	 * Returns the class of the entities of this service.
 	 *
-	 * @param length expected number of elements
-	 * @param list   query result list with [index, value]
-	 * @return list of numbers with missing values replaced by null
+	 * @return the order class
 	 */
-	private List<Number> flattenAndReplaceMissingWithNull(int length, List<Object[]> list) {
-		List<Number> counts = new ArrayList<>();
-		for (int i = 0; i < length; i++) {
-			counts.add(null);
-		}
-
-		for (Object[] result : list) {
-			counts.set((Integer) result[0] - 1, (Number) result[1]);
-		}
-		return counts;
+	@Override
+	public Class<Order> getEntityClass() {
+		return Order.class;
 	}
 
 	/**
-	 * Returns the JPA repository backing this service.
+	 * Returns the write versions incremented on order writes.
 	 *
-	 * @return the order repository
+	 * @return the write versions
 	 */
 	@Override
-	public JpaRepository<Order, Long> getRepository() {
-		return orderRepository;
+	public WriteVersions getWriteVersions() {
+		return writeVersions;
 	}
 
 	/**
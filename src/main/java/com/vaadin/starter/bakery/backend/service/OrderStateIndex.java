@@ -0,0 +1,379 @@
+package com.vaadin.starter.bakery.backend.service;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import com.vaadin.starter.bakery.backend.data.DeliveryStats;
+import com.vaadin.starter.bakery.backend.data.OrderState;
+import com.vaadin.starter.bakery.backend.data.entity.Order;
+import com.vaadin.starter.bakery.backend.repositories.OrderRepository;
+
+/**
+ * In-memory bitmap index of the order ids per state, per due date and per pickup
+ * location, used to answer order counts without querying the database.
+ * <p>
+ * Each state, due date and pickup location has a {@link CompressedBitmap} of
+ * the ids of its orders. Counting the orders of a date in a given state is the
+ * cardinality of the intersection of two bitmaps.
+ * </p>
+ * <p>
+ * Like {@link DashboardAggregates}, the index is loaded from the database when
+ * the application starts (or on first use) and is then kept up to date by
+ * {@link OrderService} whenever an order save or delete commits. As there, the
+ * version of each order is kept and deleted orders are remembered, so that a
+ * late save does not replace a later save or bring back a deleted order.
+ * </p>
+ */
+@Component
+public class OrderStateIndex {
+
+	/** Version registered for a deleted order, newer than any save. */
+	private static final int DELETED = Integer.MAX_VALUE;
+
+	/** The indexed due date, state and pickup location of an order. */
+	private static final class Entry {
+		private final long epochDay;
+		private final OrderState state;
+		private final Long locationId;
+
+		Entry(long epochDay, OrderState state, Long locationId) {
+			this.epochDay = epochDay;
+			this.state = state;
+			this.locationId = locationId;
+		}
+	}
+
+	private final OrderRepository orderRepository;
+
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+	private final Map<OrderState, CompressedBitmap> byState = new EnumMap<>(OrderState.class);
+	private final TreeMap<Long, CompressedBitmap> byDueDate = new TreeMap<>();
+	private final Map<Long, CompressedBitmap> byLocation = new HashMap<>();
+	private final Map<Long, Entry> entries = new HashMap<>();
+	/** Latest version of each loaded order and of each order written since the load. */
+	private final Map<Long, Integer> versions = new HashMap<>();
+	private volatile boolean loaded;
+
+	/**
+	 * Creates the index.
+	 *
+	 * @param orderRepository the repository used for the initial load
+	 */
+	@Autowired
+	public OrderStateIndex(OrderRepository orderRepository) {
+		this.orderRepository = orderRepository;
+	}
+
+	/**
+	 * Loads the index when the application starts.
+	 */
+	@EventListener(ApplicationReadyEvent.class)
+	public void load() {
+		ensureLoaded();
+	}
+
+	/**
+	 * Registers the current due date and state of a saved order. Should be called
+	 * once the change has been committed.
+	 *
+	 * @param order the saved order
+	 */
+	public void orderSaved(Order order) {
+		lock.writeLock().lock();
+		try {
+			if (!loaded || !registerVersion(order.getId(), order.getVersion())) {
+				// The initial load sees the committed order, and a later write has
+				// already been registered
+				return;
+			}
+			remove(order.getId());
+			if (order.getDueDate() != null && order.getState() != null) {
+				add(order.getId(), order.getDueDate().toEpochDay(), order.getState(),
+						order.getPickupLocation() == null ? null : order.getPickupLocation().getId());
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Removes a deleted order from the index. Should be called once the change has
+	 * been committed.
+	 *
+	 * @param orderId the id of the deleted order
+	 */
+	public void orderDeleted(Long orderId) {
+		lock.writeLock().lock();
+		try {
+			if (loaded) {
+				versions.put(orderId, DELETED);
+				remove(orderId);
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Counts all orders.
+	 *
+	 * @return the number of orders
+	 */
+	public long count() {
+		ensureLoaded();
+		lock.readLock().lock();
+		try {
+			return entries.size();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Counts the orders in the given state.
+	 *
+	 * @param state the state
+	 * @return the number of orders in the state
+	 */
+	public long count(OrderState state) {
+		ensureLoaded();
+		lock.readLock().lock();
+		try {
+			return cardinality(byState.get(state));
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Counts the orders due on the given date.
+	 *
+	 * @param dueDate the due date
+	 * @return the number of orders due on the date
+	 */
+	public long count(LocalDate dueDate) {
+		ensureLoaded();
+		lock.readLock().lock();
+		try {
+			return cardinality(byDueDate.get(dueDate.toEpochDay()));
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Counts the orders due on the given date that are in one of the given
+	 * states.
+	 *
+	 * @param dueDate the due date
+	 * @param states  the states
+	 * @return the number of matching orders
+	 */
+	public long count(LocalDate dueDate, Collection<OrderState> states) {
+		ensureLoaded();
+		lock.readLock().lock();
+		try {
+			return countDueOn(dueDate, states);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Collects the delivery statistics of the given day from one consistent state
+	 * of the index.
+	 *
+	 * @param today              the day
+	 * @param notAvailableStates the states where orders are not available
+	 * @return delivery statistics
+	 */
+	public DeliveryStats getDeliveryStats(LocalDate today, Collection<OrderState> notAvailableStates) {
+		ensureLoaded();
+		lock.readLock().lock();
+		try {
+			return getDeliveryStats(today, notAvailableStates, null);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Collects the delivery statistics of the given day, in total and per pickup
+	 * location, from one consistent state of the index.
+	 *
+	 * @param today              the day
+	 * @param notAvailableStates the states where orders are not available
+	 * @return delivery statistics
+	 */
+	LocationBreakdown<DeliveryStats> getDeliveryStatsByLocation(LocalDate today,
+			Collection<OrderState> notAvailableStates) {
+		ensureLoaded();
+		lock.readLock().lock();
+		try {
+			Map<Long, DeliveryStats> stats = new HashMap<>();
+			byLocation.forEach(
+					(locationId, orders) -> stats.put(locationId, getDeliveryStats(today, notAvailableStates, orders)));
+			return new LocationBreakdown<>(getDeliveryStats(today, notAvailableStates, null), stats);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Counts the orders due after the given date.
+	 *
+	 * @param dueDate the date, excluded
+	 * @return the number of orders due after the date
+	 */
+	public long countDueAfter(LocalDate dueDate) {
+		ensureLoaded();
+		lock.readLock().lock();
+		try {
+			long count = 0;
+			for (CompressedBitmap orders : byDueDate.tailMap(dueDate.toEpochDay(), false).values()) {
+				count += orders.cardinality();
+			}
+			return count;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Returns the earliest due date of any order.
+	 *
+	 * @return the earliest due date, or empty if there are no orders
+	 */
+	public Optional<LocalDate> getEarliestDueDate() {
+		ensureLoaded();
+		lock.readLock().lock();
+		try {
+			return byDueDate.isEmpty() ? Optional.empty() : Optional.of(LocalDate.ofEpochDay(byDueDate.firstKey()));
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	private void ensureLoaded() {
+		if (loaded) {
+			return;
+		}
+		lock.writeLock().lock();
+		try {
+			if (!loaded) {
+				for (Object[] row : orderRepository.findStateIndexEntries()) {
+					versions.put((Long) row[0], (Integer) row[4]);
+					if (row[1] != null && row[2] != null) {
+						add((Long) row[0], ((LocalDate) row[1]).toEpochDay(), (OrderState) row[2], (Long) row[3]);
+					}
+				}
+				loaded = true;
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Collects the delivery statistics of the orders in the given set, or of all
+	 * orders if it is {@code null}. The read lock must be held.
+	 */
+	private DeliveryStats getDeliveryStats(LocalDate today, Collection<OrderState> notAvailableStates,
+			CompressedBitmap filter) {
+		CompressedBitmap dueToday = byDueDate.get(today.toEpochDay());
+		if (dueToday != null && filter != null) {
+			dueToday = dueToday.and(filter);
+		}
+		DeliveryStats stats = new DeliveryStats();
+		stats.setDueToday((int) cardinality(dueToday));
+		stats.setDueTomorrow((int) cardinality(byDueDate.get(today.plusDays(1).toEpochDay()), filter));
+		stats.setDeliveredToday((int) countInStates(dueToday, Collections.singleton(OrderState.DELIVERED)));
+		stats.setNotAvailableToday((int) countInStates(dueToday, notAvailableStates));
+		stats.setNewOrders((int) cardinality(byState.get(OrderState.NEW), filter));
+		return stats;
+	}
+
+	private long countDueOn(LocalDate dueDate, Collection<OrderState> states) {
+		return countInStates(byDueDate.get(dueDate.toEpochDay()), states);
+	}
+
+	private long countInStates(CompressedBitmap orders, Collection<OrderState> states) {
+		if (orders == null) {
+			return 0;
+		}
+		// An order has a single state, so the intersections do not overlap
+		long count = 0;
+		for (OrderState state : states) {
+			CompressedBitmap inState = byState.get(state);
+			if (inState != null) {
+				count += orders.andCardinality(inState);
+			}
+		}
+		return count;
+	}
+
+	private static long cardinality(CompressedBitmap orders) {
+		return orders == null ? 0 : orders.cardinality();
+	}
+
+	private static long cardinality(CompressedBitmap orders, CompressedBitmap filter) {
+		if (orders == null) {
+			return 0;
+		}
+		return filter == null ? orders.cardinality() : orders.andCardinality(filter);
+	}
+
+	/**
+	 * Registers the version of a written order, unless a later version or a
+	 * delete has already been registered. The write lock must be held.
+	 *
+	 * @return {@code true} if the write is the latest one and is to be applied
+	 */
+	private boolean registerVersion(Long orderId, int version) {
+		Integer known = versions.get(orderId);
+		if (known != null && known > version) {
+			return false;
+		}
+		versions.put(orderId, version);
+		return true;
+	}
+
+	private void add(long orderId, long epochDay, OrderState state, Long locationId) {
+		entries.put(orderId, new Entry(epochDay, state, locationId));
+		byState.computeIfAbsent(state, s -> new CompressedBitmap()).add(orderId);
+		byDueDate.computeIfAbsent(epochDay, d -> new CompressedBitmap()).add(orderId);
+		if (locationId != null) {
+			byLocation.computeIfAbsent(locationId, l -> new CompressedBitmap()).add(orderId);
+		}
+	}
+
+	private void remove(Long orderId) {
+		Entry entry = entries.remove(orderId);
+		if (entry == null) {
+			return;
+		}
+		byState.get(entry.state).remove(orderId);
+		CompressedBitmap orders = byDueDate.get(entry.epochDay);
+		orders.remove(orderId);
+		if (orders.cardinality() == 0) {
+			byDueDate.remove(entry.epochDay);
+		}
+		if (entry.locationId != null) {
+			byLocation.get(entry.locationId).remove(orderId);
+		}
+	}
+}
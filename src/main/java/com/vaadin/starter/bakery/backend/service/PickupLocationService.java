@@ -24,14 +24,18 @@ public class PickupLocationService implements FilterableCrudService<PickupLocati
 
 	private final PickupLocationRepository pickupLocationRepository;
 
+	private final WriteVersions writeVersions;
+
 	/**
 	 * Creates a new {@code PickupLocationService}.
 	 *
 	 * @param pickupLocationRepository the repository for pickup locations
+	 * @param writeVersions            incremented on pickup location writes
 	 */
 	@Autowired
-	public PickupLocationService(PickupLocationRepository pickupLocationRepository) {
+	public PickupLocationService(PickupLocationRepository pickupLocationRepository, WriteVersions writeVersions) {
 		this.pickupLocationRepository = pickupLocationRepository;
+		this.writeVersions = writeVersions;
 	}
 
 	/**
@@ -95,6 +99,26 @@ public class PickupLocationService implements FilterableCrudService<PickupLocati
 		return pickupLocationRepository;
 	}
 
+	/**
+	 * Returns the class of the entities of this service.
+	 *
+	 * @return the pickup location class
+	 */
+	@Override
+	public Class<PickupLocation> getEntityClass() {
+		return PickupLocation.class;
+	}
+
+	/**
+	 * Returns the write versions incremented on pickup location writes.
+	 *
+	 * @return the write versions
+	 */
+	@Override
+	public WriteVersions getWriteVersions() {
+		return writeVersions;
+	}
+
 	/**
 	 * Creates a new pickup location instance.
 	 *
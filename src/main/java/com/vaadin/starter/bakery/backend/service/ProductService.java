@@ -35,15 +35,26 @@ import com.vaadin.starter.bakery.backend.repositories.ProductRepository;
 public class ProductService implements FilterableCrudService<Product> {
 
 	private final ProductRepository productRepository;
+	private final DashboardAggregates dashboardAggregates;
+	private final DashboardDataCache dashboardDataCache;
+	private final WriteVersions writeVersions;
 
 	/**
 	 * Constructs a new {@link ProductService} with the provided repository.
 	 *
-	 * @param productRepository the repository used to access {@link Product} data
+	 * @param productRepository   the repository used to access {@link Product} data
+	 * @param dashboardAggregates the dashboard store updated when a product is saved
+	 * @param dashboardDataCache  the dashboard cache invalidated when a product is
+	 *                            saved or deleted
+	 * @param writeVersions       incremented on product writes
 	 */
 	@Autowired
-	public ProductService(ProductRepository productRepository) {
+	public ProductService(ProductRepository productRepository, DashboardAggregates dashboardAggregates,
+			DashboardDataCache dashboardDataCache, WriteVersions writeVersions) {
 		this.productRepository = productRepository;
+		this.dashboardAggregates = dashboardAggregates;
+		this.dashboardDataCache = dashboardDataCache;
+		this.writeVersions = writeVersions;
 	}
 
 	/**
@@ -100,6 +111,26 @@ public class ProductService implements FilterableCrudService<Product> {
 		return productRepository;
 	}
 
+	/**
+	 * Returns the class of the entities of this service.
+	 *
+	 * @return the product class
+	 */
+	@Override
+	public Class<Product> getEntityClass() {
+		return Product.class;
+	}
+
+	/**
+	 * Returns the write versions incremented on product writes.
+	 *
+	 * @return the write versions
+	 */
+	@Override
+	public WriteVersions getWriteVersions() {
+		return writeVersions;
+	}
+
 	/**
 	 * Creates a new instance of {@link Product}. This method can be extended to
 	 * initialize default values if necessary.
@@ -115,7 +146,8 @@ public class ProductService implements FilterableCrudService<Product> {
 	/**
 	 * Saves a {@link Product} entity. If a product with the same name already
 	 * exists, a {@link UserFriendlyDataException} is thrown with a descriptive
-	 * message for the end-user.
+	 * message for the end-user. The saved product replaces the one shown on the
+	 * dashboard once the save has been committed.
 	 *
 	 * @param currentUser the user saving the product (not currently used)
 	 * @param entity      the product entity to save
@@ -125,12 +157,30 @@ public class ProductService implements FilterableCrudService<Product> {
 	@Override
 	public Product save(User currentUser, Product entity) {
 		try {
-			return FilterableCrudService.super.save(currentUser, entity);
+			Product saved = FilterableCrudService.super.save(currentUser, entity);
+			AfterCommit.run(() -> {
+				dashboardAggregates.productSaved(saved);
+				dashboardDataCache.invalidate();
+			});
+			return saved;
 		} catch (DataIntegrityViolationException e) {
 			throw new UserFriendlyDataException(
 					"There is already a product with that name. Please select a unique name for the product.");
 		}
 	}
 
+	/**
+	 * Deletes a {@link Product} entity. The dashboard data is computed again once
+	 * the delete has been committed.
+	 *
+	 * @param currentUser the user deleting the product (not currently used)
+	 * @param entity      the product entity to delete
+	 */
+	@Override
+	public void delete(User currentUser, Product entity) {
+		FilterableCrudService.super.delete(currentUser, entity);
+		AfterCommit.run(dashboardDataCache::invalidate);
+	}
+
 }
 
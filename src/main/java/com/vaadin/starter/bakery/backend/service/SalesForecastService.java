@@ -0,0 +1,214 @@
+package com.vaadin.starter.bakery.backend.service;
+
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import com.vaadin.starter.bakery.app.HasLogger;
+import com.vaadin.starter.bakery.backend.data.OrderState;
+import com.vaadin.starter.bakery.backend.data.SalesForecast;
+import com.vaadin.starter.bakery.backend.data.SalesForecast.ProductForecast;
+import com.vaadin.starter.bakery.backend.data.entity.Product;
+import com.vaadin.starter.bakery.backend.repositories.SalesRollupRepository;
+
+/**
+ * Forecasts the delivered sales per product for the next month and the next
+ * quarter.
+ * <p>
+ * The forecast is recomputed in the background every
+ * {@code bakery.forecast.interval-minutes} on a dedicated thread, from the
+ * monthly sales of the last {@value #HISTORY_MONTHS} complete months read from
+ * the {@link SalesRollupRepository sales rollup}. The latest result is kept in
+ * memory, so showing it never runs the computation.
+ * </p>
+ * <p>
+ * Each month is forecast as the average sales of the same month in the previous
+ * years, scaled by the trend of the last {@value #TREND_MONTHS} complete months
+ * compared to the same months a year earlier.
+ * </p>
+ */
+@Service
+public class SalesForecastService implements HasLogger {
+
+	/** Number of complete months the forecast is based on. */
+	static final int HISTORY_MONTHS = 36;
+
+	/** Number of recent months the trend is computed from. */
+	static final int TREND_MONTHS = 3;
+
+	/** Bounds of the trend factor, so that a single odd month does not dominate. */
+	static final double MIN_TREND = 0.5;
+	static final double MAX_TREND = 2;
+
+	private final SalesRollupRepository salesRollupRepository;
+	private final Clock clock;
+	private final long intervalMinutes;
+	private final ScheduledExecutorService executor;
+
+	private volatile SalesForecast latest;
+
+	/**
+	 * Creates the service.
+	 *
+	 * @param salesRollupRepository the monthly sales source
+	 * @param intervalMinutes       the time between two computations
+	 */
+	@Autowired
+	public SalesForecastService(SalesRollupRepository salesRollupRepository,
+			@Value("${bakery.forecast.interval-minutes:60}") long intervalMinutes) {
+		this(salesRollupRepository, Clock.systemDefaultZone(), intervalMinutes);
+	}
+
+	SalesForecastService(SalesRollupRepository salesRollupRepository, Clock clock, long intervalMinutes) {
+		this.salesRollupRepository = salesRollupRepository;
+		this.clock = clock;
+		this.intervalMinutes = intervalMinutes;
+		executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "sales-forecast");
+			thread.setDaemon(true);
+			thread.setPriority(Thread.MIN_PRIORITY);
+			return thread;
+		});
+	}
+
+	/**
+	 * Starts computing the forecast periodically once the application has started
+	 * and the sales rollup has been backfilled.
+	 */
+	@EventListener(ApplicationReadyEvent.class)
+	public void start() {
+		executor.scheduleWithFixedDelay(this::refreshSafely, 0, intervalMinutes, TimeUnit.MINUTES);
+	}
+
+	/**
+	 * Returns the latest computed forecast.
+	 *
+	 * @return the forecast, or empty if it has not been computed yet
+	 */
+	public Optional<SalesForecast> getLatest() {
+		return Optional.ofNullable(latest);
+	}
+
+	/**
+	 * Computes the forecast from the current sales and makes it the latest one.
+	 *
+	 * @return the new forecast
+	 */
+	public SalesForecast refresh() {
+		long start = System.currentTimeMillis();
+		YearMonth currentMonth = YearMonth.now(clock);
+		YearMonth firstMonth = currentMonth.minusMonths(HISTORY_MONTHS);
+
+		Map<Product, long[]> history = new HashMap<>();
+		for (Object[] row : salesRollupRepository.sumPerProductAndMonthBetween(OrderState.DELIVERED,
+				firstMonth.atDay(1), currentMonth.atDay(1))) {
+			YearMonth month = YearMonth.of((Integer) row[1], (Integer) row[2]);
+			int index = (int) firstMonth.until(month, ChronoUnit.MONTHS);
+			history.computeIfAbsent((Product) row[0], p -> new long[HISTORY_MONTHS])[index] += ((Number) row[3])
+					.longValue();
+		}
+
+		SalesForecast forecast = forecast(currentMonth, history, LocalDateTime.now(clock));
+		latest = forecast;
+		getLogger().info("Forecast the sales of {} products in {} ms", history.size(),
+				System.currentTimeMillis() - start);
+		return forecast;
+	}
+
+	/**
+	 * Stops the background computation.
+	 */
+	@PreDestroy
+	public void shutdown() {
+		executor.shutdownNow();
+	}
+
+	private void refreshSafely() {
+		try {
+			refresh();
+		} catch (RuntimeException e) {
+			// Keep the previous forecast and try again at the next interval
+			getLogger().warn("Sales forecast failed", e);
+		}
+	}
+
+	/**
+	 * Forecasts the sales of the month after the current one and of the quarter
+	 * starting with it.
+	 *
+	 * @param currentMonth the current, incomplete month
+	 * @param history      the sales per product of the {@value #HISTORY_MONTHS}
+	 *                     complete months before the current one, oldest first
+	 * @param computedAt   the computation time
+	 * @return the forecast
+	 */
+	static SalesForecast forecast(YearMonth currentMonth, Map<Product, long[]> history, LocalDateTime computedAt) {
+		List<ProductForecast> products = new ArrayList<>();
+		history.forEach((product, sales) -> {
+			double trend = trend(sales);
+			long nextMonth = Math.round(seasonalAverage(sales, 1) * trend);
+			long nextQuarter = nextMonth + Math.round(seasonalAverage(sales, 2) * trend)
+					+ Math.round(seasonalAverage(sales, 3) * trend);
+			products.add(new ProductForecast(product, nextMonth, nextQuarter));
+		});
+		products.sort(Comparator.comparing(forecast -> forecast.getProduct().getId(),
+				Comparator.nullsLast(Comparator.naturalOrder())));
+		return new SalesForecast(currentMonth.plusMonths(1), computedAt, products);
+	}
+
+	/**
+	 * Averages the sales of the same calendar month as the given future month in
+	 * the previous years, ignoring the years before the product was first sold.
+	 *
+	 * @param sales       the monthly sales, oldest first, the last one being the
+	 *                    month before the current one
+	 * @param monthsAhead the future month, 1 being the month after the current one
+	 */
+	private static double seasonalAverage(long[] sales, int monthsAhead) {
+		int firstSold = 0;
+		while (firstSold < sales.length && sales[firstSold] == 0) {
+			firstSold++;
+		}
+		long sum = 0;
+		int years = 0;
+		// The current month is at index sales.length
+		for (int index = sales.length + monthsAhead - 12; index >= firstSold; index -= 12) {
+			if (index < sales.length) {
+				sum += sales[index];
+				years++;
+			}
+		}
+		return years == 0 ? 0 : (double) sum / years;
+	}
+
+	private static double trend(long[] sales) {
+		long recent = 0;
+		long yearBefore = 0;
+		for (int i = 1; i <= TREND_MONTHS; i++) {
+			recent += sales[sales.length - i];
+			yearBefore += sales[sales.length - 12 - i];
+		}
+		if (yearBefore == 0) {
+			return 1;
+		}
+		return Math.max(MIN_TREND, Math.min(MAX_TREND, (double) recent / yearBefore));
+	}
+}
@@ -0,0 +1,290 @@
+package com.vaadin.starter.bakery.backend.service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionOperations;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.vaadin.starter.bakery.app.HasLogger;
+import com.vaadin.starter.bakery.backend.data.OrderState;
+import com.vaadin.starter.bakery.backend.data.entity.OrderItem;
+import com.vaadin.starter.bakery.backend.data.entity.SalesRollup;
+import com.vaadin.starter.bakery.backend.repositories.OrderRepository;
+import com.vaadin.starter.bakery.backend.repositories.ProductRepository;
+import com.vaadin.starter.bakery.backend.repositories.SalesRollupRepository;
+
+/**
+ * Maintains the {@link SalesRollup} table read by {@link SalesForecastService}.
+ * <p>
+ * {@link OrderService} asks for a refresh of the due date and state an order had
+ * before and after each write, once the write has been committed. The refreshes
+ * run on a dedicated thread, each in its own transaction, so that the order
+ * writes neither wait for them nor hold a second connection. A refresh that is
+ * already waiting covers later requests for the same rows.
+ * </p>
+ * <p>
+ * The table is reconciled with the existing orders at startup, e.g. after the
+ * demo data has been generated, and then every
+ * {@code bakery.sales-rollup.reconcile-minutes}. This repairs the rows a failed
+ * refresh, or a write from another application instance, has left outdated.
+ * The reconciliation compares the sums of the orders with the stored rows and
+ * only rewrites the due dates and states that differ, in small transactions.
+ * It runs on the same thread as the refreshes, so no table lock is needed: a
+ * refresh asked for while it runs is applied after it.
+ * </p>
+ * <p>
+ * Revenue is summed from the prices stored on each {@link OrderItem}, so the
+ * products are not joined. Items saved before the prices were stored get them
+ * filled in from the current product prices at startup.
+ * </p>
+ */
+@Service
+public class SalesRollupService implements HasLogger {
+
+	/** Number of due dates and states rewritten in one reconciliation transaction. */
+	private static final int RECONCILE_BATCH_SIZE = 100;
+
+	/** The rows of one due date and state. */
+	private static final class RowsKey {
+		private final LocalDate dueDate;
+		private final OrderState state;
+
+		RowsKey(LocalDate dueDate, OrderState state) {
+			this.dueDate = dueDate;
+			this.state = state;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (!(o instanceof RowsKey)) {
+				return false;
+			}
+			RowsKey other = (RowsKey) o;
+			return dueDate.equals(other.dueDate) && state == other.state;
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(dueDate, state);
+		}
+	}
+
+	private final SalesRollupRepository salesRollupRepository;
+
+	private final OrderRepository orderRepository;
+
+	private final ProductRepository productRepository;
+
+	private final TransactionOperations transactionOperations;
+
+	private final long reconcileMinutes;
+
+	/** Runs all writes to the table, one after another. */
+	private final ScheduledExecutorService executor;
+
+	/** The rows with a refresh waiting to run. */
+	private final Set<RowsKey> pending = ConcurrentHashMap.newKeySet();
+
+	@Autowired
+	public SalesRollupService(SalesRollupRepository salesRollupRepository, OrderRepository orderRepository,
+			ProductRepository productRepository, PlatformTransactionManager transactionManager,
+			@Value("${bakery.sales-rollup.reconcile-minutes:60}") long reconcileMinutes) {
+		this(salesRollupRepository, orderRepository, productRepository, new TransactionTemplate(transactionManager),
+				reconcileMinutes);
+	}
+
+	SalesRollupService(SalesRollupRepository salesRollupRepository, OrderRepository orderRepository,
+			ProductRepository productRepository, TransactionOperations transactionOperations,
+			long reconcileMinutes) {
+		this.salesRollupRepository = salesRollupRepository;
+		this.orderRepository = orderRepository;
+		this.productRepository = productRepository;
+		this.transactionOperations = transactionOperations;
+		this.reconcileMinutes = reconcileMinutes;
+		executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "sales-rollup");
+			thread.setDaemon(true);
+			thread.setPriority(Thread.MIN_PRIORITY);
+			return thread;
+		});
+	}
+
+	/**
+	 * Asks for the rows of one due date and state to be recomputed from the
+	 * committed orders. Returns at once; the refresh runs on the rollup thread.
+	 * <p>
+	 * A failed refresh is logged and left to the next reconciliation, as the
+	 * order write it follows has already been committed.
+	 * </p>
+	 *
+	 * @param dueDate the due date
+	 * @param state   the order state
+	 */
+	public void refresh(LocalDate dueDate, OrderState state) {
+		RowsKey key = new RowsKey(dueDate, state);
+		if (pending.add(key)) {
+			executor.execute(() -> {
+				// Removed first, so that a write committed from now on asks again
+				pending.remove(key);
+				refreshNow(key);
+			});
+		}
+	}
+
+	/**
+	 * Waits until the refreshes asked for so far have run.
+	 */
+	void awaitRefreshes() {
+		try {
+			executor.submit(() -> {
+			}).get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException e) {
+			throw new IllegalStateException(e.getCause());
+		}
+	}
+
+	private void refreshNow(RowsKey key) {
+		try {
+			transactionOperations.executeWithoutResult(status -> {
+				salesRollupRepository.deleteByDueDateAndState(key.dueDate, key.state);
+				salesRollupRepository
+						.saveAll(toRollups(salesRollupRepository.sumOrderItems(key.dueDate, key.state)));
+			});
+		} catch (RuntimeException e) {
+			getLogger().warn("Unable to refresh the sales rollup of {} {}, it will be reconciled later",
+					key.dueDate, key.state, e);
+		}
+	}
+
+	/**
+	 * Brings the table in line with the orders, rewriting only the due dates and
+	 * states whose rows differ. Must run on the rollup thread.
+	 */
+	private void reconcile() {
+		long start = System.currentTimeMillis();
+		Map<RowsKey, Map<Long, List<Long>>> expected = group(salesRollupRepository.sumOrderItems());
+		Map<RowsKey, Map<Long, List<Long>>> stored = group(salesRollupRepository.findRows());
+
+		Set<RowsKey> outdated = new HashSet<>(stored.keySet());
+		outdated.addAll(expected.keySet());
+		outdated.removeIf(key -> Objects.equals(expected.get(key), stored.get(key)));
+
+		List<RowsKey> keys = new ArrayList<>(outdated);
+		for (int from = 0; from < keys.size(); from += RECONCILE_BATCH_SIZE) {
+			List<RowsKey> batch = keys.subList(from, Math.min(keys.size(), from + RECONCILE_BATCH_SIZE));
+			transactionOperations.executeWithoutResult(status -> {
+				for (RowsKey key : batch) {
+					salesRollupRepository.deleteByDueDateAndState(key.dueDate, key.state);
+					salesRollupRepository.saveAll(toRollups(key, expected.getOrDefault(key, new HashMap<>())));
+				}
+			});
+		}
+		getLogger().info("Reconciled the sales rollup, rewrote {} of {} due dates and states in {} ms",
+				outdated.size(), expected.size(), System.currentTimeMillis() - start);
+	}
+
+	/**
+	 * Fills in the missing order item prices, then reconciles the table with the
+	 * existing orders when the application starts and schedules the periodic
+	 * reconciliation. Runs before the other startup listeners, so that they see
+	 * the reconciled table.
+	 */
+	@EventListener(ApplicationReadyEvent.class)
+	@Order(Ordered.HIGHEST_PRECEDENCE)
+	public void backfill() {
+		transactionOperations.executeWithoutResult(status -> {
+			int unitPrices = orderRepository.fillMissingItemUnitPrices();
+			int totalPrices = orderRepository.fillMissingItemTotalPrices();
+			if (unitPrices > 0 || totalPrices > 0) {
+				getLogger().info("Filled in the prices of {} order items", Math.max(unitPrices, totalPrices));
+			}
+		});
+		reconcileNow();
+		executor.scheduleWithFixedDelay(this::reconcileSafely, reconcileMinutes, reconcileMinutes,
+				TimeUnit.MINUTES);
+	}
+
+	/**
+	 * Reconciles the table on the rollup thread and waits for it.
+	 */
+	void reconcileNow() {
+		try {
+			executor.submit(this::reconcile).get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException e) {
+			getLogger().warn("Unable to reconcile the sales rollup", e.getCause());
+		}
+	}
+
+	/**
+	 * Stops the rollup thread.
+	 */
+	@PreDestroy
+	public void shutdown() {
+		executor.shutdownNow();
+	}
+
+	private void reconcileSafely() {
+		try {
+			reconcile();
+		} catch (RuntimeException e) {
+			getLogger().warn("Unable to reconcile the sales rollup", e);
+		}
+	}
+
+	/**
+	 * Groups rows of due date, state, product id, quantity and revenue by due date
+	 * and state, as the quantity and revenue per product id.
+	 */
+	private static Map<RowsKey, Map<Long, List<Long>>> group(List<Object[]> rows) {
+		Map<RowsKey, Map<Long, List<Long>>> grouped = new HashMap<>();
+		for (Object[] row : rows) {
+			grouped.computeIfAbsent(new RowsKey((LocalDate) row[0], (OrderState) row[1]), key -> new HashMap<>())
+					.put((Long) row[2], Arrays.asList(((Number) row[3]).longValue(),
+							row[4] == null ? 0 : ((Number) row[4]).longValue()));
+		}
+		return grouped;
+	}
+
+	private List<SalesRollup> toRollups(RowsKey key, Map<Long, List<Long>> sums) {
+		return sums.entrySet().stream()
+				.map(sum -> new SalesRollup(key.dueDate, productRepository.getReferenceById(sum.getKey()), key.state,
+						sum.getValue().get(0), sum.getValue().get(1)))
+				.collect(Collectors.toList());
+	}
+
+	private List<SalesRollup> toRollups(List<Object[]> sums) {
+		return sums.stream()
+				.map(row -> new SalesRollup((LocalDate) row[0], productRepository.getReferenceById((Long) row[2]),
+						(OrderState) row[1], ((Number) row[3]).longValue(),
+						row[4] == null ? 0 : ((Number) row[4]).longValue()))
+				.collect(Collectors.toList());
+	}
+}
@@ -0,0 +1,54 @@
+package com.vaadin.starter.bakery.backend.service;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.Function;
+
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+
+/**
+ * Iterates over the results of a sliced query, fetching the next slice only when
+ * the current one has been consumed.
+ * <p>
+ * A caller that stops early only pays for the slices it has read.
+ * </p>
+ *
+ * @param <T> the type of the results
+ */
+class SliceIterator<T> implements Iterator<T> {
+
+	private final Function<Pageable, Slice<T>> query;
+	private Slice<T> slice;
+	private Iterator<T> current;
+
+	/**
+	 * Creates an iterator running the given query with slices of the given size.
+	 *
+	 * @param query     runs the query for a slice
+	 * @param sliceSize the number of results fetched at once
+	 */
+	SliceIterator(Function<Pageable, Slice<T>> query, int sliceSize) {
+		this.query = query;
+		this.slice = query.apply(PageRequest.of(0, sliceSize));
+		this.current = slice.iterator();
+	}
+
+	@Override
+	public boolean hasNext() {
+		while (!current.hasNext() && slice.hasNext()) {
+			slice = query.apply(slice.nextPageable());
+			current = slice.iterator();
+		}
+		return current.hasNext();
+	}
+
+	@Override
+	public T next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		return current.next();
+	}
+}
@@ -44,14 +44,18 @@ public class UserService implements FilterableCrudService<User> {
 
 	private final UserRepository userRepository;
 
+	private final WriteVersions writeVersions;
+
 	/**
 	 * Constructs a new {@code UserService} with the provided repository.
 	 *
 	 * @param userRepository the repository used to access {@link User} data
+	 * @param writeVersions  incremented on user writes
 	 */
 	@Autowired
-	public UserService(UserRepository userRepository) {
+	public UserService(UserRepository userRepository, WriteVersions writeVersions) {
 		this.userRepository = userRepository;
+		this.writeVersions = writeVersions;
 	}
 
 	/**
@@ -101,6 +105,26 @@ public class UserService implements FilterableCrudService<User> {
 		return userRepository;
 	}
 
+	/**
+	 * Returns the class of the entities of this service.
+	 *
+	 * @return the user class
+	 */
+	@Override
+	public Class<User> getEntityClass() {
+		return User.class;
+	}
+
+	/**
+	 * Returns the write versions incremented on user writes.
+	 *
+	 * @return the write versions
+	 */
+	@Override
+	public WriteVersions getWriteVersions() {
+		return writeVersions;
+	}
+
 	/**
 	 * Retrieves a page of all users without filtering.
 	 *
@@ -126,7 +150,7 @@ public class UserService implements FilterableCrudService<User> {
 	@Override
 	public User save(User currentUser, User entity) {
 		throwIfUserLocked(entity);
-		return getRepository().saveAndFlush(entity);
+		return FilterableCrudService.super.save(currentUser, entity);
 	}
 
 	/**
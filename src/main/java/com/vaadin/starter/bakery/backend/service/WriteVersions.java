@@ -0,0 +1,43 @@
+package com.vaadin.starter.bakery.backend.service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * Write versions of the entities managed through {@link CrudService}, keyed by
+ * the entity class.
+ * <p>
+ * A version is incremented once a save or delete has been committed, so that
+ * caches kept by the users can tell whether entities they have read may have
+ * been changed by another user in the meantime.
+ * </p>
+ */
+@Component
+public class WriteVersions {
+
+	private final Map<Class<?>, AtomicLong> versions = new ConcurrentHashMap<>();
+
+	/**
+	 * Returns the number of committed writes of the entities of the given class.
+	 *
+	 * @param entityClass the class of the entities
+	 * @return the write version
+	 */
+	public long get(Class<?> entityClass) {
+		AtomicLong version = versions.get(entityClass);
+		return version == null ? 0 : version.get();
+	}
+
+	/**
+	 * Increments the write version of the given entity class after the current
+	 * transaction has committed, or immediately if there is no transaction.
+	 *
+	 * @param entityClass the class of the written entities
+	 */
+	public void written(Class<?> entityClass) {
+		AfterCommit.run(() -> versions.computeIfAbsent(entityClass, key -> new AtomicLong()).incrementAndGet());
+	}
+}
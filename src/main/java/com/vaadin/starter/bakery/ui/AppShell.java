@@ -1,6 +1,7 @@
 package com.vaadin.starter.bakery.ui;
 
 import com.vaadin.flow.component.page.AppShellConfigurator;
+import com.vaadin.flow.component.page.Push;
 import com.vaadin.flow.component.page.Viewport;
 import com.vaadin.flow.server.PWA;
 import com.vaadin.flow.theme.Theme;
@@ -15,12 +16,14 @@ import static com.vaadin.starter.bakery.ui.utils.BakeryConst.VIEWPORT;
  * </p>
  * <ul>
  *     <li>{@link Viewport} sets the viewport meta tag for responsive design.</li>
+ *     <li>{@link Push} lets views update the browser from background threads.</li>
  *     <li>{@link Theme} sets the global theme for the application.</li>
  *     <li>{@link PWA} configures Progressive Web App settings including name, start path, colors,
  *     and offline resources.</li>
  * </ul>
  */
 @Viewport(VIEWPORT)
+@Push
 @Theme("bakery")
 @PWA(
 		name = "Bakery App Starter",
@@ -102,7 +102,7 @@ public abstract class AbstractBakeryCrudView<E extends AbstractEntity> extends V
         setupGrid(grid);
         Crud.addEditColumn(grid);
 
-        entityPresenter = new CrudEntityPresenter<>(service, currentUser, this);
+        entityPresenter = new CrudEntityPresenter<>(service, currentUser, this, dataProvider);
 
         SearchBar searchBar = new SearchBar();
         searchBar.setActionText("New " + entityName);
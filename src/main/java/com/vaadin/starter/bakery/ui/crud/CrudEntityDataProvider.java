@@ -1,6 +1,10 @@
 package com.vaadin.starter.bakery.ui.crud;
 
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
 
 import com.vaadin.starter.bakery.backend.data.entity.AbstractEntity;
 import com.vaadin.starter.bakery.backend.service.FilterableCrudService;
@@ -19,15 +23,65 @@ import com.vaadin.flow.data.provider.QuerySortOrderBuilder;
  * This implementation supports filtering, paging, and sorting,
  * and is designed to be used with Vaadin {@code Grid} and {@code Crud} components.
  * </p>
+ * <p>
+ * Each provider keeps the last {@value #CACHE_SIZE} fetched pages and counts,
+ * so that scrolling back or reopening a combo box does not query the service
+ * again. The cache belongs to the provider, and thus to a single UI, and is
+ * cleared by {@link #refreshAll()}, {@link #refreshItem(AbstractEntity)} and
+ * {@link #invalidate()}. It is also cleared whenever the
+ * {@linkplain FilterableCrudService#getWriteVersion() write version} of the
+ * service has changed, so that entities saved or deleted in other UIs are seen
+ * on the next request.
+ * </p>
  *
  * @param <T> the entity type managed by this data provider
  */
 public class CrudEntityDataProvider<T extends AbstractEntity>
         extends FilterablePageableDataProvider<T, String> {
 
+    /** Maximum number of pages and of counts kept in the cache. */
+    static final int CACHE_SIZE = 32;
+
+    /**
+     * Identifies a fetched page by its filter and by the offset, size and sort
+     * of the request.
+     */
+    private static final class PageKey {
+        private final Optional<String> filter;
+        private final Pageable pageable;
+
+        PageKey(Optional<String> filter, Pageable pageable) {
+            this.filter = filter;
+            this.pageable = pageable;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof PageKey)) {
+                return false;
+            }
+            PageKey that = (PageKey) o;
+            return filter.equals(that.filter) && pageable.equals(that.pageable);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(filter, pageable);
+        }
+    }
+
     private final FilterableCrudService<T> crudService;
     private List<QuerySortOrder> defaultSortOrders;
 
+    private final Map<PageKey, Page<T>> pages = createCache();
+    private final Map<Optional<String>, Long> counts = createCache();
+    private long writeVersion;
+    private long hits;
+    private long misses;
+
     /**
      * Creates a new {@code CrudEntityDataProvider}.
      *
@@ -35,6 +89,7 @@ public class CrudEntityDataProvider<T extends AbstractEntity>
      */
     public CrudEntityDataProvider(FilterableCrudService<T> crudService) {
         this.crudService = crudService;
+        this.writeVersion = crudService.getWriteVersion();
         setSortOrders();
     }
 
@@ -60,7 +115,17 @@ public class CrudEntityDataProvider<T extends AbstractEntity>
      */
     @Override
     protected Page<T> fetchFromBackEnd(Query<T, String> query, Pageable pageable) {
-        return crudService.findAnyMatching(query.getFilter(), pageable);
+        invalidateIfWritten();
+        PageKey key = new PageKey(query.getFilter(), pageable);
+        Page<T> page = pages.get(key);
+        if (page == null) {
+            misses++;
+            page = crudService.findAnyMatching(key.filter, pageable);
+            pages.put(key, page);
+        } else {
+            hits++;
+        }
+        return page;
     }
 
     /**
@@ -82,6 +147,99 @@ public class CrudEntityDataProvider<T extends AbstractEntity>
      */
     @Override
     protected int sizeInBackEnd(Query<T, String> query) {
-        return (int) crudService.countAnyMatching(query.getFilter());
+        invalidateIfWritten();
+        Optional<String> filter = query.getFilter();
+        Long count = counts.get(filter);
+        if (count == null) {
+            misses++;
+            count = crudService.countAnyMatching(filter);
+            counts.put(filter, count);
+        } else {
+            hits++;
+        }
+        return count.intValue();
+    }
+
+    /**
+     * Clears the cache and refreshes all components using this provider.
+     */
+    @Override
+    public void refreshAll() {
+        invalidate();
+        super.refreshAll();
+    }
+
+    /**
+     * Clears the cache, as the item may have moved to other pages, and refreshes
+     * the given item.
+     *
+     * @param item the changed item
+     */
+    @Override
+    public void refreshItem(T item) {
+        invalidate();
+        super.refreshItem(item);
+    }
+
+    /**
+     * Clears the cached pages and counts without refreshing the components, e.g.
+     * after an entity has been saved or deleted.
+     */
+    public void invalidate() {
+        pages.clear();
+        counts.clear();
+    }
+
+    /**
+     * Clears the cached pages and counts if entities have been saved or deleted
+     * since they were read.
+     */
+    private void invalidateIfWritten() {
+        long current = crudService.getWriteVersion();
+        if (current != writeVersion) {
+            invalidate();
+            writeVersion = current;
+        }
+    }
+
+    /**
+     * Returns the number of fetch and size requests answered from the cache.
+     *
+     * @return the hit count
+     */
+    public long getHitCount() {
+        return hits;
+    }
+
+    /**
+     * Returns the number of fetch and size requests that queried the service.
+     *
+     * @return the miss count
+     */
+    public long getMissCount() {
+        return misses;
+    }
+
+    /**
+     * Returns the share of fetch and size requests answered from the cache.
+     *
+     * @return the hit ratio between 0 and 1, or 0 if there have been no requests
+     */
+    public double getHitRatio() {
+        long total = hits + misses;
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    /**
+     * Creates a map that evicts its least recently used entry beyond
+     * {@value #CACHE_SIZE} entries.
+     */
+    private static <K, V> Map<K, V> createCache() {
+        return new LinkedHashMap<K, V>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                return size() > CACHE_SIZE;
+            }
+        };
     }
 }
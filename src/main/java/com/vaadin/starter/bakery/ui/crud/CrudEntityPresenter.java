@@ -22,6 +22,11 @@ import java.util.function.Consumer;
  * It executes CRUD operations, handles exceptions consistently,
  * and provides user-friendly error messages and notifications.
  * </p>
+ * <p>
+ * Successful saves and deletes clear the cache of the view's
+ * {@link CrudEntityDataProvider}. Changes committed by other users are picked
+ * up by the data provider through the write version of the service.
+ * </p>
  *
  * @param <E> the entity type managed by this presenter
  */
@@ -30,18 +35,23 @@ public class CrudEntityPresenter<E extends AbstractEntity> implements HasLogger
     private final CrudService<E> crudService;
     private final CurrentUser currentUser;
     private final HasNotifications view;
+    private final CrudEntityDataProvider<E> dataProvider;
 
     /**
      * Creates a new {@code CrudEntityPresenter}.
      *
-     * @param crudService the service used to perform CRUD operations
-     * @param currentUser the currently authenticated user
-     * @param view        the view responsible for showing notifications
+     * @param crudService  the service used to perform CRUD operations
+     * @param currentUser  the currently authenticated user
+     * @param view         the view responsible for showing notifications
+     * @param dataProvider the data provider of the view, whose cache is cleared
+     *                     after successful saves and deletes
      */
-    public CrudEntityPresenter(CrudService<E> crudService, CurrentUser currentUser, HasNotifications view) {
+    public CrudEntityPresenter(CrudService<E> crudService, CurrentUser currentUser, HasNotifications view,
+            CrudEntityDataProvider<E> dataProvider) {
         this.crudService = crudService;
         this.currentUser = currentUser;
         this.view = view;
+        this.dataProvider = dataProvider;
     }
 
     /**
@@ -56,7 +66,9 @@ public class CrudEntityPresenter<E extends AbstractEntity> implements HasLogger
      * @param onFail    callback executed if the delete fails
      */
     public void delete(E entity, Consumer<E> onSuccess, Consumer<E> onFail) {
-        if (executeOperation(() -> crudService.delete(currentUser.getUser(), entity))) {
+        boolean deleted = executeOperation(() -> crudService.delete(currentUser.getUser(), entity));
+        if (deleted) {
+            dataProvider.invalidate();
             onSuccess.accept(entity);
         } else {
             onFail.accept(entity);
@@ -75,7 +87,9 @@ public class CrudEntityPresenter<E extends AbstractEntity> implements HasLogger
      * @param onFail    callback executed if the save fails
      */
     public void save(E entity, Consumer<E> onSuccess, Consumer<E> onFail) {
-        if (executeOperation(() -> saveEntity(entity))) {
+        boolean saved = executeOperation(() -> saveEntity(entity));
+        if (saved) {
+            dataProvider.invalidate();
             onSuccess.accept(entity);
         } else {
             onFail.accept(entity);
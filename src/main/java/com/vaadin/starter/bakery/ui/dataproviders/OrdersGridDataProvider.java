@@ -2,13 +2,27 @@ package com.vaadin.starter.bakery.ui.dataproviders;
 
 import java.io.Serializable;
 import java.time.LocalDate;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.task.TaskExecutor;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
 import org.vaadin.artur.spring.dataprovider.FilterablePageableDataProvider;
 
@@ -18,6 +32,7 @@ import com.vaadin.flow.data.provider.QuerySortOrderBuilder;
 import com.vaadin.flow.spring.annotation.SpringComponent;
 import com.vaadin.flow.spring.annotation.UIScope;
 import com.vaadin.starter.bakery.backend.data.entity.Order;
+import com.vaadin.starter.bakery.backend.service.OrderPageCache;
 import com.vaadin.starter.bakery.backend.service.OrderService;
 import com.vaadin.starter.bakery.ui.utils.BakeryConst;
 
@@ -27,6 +42,37 @@ import com.vaadin.starter.bakery.ui.utils.BakeryConst;
  * Supports filtering, sorting, and observing pages of orders. Designed
  * for use in Vaadin grids with server-side paging.
  * </p>
+ * <p>
+ * The last order of each fetched page is remembered. When the grid then asks
+ * for the following page in the default sort order, it is read with a keyset
+ * (seek) query continuing after that order, instead of an offset query that
+ * makes the database skip all previous rows. Pages filtered by customer name,
+ * sorted otherwise or requested without a preceding page use the offset.
+ * </p>
+ * <p>
+ * Fetching never counts the matching orders, so the provider can be used by a
+ * grid with an unknown item count. The count is only run by
+ * {@link #sizeInBackEnd(Query)} or {@link #count(OrderFilter)}.
+ * </p>
+ * <p>
+ * Pages without a customer name filter are the same for all users and are read
+ * through the application-wide {@link OrderPageCache}, so that they are only
+ * read once after each order write. As a keyset read of a shared page starts at
+ * an order remembered by this provider, the remembered orders are tagged with
+ * the order write version they were read in. They are forgotten as soon as
+ * another order write is seen, and a keyset read is only made while the write
+ * version is unchanged, so that every shared page has the content of its
+ * offset.
+ * </p>
+ * <p>
+ * While the user scrolls, the following pages in the scroll direction are read
+ * ahead on the task executor: one page, or {@value #MAX_READ_AHEAD_PAGES} when
+ * the grid skips pages between two requests. At most
+ * {@value #MAX_READ_AHEAD_PAGES} pages are kept, and they are discarded when the
+ * filter changes, on {@link #refreshAll()} and after any order write. A page
+ * read ahead continues by keyset after the previous page only if no order has
+ * been written since that page was read.
+ * </p>
  */
 @SpringComponent
 @UIScope
@@ -76,20 +122,74 @@ public class OrdersGridDataProvider extends FilterablePageableDataProvider<Order
         public static OrderFilter getEmptyFilter() {
             return new OrderFilter("", false);
         }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            OrderFilter that = (OrderFilter) o;
+            return showPrevious == that.showPrevious && Objects.equals(filter, that.filter);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(filter, showPrevious);
+        }
+    }
+
+    /** Maximum number of pages read ahead and kept. */
+    static final int MAX_READ_AHEAD_PAGES = 2;
+
+    /**
+     * A page being read ahead, together with the order write version it was
+     * requested in.
+     */
+    private static class ReadAhead {
+        private final long version;
+        private final CompletableFuture<Page<Order>> page;
+
+        ReadAhead(long version, CompletableFuture<Page<Order>> page) {
+            this.version = version;
+            this.page = page;
+        }
     }
 
     private final OrderService orderService;
+    private final OrderPageCache orderPageCache;
+    private final TaskExecutor taskExecutor;
     private List<QuerySortOrder> defaultSortOrders;
+    private Sort defaultSort;
     private Consumer<Page<Order>> pageObserver;
 
+    /**
+     * The order preceding each known offset, for {@link #bookmarkedFilter} and
+     * as of the order write version {@link #bookmarkedVersion}.
+     */
+    private final NavigableMap<Long, Order> bookmarks = new TreeMap<>();
+    private OrderFilter bookmarkedFilter;
+    private long bookmarkedVersion;
+
+    /** The pages read ahead for {@link #bookmarkedFilter}, oldest first. */
+    private final Map<Pageable, ReadAhead> readAheadPages = new LinkedHashMap<>();
+    private long lastOffset = -1;
+
     /**
      * Creates a new {@code OrdersGridDataProvider}.
      *
-     * @param orderService the service used to fetch and count orders
+     * @param orderService   the service used to fetch and count orders
+     * @param orderPageCache the cache of the pages shared by all users
+     * @param taskExecutor   the executor reading pages ahead
      */
     @Autowired
-    public OrdersGridDataProvider(OrderService orderService) {
+    public OrdersGridDataProvider(OrderService orderService, OrderPageCache orderPageCache,
+                                  TaskExecutor taskExecutor) {
         this.orderService = orderService;
+        this.orderPageCache = orderPageCache;
+        this.taskExecutor = taskExecutor;
         setSortOrders(BakeryConst.DEFAULT_SORT_DIRECTION, BakeryConst.ORDER_SORT_FIELDS);
     }
 
@@ -109,20 +209,214 @@ public class OrdersGridDataProvider extends FilterablePageableDataProvider<Order
             }
         }
         defaultSortOrders = builder.build();
+        defaultSort = Sort.by(direction, properties);
     }
 
     @Override
     protected Page<Order> fetchFromBackEnd(Query<Order, OrderFilter> query, Pageable pageable) {
         OrderFilter filter = query.getFilter().orElse(OrderFilter.getEmptyFilter());
-        Page<Order> page = orderService.findAnyMatchingAfterDueDate(
+        long version = orderPageCache.getVersion();
+        if (!filter.equals(bookmarkedFilter) || version != bookmarkedVersion) {
+            // Orders may have been added or removed before the remembered ones
+            bookmarks.clear();
+            discardReadAhead();
+            bookmarkedFilter = filter;
+            bookmarkedVersion = version;
+        }
+
+        Page<Order> page = takeReadAhead(pageable);
+        if (page == null) {
+            page = load(filter, pageable, () -> fetch(filter, pageable, version));
+        }
+        List<Order> content = page.getContent();
+        if (!content.isEmpty()) {
+            bookmarks.put(pageable.getOffset() + content.size(), content.get(content.size() - 1));
+        }
+        if (pageObserver != null) {
+            pageObserver.accept(page);
+        }
+        readAhead(filter, page, version);
+        return page;
+    }
+
+    /**
+     * Loads a page through the shared cache, unless it is filtered by customer
+     * name.
+     */
+    private Page<Order> load(OrderFilter filter, Pageable pageable, Supplier<Page<Order>> reader) {
+        if (hasNameFilter(filter)) {
+            return reader.get();
+        }
+        return orderPageCache.get(getFilterDate(filter.isShowPrevious()), pageable, reader);
+    }
+
+    /**
+     * Reads a page from the database, by keyset if possible and by offset
+     * otherwise. The remembered orders are only used if no order has been
+     * written since the given version.
+     */
+    private Page<Order> fetch(OrderFilter filter, Pageable pageable, long version) {
+        Page<Order> page = null;
+        if (orderPageCache.getVersion() == version) {
+            page = fetchFollowingBookmark(filter, pageable);
+        }
+        if (page == null) {
+            page = fetchByOffset(filter, pageable);
+        }
+        return page;
+    }
+
+    /**
+     * Reads a page with an offset query. Does not use any state of the provider,
+     * so it can be called from a background thread.
+     */
+    private Page<Order> fetchByOffset(OrderFilter filter, Pageable pageable) {
+        Slice<Order> slice = orderService.findAnyMatchingAfterDueDate(
                 Optional.ofNullable(filter.getFilter()),
                 getFilterDate(filter.isShowPrevious()),
                 pageable
         );
-        if (pageObserver != null) {
-            pageObserver.accept(page);
+        return toPage(slice.getContent(), pageable, slice.hasNext());
+    }
+
+    /**
+     * Reads the page following a page read in the given order write version, by
+     * keyset if possible and no order has been written since. Does not use any
+     * state of the provider, so it can be called from a background thread.
+     */
+    private Page<Order> fetchFollowing(OrderFilter filter, Page<Order> previous, long version) {
+        Pageable pageable = previous.nextPageable();
+        List<Order> content = previous.getContent();
+        if (hasNameFilter(filter) || !defaultSort.equals(pageable.getSort()) || content.isEmpty()
+                || orderPageCache.getVersion() != version) {
+            return fetchByOffset(filter, pageable);
         }
-        return page;
+        List<Order> orders = orderService.findAnyFollowing(getFilterDate(filter.isShowPrevious()),
+                content.get(content.size() - 1), pageable.getPageSize());
+        return toPage(orders, pageable, orders.size() == pageable.getPageSize());
+    }
+
+    /**
+     * Starts reading the pages the grid is expected to request next, based on
+     * the direction and distance from the previously fetched page.
+     *
+     * @param filter  the filter of the fetched page
+     * @param page    the fetched page
+     * @param version the order write version the page has been read in
+     */
+    private void readAhead(OrderFilter filter, Page<Order> page, long version) {
+        Pageable pageable = page.getPageable();
+        long previousOffset = lastOffset;
+        lastOffset = pageable.getOffset();
+        if (previousOffset < 0 || previousOffset == lastOffset) {
+            return;
+        }
+        int pages = Math.abs(lastOffset - previousOffset) > pageable.getPageSize() ? MAX_READ_AHEAD_PAGES : 1;
+
+        if (lastOffset > previousOffset) {
+            CompletableFuture<Page<Order>> previous = CompletableFuture.completedFuture(page);
+            for (int i = 0; i < pages; i++) {
+                Pageable next = pageable.next();
+                ReadAhead existing = readAheadPages.get(next);
+                if (existing != null) {
+                    previous = existing.page;
+                } else {
+                    previous = previous.thenApplyAsync(p -> p.hasNext()
+                            ? load(filter, next, () -> fetchFollowing(filter, p, version))
+                            : toPage(Collections.emptyList(), next, false), taskExecutor);
+                    putReadAhead(next, new ReadAhead(version, previous));
+                }
+                pageable = next;
+            }
+        } else {
+            for (int i = 0; i < pages && pageable.hasPrevious(); i++) {
+                Pageable next = pageable.previousOrFirst();
+                if (!readAheadPages.containsKey(next)) {
+                    putReadAhead(next, new ReadAhead(version, CompletableFuture.supplyAsync(
+                            () -> load(filter, next, () -> fetchByOffset(filter, next)), taskExecutor)));
+                }
+                pageable = next;
+            }
+        }
+    }
+
+    private void putReadAhead(Pageable pageable, ReadAhead page) {
+        readAheadPages.put(pageable, page);
+        Iterator<ReadAhead> oldest = readAheadPages.values().iterator();
+        while (readAheadPages.size() > MAX_READ_AHEAD_PAGES) {
+            oldest.next().page.cancel(false);
+            oldest.remove();
+        }
+    }
+
+    /**
+     * Returns a page that has been read ahead, waiting for it if it is still
+     * being read.
+     *
+     * @param pageable the requested page
+     * @return the page, or {@code null} if it has not been read ahead, is
+     *         outdated or could not be read
+     */
+    private Page<Order> takeReadAhead(Pageable pageable) {
+        ReadAhead page = readAheadPages.remove(pageable);
+        if (page == null || page.version != orderPageCache.getVersion()) {
+            return null;
+        }
+        try {
+            return page.page.join();
+        } catch (CompletionException | CancellationException e) {
+            // Read it again in the request
+            return null;
+        }
+    }
+
+    private void discardReadAhead() {
+        readAheadPages.values().forEach(page -> page.page.cancel(false));
+        readAheadPages.clear();
+        lastOffset = -1;
+    }
+
+    private static boolean hasNameFilter(OrderFilter filter) {
+        return filter.getFilter() != null && !filter.getFilter().isEmpty();
+    }
+
+    /**
+     * Fetches a page with a keyset query continuing after the closest remembered
+     * order, if the page can be read that way.
+     *
+     * @param filter   the filter of the query
+     * @param pageable the requested page
+     * @return the page, or {@code null} if it has to be fetched by offset
+     */
+    private Page<Order> fetchFollowingBookmark(OrderFilter filter, Pageable pageable) {
+        if (hasNameFilter(filter) || !defaultSort.equals(pageable.getSort())) {
+            return null;
+        }
+        Map.Entry<Long, Order> bookmark = bookmarks.floorEntry(pageable.getOffset());
+        if (bookmark == null || pageable.getOffset() - bookmark.getKey() > pageable.getPageSize()) {
+            return null;
+        }
+        int skip = (int) (pageable.getOffset() - bookmark.getKey());
+        List<Order> orders = orderService.findAnyFollowing(getFilterDate(filter.isShowPrevious()),
+                bookmark.getValue(), skip + pageable.getPageSize());
+        List<Order> content = orders.subList(Math.min(skip, orders.size()), orders.size());
+        return toPage(content, pageable, content.size() == pageable.getPageSize());
+    }
+
+    /**
+     * Wraps fetched orders in a page without counting all matching orders. The
+     * total is the known lower bound, plus one if more orders may follow.
+     */
+    private static Page<Order> toPage(List<Order> content, Pageable pageable, boolean hasNext) {
+        return new PageImpl<>(content, pageable, pageable.getOffset() + content.size() + (hasNext ? 1 : 0));
+    }
+
+    @Override
+    public void refreshAll() {
+        // Orders may have been added or removed before the remembered ones
+        bookmarks.clear();
+        discardReadAhead();
+        super.refreshAll();
     }
 
     @Override
@@ -132,8 +426,18 @@ public class OrdersGridDataProvider extends FilterablePageableDataProvider<Order
 
     @Override
     protected int sizeInBackEnd(Query<Order, OrderFilter> query) {
-        OrderFilter filter = query.getFilter().orElse(OrderFilter.getEmptyFilter());
-        return (int) orderService.countAnyMatchingAfterDueDate(
+        return (int) count(query.getFilter().orElse(OrderFilter.getEmptyFilter()));
+    }
+
+    /**
+     * Counts the orders matching a filter. Does not use any state of the
+     * provider, so it can be called from a background thread.
+     *
+     * @param filter the filter
+     * @return the number of matching orders
+     */
+    public long count(OrderFilter filter) {
+        return orderService.countAnyMatchingAfterDueDate(
                 Optional.ofNullable(filter.getFilter()),
                 getFilterDate(filter.isShowPrevious())
         );
@@ -145,7 +449,7 @@ public class OrdersGridDataProvider extends FilterablePageableDataProvider<Order
      * @param showPrevious whether to include previous orders
      * @return an {@link Optional} containing the date to filter from, or empty to include all orders
      */
-    private Optional<LocalDate> getFilterDate(boolean showPrevious) {
+    private static Optional<LocalDate> getFilterDate(boolean showPrevious) {
         if (showPrevious) {
             return Optional.empty();
         }
@@ -0,0 +1,82 @@
+package com.vaadin.starter.bakery.ui.views.dashboard;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import com.vaadin.flow.component.charts.model.DataSeries;
+import com.vaadin.flow.component.charts.model.DataSeriesItem;
+import com.vaadin.flow.component.charts.model.ListSeries;
+import com.vaadin.starter.bakery.backend.data.TimeSeries;
+import com.vaadin.starter.bakery.backend.data.entity.Product;
+
+/**
+ * Atualiza as séries dos gráficos do dashboard ponto a ponto.
+ * <p>
+ * Em vez de voltar a enviar toda a configuração do gráfico, só os pontos que
+ * mudaram entre os dados mostrados e os dados novos são enviados ao browser.
+ * Quando as duas versões não são comparáveis (por exemplo, um mês com outro
+ * número de dias ou outros produtos), é devolvido {@link #NOT_COMPARABLE} e o
+ * gráfico tem de ser preenchido e redesenhado por inteiro.
+ * </p>
+ */
+final class ChartDeltas {
+
+	/** Indica que a série não pode ser atualizada ponto a ponto. */
+	static final int NOT_COMPARABLE = -1;
+
+	private ChartDeltas() {
+	}
+
+	/**
+	 * Atualiza os pontos de uma série que mudaram.
+	 *
+	 * @param series  série mostrada no gráfico, com os pontos de {@code shown}
+	 * @param shown   dados mostrados
+	 * @param current dados novos
+	 * @return número de pontos atualizados, ou {@link #NOT_COMPARABLE}
+	 */
+	static int update(ListSeries series, TimeSeries shown, TimeSeries current) {
+		if (shown.size() != current.size() || series.getData().length != current.size()) {
+			return NOT_COMPARABLE;
+		}
+		int updated = 0;
+		for (int i = 0; i < current.size(); i++) {
+			if (shown.isPresent(i) != current.isPresent(i) || shown.get(i) != current.get(i)) {
+				series.updatePoint(i, current.isPresent(i) ? current.get(i) : null);
+				updated++;
+			}
+		}
+		return updated;
+	}
+
+	/**
+	 * Atualiza as fatias de uma série de produtos cujo valor mudou.
+	 *
+	 * @param series  série mostrada no gráfico, com uma fatia por produto de
+	 *                {@code shown}, pela mesma ordem
+	 * @param shown   quantidades mostradas por produto
+	 * @param current quantidades novas por produto
+	 * @return número de fatias atualizadas, ou {@link #NOT_COMPARABLE} se os
+	 *         produtos ou a sua ordem mudaram
+	 */
+	static int update(DataSeries series, Map<Product, Integer> shown, Map<Product, Integer> current) {
+		List<DataSeriesItem> items = series.getData();
+		if (items.size() != current.size()
+				|| !new ArrayList<>(shown.keySet()).equals(new ArrayList<>(current.keySet()))) {
+			return NOT_COMPARABLE;
+		}
+		int updated = 0;
+		int index = 0;
+		for (Map.Entry<Product, Integer> entry : current.entrySet()) {
+			DataSeriesItem item = items.get(index++);
+			if (!Objects.equals(shown.get(entry.getKey()), entry.getValue())) {
+				item.setY(entry.getValue());
+				series.update(item);
+				updated++;
+			}
+		}
+		return updated;
+	}
+}
@@ -1,5 +1,8 @@
 package com.vaadin.starter.bakery.ui.views.dashboard;
 
+import java.util.Objects;
+
+import com.vaadin.flow.component.HasText;
 import com.vaadin.flow.component.Tag;
 import com.vaadin.flow.component.dependency.JsModule;
 import com.vaadin.flow.component.html.Div;
@@ -33,7 +36,8 @@ import com.vaadin.starter.bakery.ui.views.storefront.beans.OrdersCountData;
  * <p>
  * Os dados são fornecidos através de {@link OrdersCountData}, que contém título,
  * subtítulo e número de pedidos. O método {@link #setOrdersCountData(OrdersCountData)}
- * preenche os elementos do template com esses valores.
+ * preenche os elementos do template com esses valores, alterando apenas os que
+ * mudaram, para que uma atualização sem alterações não envie nada ao browser.
  * </p>
  */
 @Tag("dashboard-counter-label")
@@ -58,8 +62,15 @@ public class DashboardCounterLabel extends LitTemplate {
 	 * @param data objeto {@link OrdersCountData} que contém o título, subtítulo e número de pedidos
 	 */
 	public void setOrdersCountData(OrdersCountData data) {
-		title.setText(data.getTitle());
-		subtitle.setText(data.getSubtitle());
-		count.setText(String.valueOf(data.getCount()));
+		setTextIfChanged(title, data.getTitle());
+		setTextIfChanged(subtitle, data.getSubtitle());
+		setTextIfChanged(count, String.valueOf(data.getCount()));
+	}
+
+	private static void setTextIfChanged(HasText component, String text) {
+		String newText = text == null ? "" : text;
+		if (!Objects.equals(component.getText(), newText)) {
+			component.setText(newText);
+		}
 	}
 }
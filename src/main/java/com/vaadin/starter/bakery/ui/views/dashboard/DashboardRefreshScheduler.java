@@ -0,0 +1,54 @@
+package com.vaadin.starter.bakery.ui.views.dashboard;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PreDestroy;
+
+import org.springframework.stereotype.Component;
+
+import com.vaadin.flow.component.UI;
+import com.vaadin.flow.shared.Registration;
+
+/**
+ * Agenda no servidor a atualização automática dos dashboards abertos.
+ * <p>
+ * Uma única thread dispara as atualizações de todas as UIs, entrando em cada
+ * uma com {@link UI#access(com.vaadin.flow.server.Command)}. O trabalho pesado
+ * da atualização corre no executor da vista e o resultado chega ao browser por
+ * Push, sem pedidos periódicos do browser.
+ * </p>
+ */
+@Component
+public class DashboardRefreshScheduler {
+
+	private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "dashboard-refresh");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	/**
+	 * Executa periodicamente uma tarefa dentro de uma UI.
+	 *
+	 * @param ui           UI em que a tarefa corre
+	 * @param task         tarefa, executada com a sessão da UI bloqueada
+	 * @param periodMillis intervalo entre execuções, em milissegundos
+	 * @return registo que cancela o agendamento
+	 */
+	public Registration schedule(UI ui, Runnable task, long periodMillis) {
+		ScheduledFuture<?> future = executor.scheduleWithFixedDelay(() -> ui.access(task::run), periodMillis,
+				periodMillis, TimeUnit.MILLISECONDS);
+		return () -> future.cancel(false);
+	}
+
+	/**
+	 * Para a thread de agendamento.
+	 */
+	@PreDestroy
+	public void shutdown() {
+		executor.shutdownNow();
+	}
+}
@@ -8,8 +8,7 @@ import java.util.Iterator;
 
 import com.vaadin.starter.bakery.backend.data.DeliveryStats;
 import com.vaadin.starter.bakery.backend.data.OrderState;
-import com.vaadin.starter.bakery.backend.data.entity.Order;
-import com.vaadin.starter.bakery.backend.data.entity.OrderSummary;
+import com.vaadin.starter.bakery.backend.data.entity.OrderDueSummary;
 import com.vaadin.starter.bakery.ui.views.storefront.beans.OrdersCountData;
 import com.vaadin.starter.bakery.ui.views.storefront.beans.OrdersCountDataWithChart;
 
@@ -39,15 +38,17 @@ public class DashboardUtils {
 	 * O número total de encomendas pendentes é calculado como:
 	 * {@code dueToday - deliveredToday}.
 	 * O método também procura a próxima encomenda pronta para entrega
-	 * e define o subtítulo correspondente.
+	 * e define o subtítulo correspondente. O iterador deve conter apenas
+	 * encomendas no estado {@link OrderState#READY}, para não ler todas as
+	 * encomendas futuras quando nenhuma está pronta.
 	 * </p>
 	 *
 	 * @param deliveryStats estatísticas de entrega
-	 * @param ordersIterator iterador de {@link OrderSummary} para encomendas
+	 * @param ordersIterator iterador de {@link OrderDueSummary} ordenado por data e hora de entrega
 	 * @return objeto {@link OrdersCountDataWithChart} para encomendas de hoje
 	 */
 	public static OrdersCountDataWithChart getTodaysOrdersCountData(
-			DeliveryStats deliveryStats, Iterator<OrderSummary> ordersIterator) {
+			DeliveryStats deliveryStats, Iterator<? extends OrderDueSummary> ordersIterator) {
 
 		OrdersCountDataWithChart ordersCountData = new OrdersCountDataWithChart(
 				"Remaining Today",
@@ -60,7 +61,7 @@ public class DashboardUtils {
 		LocalTime time = LocalTime.now();
 
 		while (ordersIterator.hasNext()) {
-			OrderSummary order = ordersIterator.next();
+			OrderDueSummary order = ordersIterator.next();
 			if (isOrderNextToDeliver(order, date, time)) {
 				if (order.getDueDate().isEqual(date)) {
 					ordersCountData.setSubtitle(
@@ -89,7 +90,7 @@ public class DashboardUtils {
 	 * @param nowTime hora atual
 	 * @return {@code true} se a encomenda for a próxima a entregar, caso contrário {@code false}
 	 */
-	private static boolean isOrderNextToDeliver(OrderSummary order, LocalDate nowDate, LocalTime nowTime) {
+	private static boolean isOrderNextToDeliver(OrderDueSummary order, LocalDate nowDate, LocalTime nowTime) {
 		return order.getState() == OrderState.READY
 				&& ((order.getDueDate().isEqual(nowDate) && order.getDueTime().isAfter(nowTime))
 				|| order.getDueDate().isAfter(nowDate));
@@ -114,11 +115,11 @@ public class DashboardUtils {
 	 * </p>
 	 *
 	 * @param deliveryStats estatísticas de entrega
-	 * @param ordersIterator iterador de {@link OrderSummary} para encomendas
+	 * @param ordersIterator iterador de {@link OrderDueSummary} ordenado por data e hora de entrega
 	 * @return objeto {@link OrdersCountData} para encomendas de amanhã
 	 */
 	public static OrdersCountData getTomorrowOrdersCountData(
-			DeliveryStats deliveryStats, Iterator<OrderSummary> ordersIterator) {
+			DeliveryStats deliveryStats, Iterator<? extends OrderDueSummary> ordersIterator) {
 
 		OrdersCountData ordersCountData = new OrdersCountData(
 				"Tomorrow",
@@ -130,7 +131,7 @@ public class DashboardUtils {
 		LocalTime minTime = LocalTime.MAX;
 
 		while (ordersIterator.hasNext()) {
-			OrderSummary order = ordersIterator.next();
+			OrderDueSummary order = ordersIterator.next();
 			if (order.getDueDate().isBefore(date)) {
 				continue;
 			}
@@ -158,11 +159,12 @@ public class DashboardUtils {
 	 * </p>
 	 *
 	 * @param deliveryStats estatísticas de entrega
-	 * @param lastOrder última encomenda recebida
+	 * @param lastOrderPlaced data/hora da última encomenda recebida, ou {@code null} se não existir
 	 * @return objeto {@link OrdersCountData} para novas encomendas
 	 */
-	public static OrdersCountData getNewOrdersCountData(DeliveryStats deliveryStats, Order lastOrder) {
-		return new OrdersCountData("New", createSubtitle(lastOrder), deliveryStats.getNewOrders());
+	public static OrdersCountData getNewOrdersCountData(DeliveryStats deliveryStats, LocalDateTime lastOrderPlaced) {
+		return new OrdersCountData("New", lastOrderPlaced == null ? null : createSubtitle(lastOrderPlaced),
+				deliveryStats.getNewOrders());
 	}
 
 	/** Padrão de texto para subtítulos de novas encomendas. */
@@ -176,12 +178,11 @@ public class DashboardUtils {
 	 * for muito recente (ou futura), o texto será "Last just added".
 	 * </p>
 	 *
-	 * @param lastOrder última encomenda registada
+	 * @param timestamp data/hora da última encomenda registada
 	 * @return string representando o tempo decorrido (ex.: "Last 2h ago")
 	 */
-	private static String createSubtitle(Order lastOrder) {
+	private static String createSubtitle(LocalDateTime timestamp) {
 		LocalDateTime currTime = LocalDateTime.now();
-		LocalDateTime timestamp = lastOrder.getHistory().get(0).getTimestamp();
 
 		long value = timestamp.until(currTime, ChronoUnit.DAYS);
 		if (value > 0) {
@@ -1,23 +1,30 @@
 package com.vaadin.starter.bakery.ui.views.dashboard;
 
 import java.time.LocalDate;
-import java.time.MonthDay;
-import java.time.Year;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
 import javax.annotation.security.PermitAll;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
 
-import com.vaadin.flow.component.ComponentEventListener;
+import com.vaadin.flow.component.AttachEvent;
+import com.vaadin.flow.component.DetachEvent;
 import com.vaadin.flow.component.Tag;
 import com.vaadin.flow.component.UI;
+import com.vaadin.flow.component.button.Button;
 import com.vaadin.flow.component.charts.Chart;
-import com.vaadin.flow.component.charts.events.ChartLoadEvent;
 import com.vaadin.flow.component.charts.model.Background;
 import com.vaadin.flow.component.charts.model.BackgroundShape;
 import com.vaadin.flow.component.charts.model.ChartType;
@@ -28,23 +35,36 @@ import com.vaadin.flow.component.charts.model.ListSeries;
 import com.vaadin.flow.component.charts.model.Pane;
 import com.vaadin.flow.component.charts.model.PlotOptionsPie;
 import com.vaadin.flow.component.charts.model.PlotOptionsSolidgauge;
+import com.vaadin.flow.component.charts.model.Series;
+import com.vaadin.flow.component.checkbox.Checkbox;
+import com.vaadin.flow.component.combobox.ComboBox;
 import com.vaadin.flow.component.dependency.JsModule;
 import com.vaadin.flow.component.grid.Grid;
+import com.vaadin.flow.component.html.Span;
 import com.vaadin.flow.component.littemplate.LitTemplate;
 import com.vaadin.flow.component.template.Id;
 import com.vaadin.flow.router.PageTitle;
 import com.vaadin.flow.router.Route;
+import com.vaadin.flow.shared.Registration;
+import com.vaadin.starter.bakery.app.HasLogger;
 import com.vaadin.starter.bakery.backend.data.DashboardData;
 import com.vaadin.starter.bakery.backend.data.DeliveryStats;
+import com.vaadin.starter.bakery.backend.data.OrderState;
+import com.vaadin.starter.bakery.backend.data.SalesForecast;
+import com.vaadin.starter.bakery.backend.data.TimeSeries;
 import com.vaadin.starter.bakery.backend.data.entity.Order;
-import com.vaadin.starter.bakery.backend.data.entity.OrderSummary;
+import com.vaadin.starter.bakery.backend.data.entity.PickupLocation;
 import com.vaadin.starter.bakery.backend.data.entity.Product;
 import com.vaadin.starter.bakery.backend.service.OrderService;
+import com.vaadin.starter.bakery.backend.service.PickupLocationService;
+import com.vaadin.starter.bakery.backend.service.SalesForecastService;
 import com.vaadin.starter.bakery.ui.MainView;
+import com.vaadin.starter.bakery.ui.crud.CrudEntityDataProvider;
 import com.vaadin.starter.bakery.ui.dataproviders.OrdersGridDataProvider;
 import com.vaadin.starter.bakery.ui.utils.BakeryConst;
 import com.vaadin.starter.bakery.ui.utils.FormattingUtils;
 import com.vaadin.starter.bakery.ui.views.storefront.OrderCard;
+import com.vaadin.starter.bakery.ui.views.storefront.beans.OrdersCountData;
 import com.vaadin.starter.bakery.ui.views.storefront.beans.OrdersCountDataWithChart;
 
 /**
@@ -64,13 +84,33 @@ import com.vaadin.starter.bakery.ui.views.storefront.beans.OrdersCountDataWithCh
  * Os dados são obtidos a partir do {@link OrderService}, que fornece
  * instâncias de {@link DashboardData} e {@link DeliveryStats}.
  * </p>
+ *
+ * <p>
+ * Os gráficos de entregas e vendas mostram um período (mês e ano) que pode ser
+ * mudado com os botões de navegação. Sempre que um período é mostrado, os
+ * períodos anterior e seguinte são calculados em segundo plano, para que a
+ * navegação responda a partir da cache partilhada do {@link OrderService}.
+ * </p>
+ *
+ * <p>
+ * Os dados de cada período incluem a divisão por local de levantamento, pelo
+ * que a escolha de um local apenas volta a preencher os gráficos e contadores,
+ * sem novas consultas.
+ * </p>
+ *
+ * <p>
+ * Com a atualização automática ativa, os dados são recalculados
+ * periodicamente, por iniciativa do servidor através do
+ * {@link DashboardRefreshScheduler}, e comparados com os mostrados, sendo enviados ao browser
+ * apenas os pontos dos gráficos e os textos dos contadores que mudaram.
+ * </p>
  */
 @Tag("dashboard-view")
 @JsModule("./src/views/dashboard/dashboard-view.js")
 @Route(value = BakeryConst.PAGE_DASHBOARD, layout = MainView.class)
 @PageTitle(BakeryConst.TITLE_DASHBOARD)
 @PermitAll
-public class DashboardView extends LitTemplate {
+public class DashboardView extends LitTemplate implements HasLogger {
 
 	/**
 	 * Abreviaturas para os meses usadas nos gráficos anuais.
@@ -78,8 +118,48 @@ public class DashboardView extends LitTemplate {
 	private static final String[] MONTH_LABELS = new String[] {"Jan", "Feb", "Mar", "Apr", "May", "Jun", "Jul",
 			"Aug", "Sep", "Oct", "Nov", "Dec"};
 
+	/**
+	 * Número de gráficos preenchidos em segundo plano: os quatro do período, os
+	 * contadores e a previsão de vendas.
+	 */
+	private static final int ASYNC_CHART_COUNT = 6;
+
 	private final OrderService orderService;
 
+	private final SalesForecastService salesForecastService;
+
+	private final TaskExecutor taskExecutor;
+
+	private final DashboardRefreshScheduler refreshScheduler;
+
+	/** Indica se o carregamento dos gráficos já foi iniciado. */
+	private boolean chartsRequested;
+
+	/** Período mostrado nos gráficos. */
+	private YearMonth period;
+
+	/** Dados de todos os locais do período mostrado, {@code null} enquanto carregam. */
+	private DashboardData periodData;
+
+	/**
+	 * Repõe os contadores de todos os locais, com os subtítulos calculados no
+	 * primeiro carregamento ou na última atualização automática. Devolve se o
+	 * gráfico de hoje tem de ser redesenhado. É {@code null} enquanto carregam.
+	 */
+	private BooleanSupplier allLocationsCounts;
+
+	/** Intervalo da atualização automática, em milissegundos. */
+	private final int autoRefreshMillis;
+
+	/** Agendamento da atualização automática, {@code null} se inativa. */
+	private Registration autoRefreshRegistration;
+
+	/** Início da medição do tempo de carregamento da página. */
+	private long loadStartNanos;
+
+	/** Número de gráficos preenchidos em segundo plano já mostrados. */
+	private int chartsLoaded;
+
 	@Id("todayCount")
 	private DashboardCounterLabel todayCount;
 
@@ -101,6 +181,9 @@ public class DashboardView extends LitTemplate {
 	@Id("yearlySalesGraph")
 	private Chart yearlySalesGraph;
 
+	@Id("salesForecast")
+	private Chart salesForecastChart;
+
 	@Id("ordersGrid")
 	private Grid<Order> grid;
 
@@ -110,21 +193,56 @@ public class DashboardView extends LitTemplate {
 	@Id("todayCountChart")
 	private Chart todayCountChart;
 
+	@Id("previousYear")
+	private Button previousYear;
+
+	@Id("previousPeriod")
+	private Button previousPeriod;
+
+	@Id("period")
+	private Span periodLabel;
+
+	@Id("nextPeriod")
+	private Button nextPeriod;
+
+	@Id("nextYear")
+	private Button nextYear;
+
+	@Id("location")
+	private ComboBox<PickupLocation> location;
+
+	@Id("autoRefresh")
+	private Checkbox autoRefresh;
+
 	/**
 	 * Construtor do dashboard.
 	 *
 	 * <p>
-	 * Configura a grelha de encomendas, carrega os dados através do
-	 * {@link OrderService}, popula os gráficos e contadores e inicia a medição
-	 * de performance do carregamento da página.
+	 * Configura a grelha de encomendas. Os contadores, a previsão de vendas e os
+	 * gráficos são preenchidos de forma assíncrona depois de a vista ser anexada,
+	 * através de Push, à medida que os dados ficam disponíveis.
 	 * </p>
 	 *
-	 * @param orderService       serviço para acesso a encomendas e dados de estatísticas
-	 * @param orderDataProvider  fornecedor de dados para a grelha de encomendas
+	 * @param orderService          serviço para acesso a encomendas e dados de estatísticas
+	 * @param orderDataProvider     fornecedor de dados para a grelha de encomendas
+	 * @param taskExecutor          executor usado para carregar os dados dos gráficos em segundo plano
+	 * @param pickupLocationService serviço que lista os locais de levantamento
+	 * @param salesForecastService  serviço com a última previsão de vendas
+	 * @param refreshScheduler      agenda a atualização automática no servidor
+	 * @param autoRefreshSeconds    intervalo da atualização automática, em segundos
 	 */
 	@Autowired
-	public DashboardView(OrderService orderService, OrdersGridDataProvider orderDataProvider) {
+	public DashboardView(OrderService orderService, OrdersGridDataProvider orderDataProvider,
+			TaskExecutor taskExecutor, PickupLocationService pickupLocationService,
+			SalesForecastService salesForecastService, DashboardRefreshScheduler refreshScheduler,
+			@Value("${bakery.dashboard.auto-refresh-seconds:30}") int autoRefreshSeconds) {
 		this.orderService = orderService;
+		this.salesForecastService = salesForecastService;
+		this.taskExecutor = taskExecutor;
+		this.refreshScheduler = refreshScheduler;
+		this.autoRefreshMillis = autoRefreshSeconds * 1000;
+
+		measurePageLoadPerformance();
 
 		grid.addColumn(OrderCard.getTemplate()
 				.withProperty("orderCard", OrderCard::create)
@@ -135,19 +253,372 @@ public class DashboardView extends LitTemplate {
 		grid.setSelectionMode(Grid.SelectionMode.NONE);
 		grid.setDataProvider(orderDataProvider);
 
-		DashboardData data = orderService.getDashboardData(MonthDay.now().getMonthValue(), Year.now().getValue());
+		previousYear.addClickListener(e -> showPeriod(UI.getCurrent(), earliest(period.minusYears(1)), false));
+		previousPeriod.addClickListener(e -> showPeriod(UI.getCurrent(), period.minusMonths(1), false));
+		nextPeriod.addClickListener(e -> showPeriod(UI.getCurrent(), period.plusMonths(1), false));
+		nextYear.addClickListener(e -> showPeriod(UI.getCurrent(), latest(period.plusYears(1)), false));
+
+		location.setItems(new CrudEntityDataProvider<>(pickupLocationService));
+		location.setItemLabelGenerator(PickupLocation::getName);
+		location.setPlaceholder("All locations");
+		location.setClearButtonVisible(true);
+		location.addValueChangeListener(e -> showLocation());
+
+		autoRefresh.addValueChangeListener(e -> setAutoRefresh(UI.getCurrent(), e.getValue()));
+	}
+
+	/**
+	 * Inicia o carregamento assíncrono dos contadores, da previsão de vendas e
+	 * dos gráficos quando a vista é anexada.
+	 * <p>
+	 * Os dados são obtidos numa thread do {@link TaskExecutor} e cada gráfico é
+	 * preenchido num {@link UI#access(com.vaadin.flow.server.Command)} separado,
+	 * sendo enviado ao browser por Push assim que está pronto.
+	 * </p>
+	 *
+	 * @param attachEvent evento de anexação
+	 */
+	@Override
+	protected void onAttach(AttachEvent attachEvent) {
+		super.onAttach(attachEvent);
+		if (chartsRequested) {
+			return;
+		}
+		chartsRequested = true;
+
+		UI ui = attachEvent.getUI();
+		CompletableFuture.supplyAsync(() -> ordersCounts(orderService.getDeliveryStats()), taskExecutor)
+				.thenAccept(counts -> ui.access(() -> {
+					allLocationsCounts = counts;
+					if (location.getValue() == null) {
+						counts.getAsBoolean();
+						todayCountChart.drawChart();
+					}
+					chartLoaded();
+				})).exceptionally(e -> {
+					getLogger().error("Unable to load the dashboard counters", e);
+					return null;
+				});
+		CompletableFuture.supplyAsync(salesForecastService::getLatest, taskExecutor)
+				.thenAccept(forecast -> ui.access(() -> {
+					populateSalesForecastChart(forecast);
+					salesForecastChart.drawChart();
+					chartLoaded();
+				})).exceptionally(e -> {
+					getLogger().error("Unable to load the sales forecast", e);
+					return null;
+				});
+		showPeriod(ui, YearMonth.now(), true);
+	}
+
+	/**
+	 * Desativa a atualização automática quando a vista deixa de estar anexada,
+	 * cancelando o seu agendamento.
+	 *
+	 * @param detachEvent evento de remoção
+	 */
+	@Override
+	protected void onDetach(DetachEvent detachEvent) {
+		setAutoRefresh(detachEvent.getUI(), false);
+		autoRefresh.setValue(false);
+		super.onDetach(detachEvent);
+	}
+
+	/**
+	 * Ativa ou desativa a atualização automática periódica. As atualizações são
+	 * agendadas no servidor e enviadas ao browser por Push.
+	 *
+	 * @param ui      UI a que a vista pertence
+	 * @param enabled {@code true} para ativar
+	 */
+	private void setAutoRefresh(UI ui, boolean enabled) {
+		if (autoRefreshRegistration != null) {
+			autoRefreshRegistration.remove();
+			autoRefreshRegistration = null;
+		}
+		if (enabled) {
+			autoRefreshRegistration = refreshScheduler.schedule(ui, () -> refresh(ui), autoRefreshMillis);
+		}
+	}
+
+	/**
+	 * Recalcula em segundo plano os dados mostrados e envia ao browser apenas o
+	 * que mudou.
+	 * <p>
+	 * Os dados do período vêm da cache partilhada do {@link OrderService}: se não
+	 * houve encomendas novas nem mudou o minuto, a instância é a mesma e nenhum
+	 * gráfico é tocado. Caso contrário, os pontos são comparados um a um com
+	 * {@link ChartDeltas}.
+	 * </p>
+	 *
+	 * @param ui UI a que a vista pertence
+	 */
+	private void refresh(UI ui) {
+		DashboardData shownData = periodData;
+		if (shownData == null) {
+			// O período ainda está a carregar
+			return;
+		}
+		YearMonth refreshedPeriod = period;
+		CompletableFuture<BooleanSupplier> counts = CompletableFuture
+				.supplyAsync(() -> ordersCounts(orderService.getDeliveryStats()), taskExecutor);
+		loadAsync(refreshedPeriod).thenAcceptBoth(counts, (data, allCounts) -> ui.access(() -> {
+			allLocationsCounts = allCounts;
+			boolean redrawTodayCount = location.getValue() == null && allCounts.getAsBoolean();
+			if (refreshedPeriod.equals(period) && periodData == shownData && data != shownData) {
+				redrawTodayCount |= applyDelta(shownData, data);
+			}
+			if (redrawTodayCount) {
+				todayCountChart.drawChart(true);
+			}
+		})).exceptionally(e -> {
+			getLogger().warn("Unable to refresh the dashboard", e);
+			return null;
+		});
+	}
+
+	/**
+	 * Mostra os dados novos do período, atualizando só os pontos que mudaram.
+	 * Os gráficos que não podem ser atualizados ponto a ponto são preenchidos e
+	 * redesenhados.
+	 *
+	 * @param shownData dados de todos os locais mostrados até agora
+	 * @param newData   dados novos de todos os locais
+	 * @return {@code true} se o gráfico de hoje tem de ser redesenhado
+	 */
+	private boolean applyDelta(DashboardData shownData, DashboardData newData) {
+		periodData = newData;
+		DashboardData shown = forSelectedLocation(shownData);
+		DashboardData data = forSelectedLocation(newData);
+
+		redrawIfNotComparable(deliveriesThisMonthChart,
+				ChartDeltas.update(listSeries(deliveriesThisMonthChart, 0), shown.getDeliveriesThisMonth(),
+						data.getDeliveriesThisMonth()),
+				data, this::populateDeliveriesThisMonthChart);
+		redrawIfNotComparable(deliveriesThisYearChart,
+				ChartDeltas.update(listSeries(deliveriesThisYearChart, 0), shown.getDeliveriesThisYear(),
+						data.getDeliveriesThisYear()),
+				data, this::populateDeliveriesThisYearChart);
+		int salesUpdated = 0;
+		for (int i = 0; i < 3 && salesUpdated != ChartDeltas.NOT_COMPARABLE; i++) {
+			int updated = ChartDeltas.update(listSeries(yearlySalesGraph, i), shown.getSalesPerMonth(i),
+					data.getSalesPerMonth(i));
+			salesUpdated = updated == ChartDeltas.NOT_COMPARABLE ? updated : salesUpdated + updated;
+		}
+		redrawIfNotComparable(yearlySalesGraph, salesUpdated, data, this::populateYearlySalesChart);
+		redrawIfNotComparable(monthlyProductSplit,
+				ChartDeltas.update((DataSeries) monthlyProductSplit.getConfiguration().getSeries().get(0),
+						shown.getProductDeliveries(), data.getProductDeliveries()),
+				data, d -> initProductSplitMonthlyGraph(d.getProductDeliveries()));
+
+		return location.getValue() != null && populateLocationOrdersCounts(data.getDeliveryStats());
+	}
+
+	/**
+	 * Preenche e redesenha um gráfico cujos pontos não puderam ser atualizados
+	 * um a um.
+	 *
+	 * @param chart    gráfico
+	 * @param updated  resultado de {@link ChartDeltas}
+	 * @param data     dados novos
+	 * @param populate preenche a configuração do gráfico a partir dos dados
+	 */
+	private void redrawIfNotComparable(Chart chart, int updated, DashboardData data,
+			Consumer<DashboardData> populate) {
+		if (updated == ChartDeltas.NOT_COMPARABLE) {
+			populate.accept(data);
+			chart.drawChart(true);
+		}
+	}
+
+	/**
+	 * Limita um período ao mês atual, para que avançar um ano a partir de um mês
+	 * do ano passado mostre o mês atual.
+	 *
+	 * @param dataPeriod período pretendido
+	 * @return o período, ou o mês atual se for posterior
+	 */
+	private static YearMonth latest(YearMonth dataPeriod) {
+		YearMonth now = YearMonth.now();
+		return dataPeriod.isAfter(now) ? now : dataPeriod;
+	}
+
+	/**
+	 * Limita um período ao mês da encomenda mais antiga, para que recuar um ano
+	 * não mostre períodos sem encomendas.
+	 *
+	 * @param dataPeriod período pretendido
+	 * @return o período, ou o mês da encomenda mais antiga se for anterior
+	 */
+	private YearMonth earliest(YearMonth dataPeriod) {
+		YearMonth first = firstPeriod();
+		return dataPeriod.isBefore(first) ? first : dataPeriod;
+	}
+
+	/**
+	 * Devolve o mês da encomenda mais antiga, ou o mês atual se não houver
+	 * encomendas.
+	 *
+	 * @return o primeiro período com encomendas
+	 */
+	private YearMonth firstPeriod() {
+		return orderService.findEarliestDueDate().map(YearMonth::from).map(DashboardView::latest)
+				.orElseGet(YearMonth::now);
+	}
+
+	private static ListSeries listSeries(Chart chart, int index) {
+		return (ListSeries) chart.getConfiguration().getSeries().get(index);
+	}
+
+	/**
+	 * Mostra nos gráficos o período indicado.
+	 * <p>
+	 * Os dados do período são obtidos em segundo plano e, quando estão
+	 * disponíveis, os meses adjacentes são pré-calculados. Não é possível
+	 * avançar para lá do mês atual nem recuar para antes do mês da encomenda mais
+	 * antiga.
+	 * </p>
+	 *
+	 * @param ui        UI a que a vista pertence
+	 * @param newPeriod período a mostrar
+	 * @param initial   {@code true} no primeiro carregamento da vista, cujos
+	 *                  tempos são medidos
+	 */
+	private void showPeriod(UI ui, YearMonth newPeriod, boolean initial) {
+		period = newPeriod;
+		periodData = null;
+		boolean current = !newPeriod.isBefore(YearMonth.now());
+		boolean first = !newPeriod.isAfter(firstPeriod());
+		periodLabel.setText(FormattingUtils.getFullMonthName(newPeriod.atDay(1)) + " " + newPeriod.getYear());
+		nextPeriod.setEnabled(!current);
+		nextYear.setEnabled(!current);
+		previousPeriod.setEnabled(!first);
+		previousYear.setEnabled(!first);
+
+		CompletableFuture<DashboardData> data = loadAsync(newPeriod);
+		fillAsync(ui, data, newPeriod, initial, deliveriesThisMonthChart, this::populateDeliveriesThisMonthChart);
+		fillAsync(ui, data, newPeriod, initial, deliveriesThisYearChart, this::populateDeliveriesThisYearChart);
+		fillAsync(ui, data, newPeriod, initial, yearlySalesGraph, this::populateYearlySalesChart);
+		fillAsync(ui, data, newPeriod, initial, monthlyProductSplit,
+				d -> initProductSplitMonthlyGraph(d.getProductDeliveries()));
+
+		data.thenRun(() -> {
+			if (!first) {
+				prefetch(newPeriod.minusMonths(1));
+			}
+			if (!current) {
+				prefetch(newPeriod.plusMonths(1));
+			}
+		});
+	}
+
+	/**
+	 * Obtém em segundo plano os dados do dashboard de um período, ficando estes
+	 * na cache partilhada para pedidos seguintes.
+	 *
+	 * @param dataPeriod período a obter
+	 * @return dados do dashboard, ainda em carregamento
+	 */
+	private CompletableFuture<DashboardData> loadAsync(YearMonth dataPeriod) {
+		return CompletableFuture.supplyAsync(
+				() -> orderService.getDashboardData(dataPeriod.getMonthValue(), dataPeriod.getYear()), taskExecutor);
+	}
+
+	/**
+	 * Pré-calcula os dados de um período adjacente ao mostrado.
+	 *
+	 * @param dataPeriod período a pré-calcular
+	 */
+	private void prefetch(YearMonth dataPeriod) {
+		loadAsync(dataPeriod).exceptionally(e -> {
+			getLogger().warn("Unable to prefetch the dashboard data for {}", dataPeriod, e);
+			return null;
+		});
+	}
+
+	/**
+	 * Preenche um gráfico quando os dados estiverem disponíveis, se o período
+	 * ainda for o mostrado.
+	 *
+	 * @param ui         UI a que a vista pertence
+	 * @param data       dados do dashboard, ainda em carregamento
+	 * @param dataPeriod período a que os dados dizem respeito
+	 * @param initial    {@code true} no primeiro carregamento da vista
+	 * @param chart      gráfico a preencher
+	 * @param populate   preenche a configuração do gráfico a partir dos dados
+	 */
+	private void fillAsync(UI ui, CompletableFuture<DashboardData> data, YearMonth dataPeriod, boolean initial,
+			Chart chart, Consumer<DashboardData> populate) {
+		data.thenAccept(d -> ui.access(() -> {
+			if (!dataPeriod.equals(period)) {
+				return;
+			}
+			if (periodData != d) {
+				periodData = d;
+				if (location.getValue() != null
+						&& populateLocationOrdersCounts(forSelectedLocation(d).getDeliveryStats())) {
+					todayCountChart.drawChart(true);
+				}
+			}
+			populate.accept(forSelectedLocation(d));
+			chart.drawChart(!initial);
+			if (initial) {
+				chartLoaded();
+			}
+		})).exceptionally(e -> {
+			getLogger().error("Unable to load the dashboard charts", e);
+			return null;
+		});
+	}
+
+	/**
+	 * Volta a preencher os gráficos e contadores para o local escolhido, a partir
+	 * dos dados já carregados do período.
+	 */
+	private void showLocation() {
+		if (periodData == null) {
+			// Os gráficos usam o local escolhido quando os dados chegarem
+			return;
+		}
+		DashboardData data = forSelectedLocation(periodData);
+		populateDeliveriesThisMonthChart(data);
+		populateDeliveriesThisYearChart(data);
 		populateYearlySalesChart(data);
-		populateDeliveriesCharts(data);
-		populateOrdersCounts(data.getDeliveryStats());
 		initProductSplitMonthlyGraph(data.getProductDeliveries());
+		if (location.getValue() == null) {
+			if (allLocationsCounts != null) {
+				allLocationsCounts.getAsBoolean();
+			}
+		} else {
+			populateLocationOrdersCounts(data.getDeliveryStats());
+		}
+		for (Chart chart : new Chart[] { deliveriesThisMonthChart, deliveriesThisYearChart, yearlySalesGraph,
+				monthlyProductSplit, todayCountChart }) {
+			chart.drawChart(true);
+		}
+	}
 
-		measurePageLoadPerformance();
+	/**
+	 * Devolve os dados do local escolhido, ou de todos os locais se nenhum estiver
+	 * escolhido.
+	 *
+	 * @param data dados de todos os locais
+	 * @return dados a mostrar
+	 */
+	private DashboardData forSelectedLocation(DashboardData data) {
+		PickupLocation selected = location.getValue();
+		return selected == null ? data : data.getLocationData(selected.getId());
 	}
 
 	/**
-	 * Mede o tempo de carregamento da página através da contagem de gráficos
-	 * carregados. Quando todos os gráficos estiverem prontos executa um JS que
-	 * sinaliza a conclusão.
+	 * Inicia a medição do tempo de carregamento da página.
+	 *
+	 * <p>
+	 * O tempo é contado a partir da criação da vista. Quando o primeiro gráfico
+	 * preenchido em segundo plano é mostrado e quando todos estão prontos, os tempos são
+	 * registados no log e é executado um JS que marca o momento no browser
+	 * ({@code bakery-first-chart-loaded} e {@code bakery-all-charts-loaded}).
+	 * </p>
 	 *
 	 * <p>
 	 * Este método é útil para monitorização e pode ser removido se não for
@@ -155,20 +626,26 @@ public class DashboardView extends LitTemplate {
 	 * </p>
 	 */
 	private void measurePageLoadPerformance() {
-		final int nTotal = 5; // the total number of charts on the page
-		AtomicInteger nLoaded = new AtomicInteger();
-		ComponentEventListener<ChartLoadEvent> chartLoadListener = (event) -> {
-			nLoaded.addAndGet(1);
-			if (nLoaded.get() == nTotal) {
-				UI.getCurrent().getPage().executeJs("$0._chartsLoadedResolve()", this);
-			}
-		};
+		loadStartNanos = System.nanoTime();
+		chartsLoaded = 0;
+	}
 
-		todayCountChart.addChartLoadListener(chartLoadListener);
-		deliveriesThisMonthChart.addChartLoadListener(chartLoadListener);
-		deliveriesThisYearChart.addChartLoadListener(chartLoadListener);
-		yearlySalesGraph.addChartLoadListener(chartLoadListener);
-		monthlyProductSplit.addChartLoadListener(chartLoadListener);
+	/**
+	 * Regista que mais um gráfico preenchido em segundo plano foi mostrado,
+	 * reportando o tempo até ao primeiro gráfico e o tempo até todos os
+	 * gráficos estarem prontos.
+	 */
+	private void chartLoaded() {
+		chartsLoaded++;
+		long elapsedMillis = (System.nanoTime() - loadStartNanos) / 1_000_000;
+		if (chartsLoaded == 1) {
+			getLogger().debug("Time to first chart: {} ms", elapsedMillis);
+			UI.getCurrent().getPage().executeJs("$0._firstChartLoaded()", this);
+		}
+		if (chartsLoaded == ASYNC_CHART_COUNT) {
+			getLogger().debug("Time to all charts: {} ms", elapsedMillis);
+			UI.getCurrent().getPage().executeJs("$0._chartsLoadedResolve()", this);
+		}
 	}
 
 	/**
@@ -177,39 +654,101 @@ public class DashboardView extends LitTemplate {
 	 * @param productDeliveries mapa com produtos e respetivas quantidades entregues
 	 */
 	private void initProductSplitMonthlyGraph(Map<Product, Integer> productDeliveries) {
-
-		LocalDate today = LocalDate.now();
-
 		Configuration conf = monthlyProductSplit.getConfiguration();
 		conf.getChart().setType(ChartType.PIE);
 		conf.getChart().setBorderRadius(4);
 		conf.getChart().setStyledMode(true);
-		conf.setTitle("Products delivered in " + FormattingUtils.getFullMonthName(today));
+		conf.setTitle("Products delivered in " + FormattingUtils.getFullMonthName(period.atDay(1)));
 		DataSeries deliveriesPerProductSeries = new DataSeries(productDeliveries.entrySet().stream()
 				.map(e -> new DataSeriesItem(e.getKey().getName(), e.getValue())).collect(Collectors.toList()));
 		PlotOptionsPie plotOptionsPie = new PlotOptionsPie();
 		plotOptionsPie.setInnerSize("60%");
 		plotOptionsPie.getDataLabels().setCrop(false);
 		deliveriesPerProductSeries.setPlotOptions(plotOptionsPie);
-		conf.addSeries(deliveriesPerProductSeries);
+		conf.setSeries(deliveriesPerProductSeries);
 	}
 
 	/**
-	 * Popula os contadores de encomendas (hoje, indisponíveis, novas e amanhã).
+	 * Calcula os dados dos contadores de todos os locais, incluindo os
+	 * subtítulos.
 	 *
 	 * @param deliveryStats estatísticas de entrega
+	 * @return mostra os dados nos contadores, devolvendo se o gráfico de hoje tem
+	 *         de ser redesenhado
 	 */
-	private void populateOrdersCounts(DeliveryStats deliveryStats) {
-		List<OrderSummary> orders = orderService.findAnyMatchingStartingToday();
+	private BooleanSupplier ordersCounts(DeliveryStats deliveryStats) {
+		LocalDate today = LocalDate.now();
 
 		OrdersCountDataWithChart todaysOrdersCountData = DashboardUtils
-				.getTodaysOrdersCountData(deliveryStats, orders.iterator());
-		todayCount.setOrdersCountData(todaysOrdersCountData);
-		initTodayCountSolidgaugeChart(todaysOrdersCountData);
-		notAvailableCount.setOrdersCountData(DashboardUtils.getNotAvailableOrdersCountData(deliveryStats));
-		Order lastOrder = orderService.load(orders.get(orders.size() - 1).getId());
-		newCount.setOrdersCountData(DashboardUtils.getNewOrdersCountData(deliveryStats, lastOrder));
-		tomorrowCount.setOrdersCountData(DashboardUtils.getTomorrowOrdersCountData(deliveryStats, orders.iterator()));
+				.getTodaysOrdersCountData(deliveryStats, orderService.findDueStartingFrom(today, OrderState.READY));
+		OrdersCountData notAvailableOrdersCountData = DashboardUtils.getNotAvailableOrdersCountData(deliveryStats);
+		OrdersCountData newOrdersCountData = DashboardUtils.getNewOrdersCountData(deliveryStats,
+				orderService.findLatestOrderPlacedTimestamp().orElse(null));
+		OrdersCountData tomorrowOrdersCountData = DashboardUtils.getTomorrowOrdersCountData(deliveryStats,
+				orderService.findDueStartingFrom(today.plusDays(1)));
+
+		return () -> setOrdersCounts(todaysOrdersCountData, notAvailableOrdersCountData, newOrdersCountData,
+				tomorrowOrdersCountData);
+	}
+
+	/**
+	 * Popula os contadores de encomendas de um local de levantamento.
+	 * <p>
+	 * Os subtítulos (próxima entrega, última encomenda) só são calculados para
+	 * todos os locais, pelo que aqui ficam vazios.
+	 * </p>
+	 *
+	 * @param deliveryStats estatísticas de entrega do local
+	 * @return {@code true} se o gráfico de hoje tem de ser redesenhado
+	 */
+	private boolean populateLocationOrdersCounts(DeliveryStats deliveryStats) {
+		return setOrdersCounts(DashboardUtils.getTodaysOrdersCountData(deliveryStats, Collections.emptyIterator()),
+				DashboardUtils.getNotAvailableOrdersCountData(deliveryStats),
+				DashboardUtils.getNewOrdersCountData(deliveryStats, null),
+				DashboardUtils.getTomorrowOrdersCountData(deliveryStats, Collections.emptyIterator()));
+	}
+
+	/**
+	 * Mostra os dados de contagem nos contadores.
+	 *
+	 * @param today        encomendas restantes de hoje
+	 * @param notAvailable encomendas indisponíveis
+	 * @param newOrders    novas encomendas
+	 * @param tomorrow     encomendas de amanhã
+	 * @return {@code true} se o gráfico de hoje tem de ser redesenhado
+	 */
+	private boolean setOrdersCounts(OrdersCountDataWithChart today, OrdersCountData notAvailable,
+			OrdersCountData newOrders, OrdersCountData tomorrow) {
+		todayCount.setOrdersCountData(today);
+		notAvailableCount.setOrdersCountData(notAvailable);
+		newCount.setOrdersCountData(newOrders);
+		tomorrowCount.setOrdersCountData(tomorrow);
+		return updateTodayCountSolidgaugeChart(today);
+	}
+
+	/**
+	 * Atualiza o gráfico do contador de hoje. Se o total do dia não mudou, só o
+	 * valor do ponto é enviado; caso contrário o gráfico é configurado de novo.
+	 *
+	 * @param data dados de contagem de encomendas de hoje
+	 * @return {@code true} se o gráfico foi configurado de novo e tem de ser
+	 *         redesenhado
+	 */
+	private boolean updateTodayCountSolidgaugeChart(OrdersCountDataWithChart data) {
+		Configuration configuration = todayCountChart.getConfiguration();
+		List<Series> series = configuration.getSeries();
+		Number max = configuration.getyAxis().getMax();
+		if (series.size() != 1 || max == null || max.intValue() != data.getOverall()) {
+			initTodayCountSolidgaugeChart(data);
+			return true;
+		}
+		DataSeries gauge = (DataSeries) series.get(0);
+		DataSeriesItem point = gauge.get(0);
+		if (point.getY() == null || point.getY().intValue() != data.getCount()) {
+			point.setY(data.getCount());
+			gauge.update(point);
+		}
+		return false;
 	}
 
 	/**
@@ -250,33 +789,36 @@ public class DashboardView extends LitTemplate {
 	}
 
 	/**
-	 * Popula os gráficos de entregas do ano e do mês atual.
+	 * Popula o gráfico de entregas do ano do período mostrado.
 	 *
 	 * @param data dados consolidados do dashboard
 	 */
-	private void populateDeliveriesCharts(DashboardData data) {
-		LocalDate today = LocalDate.now();
-
-		// init the 'Deliveries in [this year]' chart
+	private void populateDeliveriesThisYearChart(DashboardData data) {
 		Configuration yearConf = deliveriesThisYearChart.getConfiguration();
 		configureColumnChart(yearConf);
 
-		yearConf.setTitle("Deliveries in " + today.getYear());
+		yearConf.setTitle("Deliveries in " + period.getYear());
 		yearConf.getxAxis().setCategories(MONTH_LABELS);
-		yearConf.addSeries(new ListSeries("per Month", data.getDeliveriesThisYear()));
+		yearConf.setSeries(new ListSeries("per Month", data.getDeliveriesThisYear().toNumbers()));
 		yearConf.getChart().setStyledMode(true);
+	}
 
-		// init the 'Deliveries in [this month]' chart
+	/**
+	 * Popula o gráfico de entregas do mês do período mostrado.
+	 *
+	 * @param data dados consolidados do dashboard
+	 */
+	private void populateDeliveriesThisMonthChart(DashboardData data) {
 		Configuration monthConf = deliveriesThisMonthChart.getConfiguration();
 		configureColumnChart(monthConf);
 
-		List<Number> deliveriesThisMonth = data.getDeliveriesThisMonth();
+		TimeSeries deliveriesThisMonth = data.getDeliveriesThisMonth();
 		String[] deliveriesThisMonthCategories = IntStream.rangeClosed(1, deliveriesThisMonth.size())
 				.mapToObj(String::valueOf).toArray(String[]::new);
 
-		monthConf.setTitle("Deliveries in " + FormattingUtils.getFullMonthName(today));
+		monthConf.setTitle("Deliveries in " + FormattingUtils.getFullMonthName(period.atDay(1)));
 		monthConf.getxAxis().setCategories(deliveriesThisMonthCategories);
-		monthConf.addSeries(new ListSeries("per Day", deliveriesThisMonth));
+		monthConf.setSeries(new ListSeries("per Day", deliveriesThisMonth.toNumbers()));
 	}
 
 	/**
@@ -299,7 +841,7 @@ public class DashboardView extends LitTemplate {
 	}
 
 	/**
-	 * Preenche o gráfico de vendas anuais (últimos 3 anos).
+	 * Preenche o gráfico de vendas anuais (3 anos até ao ano do período mostrado).
 	 *
 	 * @param data dados consolidados do dashboard
 	 */
@@ -316,9 +858,46 @@ public class DashboardView extends LitTemplate {
 
 		conf.getyAxis().getTitle().setText(null);
 
-		int year = Year.now().getValue();
+		int year = period.getYear();
+		List<Series> series = new ArrayList<>();
 		for (int i = 0; i < 3; i++) {
-			conf.addSeries(new ListSeries(Integer.toString(year - i), data.getSalesPerMonth(i)));
+			series.add(new ListSeries(Integer.toString(year - i), data.getSalesPerMonth(i).toNumbers()));
+		}
+		conf.setSeries(series);
+	}
+
+	/**
+	 * Preenche o gráfico da previsão de vendas por produto para o próximo mês e
+	 * o próximo trimestre.
+	 * <p>
+	 * A previsão é calculada periodicamente em segundo plano, pelo que aqui só
+	 * é lida a última disponível. Enquanto não houver nenhuma, o gráfico fica
+	 * vazio.
+	 * </p>
+	 *
+	 * @param forecast última previsão calculada, se existir
+	 */
+	private void populateSalesForecastChart(Optional<SalesForecast> forecast) {
+		Configuration conf = salesForecastChart.getConfiguration();
+		conf.getChart().setType(ChartType.COLUMN);
+		conf.getChart().setBorderRadius(4);
+		conf.getChart().setStyledMode(true);
+
+		conf.getyAxis().getTitle().setText(null);
+
+		if (forecast.isPresent()) {
+			List<SalesForecast.ProductForecast> products = forecast.get().getProducts();
+			conf.setTitle("Sales forecast from "
+					+ FormattingUtils.getFullMonthName(forecast.get().getNextMonth().atDay(1)));
+			conf.getxAxis().setCategories(
+					products.stream().map(p -> p.getProduct().getName()).toArray(String[]::new));
+			conf.setSeries(
+					new ListSeries("Next month",
+							products.stream().map(SalesForecast.ProductForecast::getNextMonth).toArray(Number[]::new)),
+					new ListSeries("Next quarter",
+							products.stream().map(SalesForecast.ProductForecast::getNextQuarter).toArray(Number[]::new)));
+		} else {
+			conf.setTitle("Sales forecast not available yet");
 		}
 	}
 }
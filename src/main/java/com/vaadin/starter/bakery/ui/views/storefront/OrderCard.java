@@ -1,12 +1,5 @@
 package com.vaadin.starter.bakery.ui.views.storefront;
 
-import static com.vaadin.starter.bakery.ui.utils.FormattingUtils.HOUR_FORMATTER;
-import static com.vaadin.starter.bakery.ui.utils.FormattingUtils.MONTH_AND_DAY_FORMATTER;
-import static com.vaadin.starter.bakery.ui.utils.FormattingUtils.SHORT_DAY_FORMATTER;
-import static com.vaadin.starter.bakery.ui.utils.FormattingUtils.WEEKDAY_FULLNAME_FORMATTER;
-import static com.vaadin.starter.bakery.ui.utils.FormattingUtils.WEEK_OF_YEAR_FIELD;
-
-import java.time.LocalDate;
 import java.util.List;
 
 import com.vaadin.flow.data.renderer.LitRenderer;
@@ -21,6 +14,10 @@ import com.vaadin.starter.bakery.backend.data.entity.OrderSummary;
  * Uses {@link LitRenderer} to reduce CPU and memory usage compared
  * to {@link com.vaadin.flow.data.renderer.ComponentRenderer}.
  * The card may optionally include a header to group orders visually by date or category.
+ * <p>
+ * The date dependent texts come from the {@link OrderCardRenderContext} of the
+ * current day, so creating a card does no date calculations or formatting of
+ * its own.
  */
 public class OrderCard {
 
@@ -48,12 +45,14 @@ public class OrderCard {
      * @return a new {@link OrderCard} instance.
      */
 	public static OrderCard create(OrderSummary order) {
-		return new OrderCard(order);
+		return new OrderCard(order, OrderCardRenderContext.current());
 	}
 
-	private boolean recent, inWeek;
+	private final boolean recent, inWeek;
 
 	private final OrderSummary order;
+	private final OrderCardRenderContext context;
+	private final OrderCardRenderContext.DueDate dueDate;
 
     /**
      * Constructs an {@link OrderCard} from an {@link OrderSummary}.
@@ -63,11 +62,22 @@ public class OrderCard {
      * @param order the order summary to wrap.
      */
 	public OrderCard(OrderSummary order) {
+		this(order, OrderCardRenderContext.current());
+	}
+
+    /**
+     * Constructs an {@link OrderCard} from an {@link OrderSummary}, using the
+     * given render context for the date dependent texts.
+     *
+     * @param order   the order summary to wrap.
+     * @param context the render context.
+     */
+	OrderCard(OrderSummary order, OrderCardRenderContext context) {
 		this.order = order;
-		LocalDate now = LocalDate.now();
-		LocalDate date = order.getDueDate();
-		recent = date.equals(now) || date.equals(now.minusDays(1));
-		inWeek = !recent && now.getYear() == date.getYear() && now.get(WEEK_OF_YEAR_FIELD) == date.get(WEEK_OF_YEAR_FIELD);
+		this.context = context;
+		dueDate = context.getDueDate(order.getDueDate());
+		recent = dueDate.isRecent();
+		inWeek = dueDate.isInWeek();
 	}
 
     /**
@@ -85,7 +95,7 @@ public class OrderCard {
      * @return the due time as a string, or null if the order is not recent.
      */
 	public String getTime() {
-		return recent ? HOUR_FORMATTER.format(order.getDueTime()) : null;
+		return recent ? context.formatDueTime(order.getDueTime()) : null;
 	}
 
     /**
@@ -94,7 +104,7 @@ public class OrderCard {
      * @return a short day string, or null if the order is not in the same week.
      */
 	public String getShortDay() {
-		return inWeek ? SHORT_DAY_FORMATTER.format(order.getDueDate()) : null;
+		return dueDate.getShortDay();
 	}
 
     /**
@@ -103,7 +113,7 @@ public class OrderCard {
      * @return the due time as a string, or null if the order is not in the same week.
      */
 	public String getSecondaryTime() {
-		return inWeek ? HOUR_FORMATTER.format(order.getDueTime()) : null;
+		return inWeek ? context.formatDueTime(order.getDueTime()) : null;
 	}
 
     /**
@@ -112,7 +122,7 @@ public class OrderCard {
      * @return the month and day as a string, or null if the order is recent or in the same week.
      */
 	public String getMonth() {
-		return recent || inWeek ? null : MONTH_AND_DAY_FORMATTER.format(order.getDueDate());
+		return dueDate.getMonth();
 	}
 
     /**
@@ -121,7 +131,7 @@ public class OrderCard {
      * @return the full weekday name, or null if the order is recent or in the same week.
      */
 	public String getFullDay() {
-		return recent || inWeek ? null : WEEKDAY_FULLNAME_FORMATTER.format(order.getDueDate());
+		return dueDate.getFullDay();
 	}
 
     /**
@@ -1,13 +1,12 @@
 package com.vaadin.starter.bakery.ui.views.storefront;
 
+import java.time.Clock;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.Iterator;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
-import java.util.Map;
-import java.util.function.Predicate;
 
 import com.vaadin.starter.bakery.backend.data.entity.Order;
 import com.vaadin.starter.bakery.ui.views.storefront.beans.OrderCardHeader;
@@ -17,135 +16,58 @@ import com.vaadin.starter.bakery.ui.views.storefront.beans.OrderCardHeader;
  * <p>
  * Headers are based on the due date of orders and can represent periods such as
  * "Today", "Yesterday", "This week", "Upcoming", etc.
- * This class maps each order to an appropriate header and maintains the
- * chronological order of headers.
+ * This class maps the first order of each period to the header of the period.
+ * </p>
+ * <p>
+ * The periods are computed once per day as ranges of epoch days, so finding the
+ * period of an order is a few integer comparisons. Only the first order of each
+ * period is remembered, so the memory used does not grow with the number of
+ * orders read. As the orders are sorted by due date, due time and id, the first
+ * order of a period is the smallest one read so far. Pages can therefore be read
+ * in any order: an order that precedes the current first order of its period
+ * takes over the header. Most pages lie within a period whose first order has
+ * already been read, and are skipped after looking at their first and last
+ * order.
+ * </p>
  */
 public class OrderCardHeaderGenerator {
 
-    /**
-     * A wrapper class to associate a date matching predicate with a header
-     * and track the last selected order for that header.
-     */
-    private class HeaderWrapper {
-        private Predicate<LocalDate> matcher;
-        private OrderCardHeader header;
-        private Long selected;
-
-        /**
-         * Constructs a HeaderWrapper.
-         *
-         * @param matcher A predicate to match dates against this header.
-         * @param header  The OrderCardHeader associated with this predicate.
-         */
-        public HeaderWrapper(Predicate<LocalDate> matcher, OrderCardHeader header) {
-            this.matcher = matcher;
-            this.header = header;
-        }
+    private static final DateTimeFormatter HEADER_DATE_TIME_FORMATTER = DateTimeFormatter.ofPattern("EEE, MMM d");
 
-        /**
-         * Checks if the given date matches this header.
-         *
-         * @param date The date to test.
-         * @return true if the date matches; false otherwise.
-         */
-        public boolean matches(LocalDate date) {
-            return matcher.test(date);
-        }
+    /** Marks a period without a first order. */
+    private static final long NONE = Long.MIN_VALUE;
 
-        /**
-         * Returns the last selected order ID for this header.
-         *
-         * @return The last selected order ID.
-         */
-        public Long getSelected() {
-            return selected;
-        }
+    private final Clock clock;
+    private boolean showPrevious;
 
-        /**
-         * Sets the last selected order ID for this header.
-         *
-         * @param selected The order ID to set.
-         */
-        public void setSelected(Long selected) {
-            this.selected = selected;
-        }
+    /** The epoch day the periods have been computed for. */
+    private long day = NONE;
 
-        /**
-         * Returns the OrderCardHeader associated with this wrapper.
-         *
-         * @return The header.
-         */
-        public OrderCardHeader getHeader() {
-            return header;
-        }
-    }
+    /** The first epoch day of the first period. */
+    private long start;
 
-    private final DateTimeFormatter HEADER_DATE_TIME_FORMATTER = DateTimeFormatter.ofPattern("EEE, MMM d");
-    private final Map<Long, OrderCardHeader> ordersWithHeaders = new HashMap<>();
-    private List<HeaderWrapper> headerChain = new ArrayList<>();
+    /** The epoch day after the last day of each period, in chronological order. */
+    private long[] periodEnds = new long[0];
+    private OrderCardHeader[] headers = new OrderCardHeader[0];
 
-    /**
-     * Generates a header for recent orders (before this week).
-     *
-     * @return The "Recent" OrderCardHeader.
-     */
-    private OrderCardHeader getRecentHeader() {
-        return new OrderCardHeader("Recent", "Before this week");
-    }
+    /** The id of the first order read in each period, or {@link #NONE}. */
+    private long[] firstIds = new long[0];
+    private Order[] firstOrders = new Order[0];
 
     /**
-     * Generates a header for orders from yesterday.
-     *
-     * @return The "Yesterday" OrderCardHeader.
+     * Creates a generator for the periods around the current date.
      */
-    private OrderCardHeader getYesterdayHeader() {
-        LocalDate yesterday = LocalDate.now().minusDays(1);
-        return new OrderCardHeader("Yesterday", secondaryHeaderFor(yesterday));
+    public OrderCardHeaderGenerator() {
+        this(Clock.systemDefaultZone());
     }
 
     /**
-     * Generates a header for orders from today.
+     * Creates a generator for the periods around the date of the given clock.
      *
-     * @return The "Today" OrderCardHeader.
+     * @param clock the clock
      */
-    private OrderCardHeader getTodayHeader() {
-        LocalDate today = LocalDate.now();
-        return new OrderCardHeader("Today", secondaryHeaderFor(today));
-    }
-
-    /**
-     * Generates a header for orders from this week before yesterday.
-     *
-     * @return The "This week before yesterday" OrderCardHeader.
-     */
-    private OrderCardHeader getThisWeekBeforeYesterdayHeader() {
-        LocalDate today = LocalDate.now();
-        LocalDate yesterday = today.minusDays(1);
-        LocalDate thisWeekStart = today.minusDays(today.getDayOfWeek().getValue() - 1);
-        return new OrderCardHeader("This week before yesterday", secondaryHeaderFor(thisWeekStart, yesterday));
-    }
-
-    /**
-     * Generates a header for orders from this week starting tomorrow.
-     *
-     * @param showPrevious Whether to show previous headers.
-     * @return The corresponding OrderCardHeader.
-     */
-    private OrderCardHeader getThisWeekStartingTomorrow(boolean showPrevious) {
-        LocalDate today = LocalDate.now();
-        LocalDate tomorrow = today.plusDays(1);
-        LocalDate nextWeekStart = today.minusDays(today.getDayOfWeek().getValue()).plusWeeks(1);
-        return new OrderCardHeader(showPrevious ? "This week starting tomorrow" : "This week",
-                secondaryHeaderFor(tomorrow, nextWeekStart));
-    }
-
-    /**
-     * Generates a header for upcoming orders (after this week).
-     *
-     * @return The "Upcoming" OrderCardHeader.
-     */
-    private OrderCardHeader getUpcomingHeader() {
-        return new OrderCardHeader("Upcoming", "After this week");
+    OrderCardHeaderGenerator(Clock clock) {
+        this.clock = clock;
     }
 
     /**
@@ -154,7 +76,7 @@ public class OrderCardHeaderGenerator {
      * @param date The date to format.
      * @return The formatted date string.
      */
-    private String secondaryHeaderFor(LocalDate date) {
+    private static String secondaryHeaderFor(LocalDate date) {
         return HEADER_DATE_TIME_FORMATTER.format(date);
     }
 
@@ -165,7 +87,7 @@ public class OrderCardHeaderGenerator {
      * @param end   The end date.
      * @return The formatted date range string.
      */
-    private String secondaryHeaderFor(LocalDate start, LocalDate end) {
+    private static String secondaryHeaderFor(LocalDate start, LocalDate end) {
         return secondaryHeaderFor(start) + " - " + secondaryHeaderFor(end);
     }
 
@@ -176,7 +98,15 @@ public class OrderCardHeaderGenerator {
      * @return The associated OrderCardHeader, or null if none exists.
      */
     public OrderCardHeader get(Long id) {
-        return ordersWithHeaders.get(id);
+        if (id == null) {
+            return null;
+        }
+        for (int i = 0; i < firstIds.length; i++) {
+            if (firstIds[i] == id) {
+                return headers[i];
+            }
+        }
+        return null;
     }
 
     /**
@@ -185,63 +115,180 @@ public class OrderCardHeaderGenerator {
      * @param showPrevious Whether to include headers for previous periods.
      */
     public void resetHeaderChain(boolean showPrevious) {
-        this.headerChain = createHeaderChain(showPrevious);
-        ordersWithHeaders.clear();
+        this.showPrevious = showPrevious;
+        createPeriods(LocalDate.now(clock));
     }
 
     /**
-     * Processes a list of orders and assigns each order to its appropriate header.
+     * Processes a list of orders and assigns each order that is the first one
+     * read in its period to the header of the period.
+     * <p>
+     * When the date has changed since the previous call, the periods are
+     * computed again. The orders that had a header are then placed in the new
+     * periods and returned, as the header shown with them has changed or is
+     * gone.
+     * </p>
      *
-     * @param orders The list of orders to process.
+     * @param orders The list of orders to process, in any order.
+     * @return The orders whose header has changed, either because they lost it
+     *         to a preceding order or because of a date change, so that they can
+     *         be refreshed.
      */
-    public void ordersRead(List<Order> orders) {
-        Iterator<HeaderWrapper> headerIterator = headerChain.stream().filter(h -> h.getSelected() == null).iterator();
-        if (!headerIterator.hasNext()) {
-            return;
+    public List<Order> ordersRead(List<Order> orders) {
+        List<Order> changed = Collections.emptyList();
+        LocalDate today = LocalDate.now(clock);
+        if (today.toEpochDay() != day) {
+            // The periods are relative to the current date
+            changed = headedOrders();
+            createPeriods(today);
+            assign(changed);
+        }
+
+        if (orders.isEmpty() || isCovered(orders)) {
+            return changed;
         }
 
-        HeaderWrapper current = headerIterator.next();
+        List<Order> displaced = assign(orders);
+        if (changed.isEmpty()) {
+            return displaced;
+        }
+        for (Order order : displaced) {
+            if (!changed.contains(order)) {
+                changed.add(order);
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Makes each of the given orders the first order of its period if it
+     * precedes the current one.
+     *
+     * @param orders the orders to assign
+     * @return the orders that had a header and have lost it
+     */
+    private List<Order> assign(List<Order> orders) {
+        List<Order> displaced = Collections.emptyList();
         for (Order order : orders) {
-            // If last selected, discard orders that match it.
-            if (current.getSelected() != null && current.matches(order.getDueDate())) {
+            int period = periodOf(order.getDueDate().toEpochDay());
+            if (period < 0) {
                 continue;
             }
-            while (current != null && !current.matches(order.getDueDate())) {
-                current = headerIterator.hasNext() ? headerIterator.next() : null;
+            Order first = firstOrders[period];
+            if (first == null || precedes(order, first)) {
+                if (first != null && !first.getId().equals(order.getId())) {
+                    if (displaced.isEmpty()) {
+                        displaced = new ArrayList<>();
+                    }
+                    displaced.add(first);
+                }
+                firstOrders[period] = order;
+                firstIds[period] = order.getId();
+            }
+        }
+        return displaced;
+    }
+
+    /**
+     * Returns the orders that currently have a header.
+     */
+    private List<Order> headedOrders() {
+        List<Order> orders = new ArrayList<>();
+        for (Order order : firstOrders) {
+            if (order != null) {
+                orders.add(order);
             }
-            if (current == null) {
-                break;
+        }
+        return orders;
+    }
+
+    /**
+     * Returns whether a page lies within a single period whose first order
+     * precedes it, so that the page cannot change any header. Relies on the
+     * orders of a page being sorted like the grid.
+     */
+    private boolean isCovered(List<Order> orders) {
+        Order pageFirst = orders.get(0);
+        int period = periodOf(pageFirst.getDueDate().toEpochDay());
+        if (period < 0 || period != periodOf(orders.get(orders.size() - 1).getDueDate().toEpochDay())) {
+            return false;
+        }
+        Order first = firstOrders[period];
+        return first != null && !precedes(pageFirst, first);
+    }
+
+    /**
+     * Returns the index of the period containing the given epoch day.
+     *
+     * @param epochDay the due date as epoch day
+     * @return the period index, or -1 if the day is before the first period
+     */
+    private int periodOf(long epochDay) {
+        if (epochDay < start) {
+            return -1;
+        }
+        for (int i = 0; i < periodEnds.length; i++) {
+            if (epochDay < periodEnds[i]) {
+                return i;
             }
-            current.setSelected(order.getId());
-            ordersWithHeaders.put(order.getId(), current.getHeader());
         }
+        return -1;
+    }
+
+    /**
+     * Returns whether an order comes before another one in the due date, due time
+     * and id order of the grid.
+     */
+    private static boolean precedes(Order order, Order other) {
+        int compare = order.getDueDate().compareTo(other.getDueDate());
+        if (compare == 0) {
+            compare = order.getDueTime().compareTo(other.getDueTime());
+        }
+        return compare < 0 || compare == 0 && order.getId() < other.getId();
     }
 
     /**
-     * Creates the chain of headers in chronological order.
+     * Computes the periods in chronological order and clears the assigned
+     * headers.
      *
-     * @param showPrevious Whether to include previous period headers.
-     * @return The list of HeaderWrapper objects representing the header chain.
+     * @param today the current date
      */
-    private List<HeaderWrapper> createHeaderChain(boolean showPrevious) {
-        List<HeaderWrapper> headerChain = new ArrayList<>();
-        LocalDate today = LocalDate.now();
+    private void createPeriods(LocalDate today) {
+        // Week starting on Monday
         LocalDate startOfTheWeek = today.minusDays(today.getDayOfWeek().getValue() - 1);
+        LocalDate firstDayOfTheNextWeek = startOfTheWeek.plusDays(7);
+        LocalDate yesterday = today.minusDays(1);
+        LocalDate tomorrow = today.plusDays(1);
+
+        List<Long> ends = new ArrayList<>();
+        List<OrderCardHeader> periodHeaders = new ArrayList<>();
         if (showPrevious) {
-            LocalDate yesterday = today.minusDays(1);
-            // Week starting on Monday
-            headerChain.add(new HeaderWrapper(d -> d.isBefore(startOfTheWeek), this.getRecentHeader()));
+            start = Long.MIN_VALUE;
+            ends.add(startOfTheWeek.toEpochDay());
+            periodHeaders.add(new OrderCardHeader("Recent", "Before this week"));
             if (startOfTheWeek.isBefore(yesterday)) {
-                headerChain.add(new HeaderWrapper(d -> d.isBefore(yesterday) && !d.isAfter(startOfTheWeek),
-                        this.getThisWeekBeforeYesterdayHeader()));
+                ends.add(yesterday.toEpochDay());
+                periodHeaders.add(new OrderCardHeader("This week before yesterday",
+                        secondaryHeaderFor(startOfTheWeek, yesterday)));
             }
-            headerChain.add(new HeaderWrapper(yesterday::equals, this.getYesterdayHeader()));
+            ends.add(today.toEpochDay());
+            periodHeaders.add(new OrderCardHeader("Yesterday", secondaryHeaderFor(yesterday)));
+        } else {
+            start = today.toEpochDay();
         }
-        LocalDate firstDayOfTheNextWeek = startOfTheWeek.plusDays(7);
-        headerChain.add(new HeaderWrapper(today::equals, getTodayHeader()));
-        headerChain.add(new HeaderWrapper(d -> d.isAfter(today) && d.isBefore(firstDayOfTheNextWeek),
-                getThisWeekStartingTomorrow(showPrevious)));
-        headerChain.add(new HeaderWrapper(d -> !d.isBefore(firstDayOfTheNextWeek), getUpcomingHeader()));
-        return headerChain;
+        ends.add(tomorrow.toEpochDay());
+        periodHeaders.add(new OrderCardHeader("Today", secondaryHeaderFor(today)));
+        ends.add(firstDayOfTheNextWeek.toEpochDay());
+        periodHeaders.add(new OrderCardHeader(showPrevious ? "This week starting tomorrow" : "This week",
+                secondaryHeaderFor(tomorrow, firstDayOfTheNextWeek.minusDays(1))));
+        ends.add(Long.MAX_VALUE);
+        periodHeaders.add(new OrderCardHeader("Upcoming", "After this week"));
+
+        day = today.toEpochDay();
+        periodEnds = ends.stream().mapToLong(Long::longValue).toArray();
+        headers = periodHeaders.toArray(new OrderCardHeader[0]);
+        firstIds = new long[periodEnds.length];
+        Arrays.fill(firstIds, NONE);
+        firstOrders = new Order[periodEnds.length];
     }
 }
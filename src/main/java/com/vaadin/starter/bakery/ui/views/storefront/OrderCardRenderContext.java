@@ -0,0 +1,161 @@
+package com.vaadin.starter.bakery.ui.views.storefront;
+
+import static com.vaadin.starter.bakery.ui.utils.FormattingUtils.HOUR_FORMATTER;
+import static com.vaadin.starter.bakery.ui.utils.FormattingUtils.MONTH_AND_DAY_FORMATTER;
+import static com.vaadin.starter.bakery.ui.utils.FormattingUtils.SHORT_DAY_FORMATTER;
+import static com.vaadin.starter.bakery.ui.utils.FormattingUtils.WEEKDAY_FULLNAME_FORMATTER;
+import static com.vaadin.starter.bakery.ui.utils.FormattingUtils.WEEK_OF_YEAR_FIELD;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The date dependent values used to render {@link OrderCard order cards}.
+ * <p>
+ * Today, yesterday and the current week are computed once per day, and the
+ * texts shown for a due date or a due time are formatted once per day and then
+ * reused for all cards, so rendering a page of cards does no repeated date
+ * calculations or formatting. The context of the current day is shared by all
+ * users and replaced at midnight.
+ * </p>
+ */
+public final class OrderCardRenderContext {
+
+	/**
+	 * Maximum number of due dates and of due times whose texts are kept, so that
+	 * listing all past orders cannot grow the context without bound.
+	 */
+	static final int MAX_CACHED = 4096;
+
+	/**
+	 * How an order due on a given date is shown.
+	 */
+	static final class DueDate {
+		private final boolean recent;
+		private final boolean inWeek;
+		private final String shortDay;
+		private final String month;
+		private final String fullDay;
+
+		private DueDate(LocalDate date, LocalDate today) {
+			recent = date.equals(today) || date.equals(today.minusDays(1));
+			inWeek = !recent && today.getYear() == date.getYear()
+					&& today.get(WEEK_OF_YEAR_FIELD) == date.get(WEEK_OF_YEAR_FIELD);
+			shortDay = inWeek ? SHORT_DAY_FORMATTER.format(date) : null;
+			month = recent || inWeek ? null : MONTH_AND_DAY_FORMATTER.format(date);
+			fullDay = recent || inWeek ? null : WEEKDAY_FULLNAME_FORMATTER.format(date);
+		}
+
+		/** Returns whether the date is today or yesterday. */
+		boolean isRecent() {
+			return recent;
+		}
+
+		/** Returns whether the date is in the current week, but not recent. */
+		boolean isInWeek() {
+			return inWeek;
+		}
+
+		/** Returns the short day, e.g. "Mon 20", for a date in the current week. */
+		String getShortDay() {
+			return shortDay;
+		}
+
+		/** Returns the month and day, e.g. "Nov 20", for an older or later date. */
+		String getMonth() {
+			return month;
+		}
+
+		/** Returns the weekday, e.g. "Monday", for an older or later date. */
+		String getFullDay() {
+			return fullDay;
+		}
+	}
+
+	private static volatile OrderCardRenderContext current;
+
+	private final LocalDate today;
+	private final long validUntil;
+	private final Map<LocalDate, DueDate> dueDates = new ConcurrentHashMap<>();
+	private final Map<LocalTime, String> dueTimes = new ConcurrentHashMap<>();
+
+	private OrderCardRenderContext(LocalDate today, long validUntil) {
+		this.today = today;
+		this.validUntil = validUntil;
+	}
+
+	/**
+	 * Returns the context of the current day, creating it on the first call of
+	 * the day.
+	 *
+	 * @return the context
+	 */
+	public static OrderCardRenderContext current() {
+		OrderCardRenderContext context = current;
+		long now = System.currentTimeMillis();
+		if (context == null || now >= context.validUntil) {
+			ZoneId zone = ZoneId.systemDefault();
+			LocalDate today = LocalDate.now(zone);
+			context = new OrderCardRenderContext(today,
+					today.plusDays(1).atStartOfDay(zone).toInstant().toEpochMilli());
+			current = context;
+		}
+		return context;
+	}
+
+	/**
+	 * Creates a context for the given day, which is not shared.
+	 *
+	 * @param today the current date
+	 * @return the context
+	 */
+	static OrderCardRenderContext of(LocalDate today) {
+		return new OrderCardRenderContext(today, Long.MAX_VALUE);
+	}
+
+	/**
+	 * Returns the current date of this context.
+	 *
+	 * @return the date
+	 */
+	public LocalDate getToday() {
+		return today;
+	}
+
+	/**
+	 * Returns how an order due on the given date is shown.
+	 *
+	 * @param date the due date
+	 * @return the classification and texts of the date
+	 */
+	DueDate getDueDate(LocalDate date) {
+		DueDate dueDate = dueDates.get(date);
+		if (dueDate == null) {
+			dueDate = new DueDate(date, today);
+			if (dueDates.size() < MAX_CACHED) {
+				dueDates.put(date, dueDate);
+			}
+		}
+		return dueDate;
+	}
+
+	/**
+	 * Returns the formatted due time, e.g. "2:00 PM".
+	 *
+	 * @param time the due time
+	 * @return the formatted time
+	 */
+	String formatDueTime(LocalTime time) {
+		String formatted = dueTimes.get(time);
+		if (formatted == null) {
+			formatted = HOUR_FORMATTER.format(time);
+			if (dueTimes.size() < MAX_CACHED) {
+				dueTimes.put(time, formatted);
+			}
+		}
+		return formatted;
+	}
+}
@@ -1,11 +1,13 @@
 package com.vaadin.starter.bakery.ui.views.storefront;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.config.ConfigurableBeanFactory;
 import org.springframework.context.annotation.Scope;
+import org.springframework.core.task.TaskExecutor;
 
 import com.vaadin.flow.component.Focusable;
 import com.vaadin.flow.component.HasValue;
@@ -27,18 +29,29 @@ import static com.vaadin.starter.bakery.ui.utils.BakeryConst.PAGE_STOREFRONT_ORD
  * Handles the interaction between the StorefrontView, the data provider,
  * and order-related services. Manages the creation, editing, reviewing,
  * and navigation of orders, as well as header generation for order cards.
+ * <p>
+ * The orders grid does not know the number of matching orders up front; it
+ * grows as slices are fetched, so changing the filter never counts the orders.
+ * Once the user scrolls past the first slice, the matching orders are counted
+ * in the background and the count becomes the grid's size estimate.
  */
 @SpringComponent
 @Scope(ConfigurableBeanFactory.SCOPE_PROTOTYPE)
 public class OrderPresenter {
 
+    /** Item count the grid assumes before the orders are counted. */
+    private static final int INITIAL_ITEM_COUNT_ESTIMATE = 200;
+
     private OrderCardHeaderGenerator headersGenerator;
     private StorefrontView view;
+    private OrderFilter filter = OrderFilter.getEmptyFilter();
+    private OrderFilter countedFilter;
 
     private final EntityPresenter<Order, StorefrontView> entityPresenter;
     private final OrdersGridDataProvider dataProvider;
     private final CurrentUser currentUser;
     private final OrderService orderService;
+    private final TaskExecutor taskExecutor;
 
     /**
      * Constructs the OrderPresenter with required dependencies.
@@ -48,20 +61,34 @@ public class OrderPresenter {
      * @param dataProvider    Data provider for the orders grid.
      * @param entityPresenter Presenter handling CRUD operations for orders.
      * @param currentUser     The currently logged-in user.
+     * @param taskExecutor    Executor counting the matching orders in the background.
      */
     @Autowired
     OrderPresenter(OrderService orderService, OrdersGridDataProvider dataProvider,
-                   EntityPresenter<Order, StorefrontView> entityPresenter, CurrentUser currentUser) {
+                   EntityPresenter<Order, StorefrontView> entityPresenter, CurrentUser currentUser,
+                   TaskExecutor taskExecutor) {
         this.orderService = orderService;
         this.entityPresenter = entityPresenter;
         this.dataProvider = dataProvider;
         this.currentUser = currentUser;
+        this.taskExecutor = taskExecutor;
 
         headersGenerator = new OrderCardHeaderGenerator();
         headersGenerator.resetHeaderChain(false);
 
         // Observe pages to assign headers to loaded orders
-        dataProvider.setPageObserver(p -> headersGenerator.ordersRead(p.getContent()));
+        dataProvider.setPageObserver(p -> {
+            List<Order> displaced = headersGenerator.ordersRead(p.getContent());
+            if (!displaced.isEmpty()) {
+                // Pages may be read out of order; remove the header from orders
+                // that turned out not to be the first of their period, and
+                // update the headers shown before the date changed
+                UI.getCurrent().access(() -> displaced.forEach(dataProvider::refreshItem));
+            }
+            if (p.getPageable().getOffset() > 0) {
+                countInBackground();
+            }
+        });
     }
 
     /**
@@ -75,6 +102,8 @@ public class OrderPresenter {
         this.view = view;
 
         view.getGrid().setDataProvider(dataProvider);
+        view.getGrid().getLazyDataView().setItemCountEstimate(INITIAL_ITEM_COUNT_ESTIMATE);
+        view.getGrid().getLazyDataView().setItemCountUnknown();
         view.getOpenedOrderEditor().setCurrentUser(currentUser.getUser());
 
         view.getOpenedOrderEditor().addCancelListener(e -> cancel());
@@ -105,7 +134,33 @@ public class OrderPresenter {
      */
     public void filterChanged(String filter, boolean showPrevious) {
         headersGenerator.resetHeaderChain(showPrevious);
-        dataProvider.setFilter(new OrderFilter(filter, showPrevious));
+        this.filter = new OrderFilter(filter, showPrevious);
+        countedFilter = null;
+        if (view != null) {
+            view.getGrid().getLazyDataView().setItemCountEstimate(INITIAL_ITEM_COUNT_ESTIMATE);
+        }
+        dataProvider.setFilter(this.filter);
+    }
+
+    /**
+     * Counts the orders matching the current filter in the background, once per
+     * filter, and uses the count as the grid's size estimate so that the
+     * scrollbar reflects it.
+     */
+    private void countInBackground() {
+        OrderFilter counted = filter;
+        if (view == null || counted.equals(countedFilter)) {
+            return;
+        }
+        countedFilter = counted;
+        UI ui = UI.getCurrent();
+        CompletableFuture.supplyAsync(() -> dataProvider.count(counted), taskExecutor)
+                .thenAccept(count -> ui.access(() -> {
+                    if (counted.equals(filter) && count > 0) {
+                        view.getGrid().getLazyDataView()
+                                .setItemCountEstimate((int) Math.min(count, Integer.MAX_VALUE));
+                    }
+                }));
     }
 
     /**
@@ -180,6 +235,7 @@ public class OrderPresenter {
         entityPresenter.save(e -> {
             if (entityPresenter.isNew()) {
                 view.showCreatedNotification();
+                countedFilter = null;
                 dataProvider.refreshAll();
             } else {
                 view.showUpdatedNotification();
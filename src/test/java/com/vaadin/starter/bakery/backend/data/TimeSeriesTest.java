@@ -0,0 +1,32 @@
+package com.vaadin.starter.bakery.backend.data;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TimeSeriesTest {
+
+	@Test
+	public void missingPointsAreNull() {
+		TimeSeries series = new TimeSeries(4);
+		series.set(1, 5);
+		series.set(3, 0);
+
+		Assert.assertArrayEquals(new Number[] { null, 5L, null, 0L }, series.toNumbers());
+		Assert.assertFalse(series.isPresent(0));
+		Assert.assertTrue(series.isPresent(3));
+		Assert.assertEquals(0, series.get(0));
+	}
+
+	@Test
+	public void clearRemovesPoint() {
+		TimeSeries series = new TimeSeries(2);
+		series.set(0, 7);
+		series.set(1, 8);
+		series.clear(0);
+
+		TimeSeries expected = new TimeSeries(2);
+		expected.set(1, 8);
+		Assert.assertEquals(expected, series);
+		Assert.assertEquals(expected.hashCode(), series.hashCode());
+	}
+}
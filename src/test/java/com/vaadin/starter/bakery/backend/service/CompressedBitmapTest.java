@@ -0,0 +1,65 @@
+package com.vaadin.starter.bakery.backend.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class CompressedBitmapTest {
+
+	@Test
+	public void addAndRemove() {
+		CompressedBitmap bitmap = new CompressedBitmap();
+		bitmap.add(3);
+		bitmap.add(3);
+		bitmap.add(70_000);
+		assertEquals(2, bitmap.cardinality());
+		assertTrue(bitmap.contains(70_000));
+
+		bitmap.remove(3);
+		bitmap.remove(4);
+		assertEquals(1, bitmap.cardinality());
+		assertFalse(bitmap.contains(3));
+	}
+
+	@Test
+	public void intersectionsAcrossDenseAndSparseChunks() {
+		CompressedBitmap even = new CompressedBitmap();
+		CompressedBitmap multiplesOfThree = new CompressedBitmap();
+		CompressedBitmap sparse = new CompressedBitmap();
+		for (long id = 0; id < 200_000; id++) {
+			if (id % 2 == 0) {
+				even.add(id);
+			}
+			if (id % 3 == 0) {
+				multiplesOfThree.add(id);
+			}
+			if (id % 1000 == 0) {
+				sparse.add(id);
+			}
+		}
+
+		assertEquals(100_000, even.cardinality());
+		assertEquals(33_334, even.andCardinality(multiplesOfThree));
+		assertEquals(200, sparse.andCardinality(even));
+		assertEquals(67, multiplesOfThree.andCardinality(sparse));
+	}
+
+	@Test
+	public void denseChunkShrinksBackWhenEmptied() {
+		CompressedBitmap bitmap = new CompressedBitmap();
+		for (long id = 0; id < CompressedBitmap.ARRAY_LIMIT * 2; id++) {
+			bitmap.add(id);
+		}
+		for (long id = 1; id < CompressedBitmap.ARRAY_LIMIT * 2; id++) {
+			bitmap.remove(id);
+		}
+
+		assertEquals(1, bitmap.cardinality());
+		assertTrue(bitmap.contains(0));
+		assertFalse(bitmap.contains(1));
+		bitmap.add(5);
+		assertEquals(2, bitmap.cardinality());
+	}
+}
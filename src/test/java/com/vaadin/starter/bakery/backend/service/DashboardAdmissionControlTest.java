@@ -0,0 +1,92 @@
+package com.vaadin.starter.bakery.backend.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class DashboardAdmissionControlTest {
+
+	private final CountDownLatch started = new CountDownLatch(1);
+	private final CountDownLatch release = new CountDownLatch(1);
+
+	@After
+	public void releaseRunningComputation() {
+		release.countDown();
+	}
+
+	@Test
+	public void computationsRunWhileSlotsAreFree() {
+		DashboardAdmissionControl control = new DashboardAdmissionControl(1, 0, 0);
+
+		assertEquals("first", control.run(() -> "first"));
+		assertEquals("second", control.run(() -> "second"));
+		assertEquals(2, control.getAdmittedCount());
+	}
+
+	@Test
+	public void callersAreRejectedWhenTheQueueIsFull() throws InterruptedException {
+		DashboardAdmissionControl control = new DashboardAdmissionControl(1, 0, 1000);
+		occupySlot(control);
+
+		try {
+			control.run(() -> "rejected");
+			fail("Expected the caller to be rejected");
+		} catch (DashboardAdmissionControl.RejectedException expected) {
+			// Expected
+		}
+		assertEquals(1, control.getRejectedCount());
+		assertEquals(0, control.getQueueDepth());
+	}
+
+	@Test
+	public void waitingCallersTimeOut() throws InterruptedException {
+		DashboardAdmissionControl control = new DashboardAdmissionControl(1, 1, 50);
+		occupySlot(control);
+
+		try {
+			control.run(() -> "timed out");
+			fail("Expected the caller to time out");
+		} catch (DashboardAdmissionControl.RejectedException expected) {
+			// Expected
+		}
+		assertEquals(1, control.getTimedOutCount());
+		assertEquals(1, control.getMaxQueueDepth());
+	}
+
+	@Test
+	public void defaultLimitIsHalfTheProcessors() {
+		DashboardAdmissionControl control = new DashboardAdmissionControl(0, 0, 0);
+
+		assertEquals(Math.max(1, Runtime.getRuntime().availableProcessors() / 2), control.getMaxConcurrent());
+	}
+
+	@Test
+	public void waitingCallerRunsOnceTheSlotIsFree() throws InterruptedException {
+		DashboardAdmissionControl control = new DashboardAdmissionControl(1, 1, 5000);
+		occupySlot(control);
+
+		CompletableFuture.runAsync(release::countDown);
+
+		assertEquals("admitted", control.run(() -> "admitted"));
+		assertEquals(2, control.getAdmittedCount());
+	}
+
+	private void occupySlot(DashboardAdmissionControl control) throws InterruptedException {
+		CompletableFuture.runAsync(() -> control.run(() -> {
+			started.countDown();
+			try {
+				return release.await(5, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return false;
+			}
+		}));
+		started.await(5, TimeUnit.SECONDS);
+	}
+}
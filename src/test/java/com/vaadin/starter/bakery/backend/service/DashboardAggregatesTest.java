@@ -0,0 +1,456 @@
+package com.vaadin.starter.bakery.backend.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.vaadin.starter.bakery.backend.data.OrderState;
+import com.vaadin.starter.bakery.backend.data.TimeSeries;
+import com.vaadin.starter.bakery.backend.data.entity.AbstractEntity;
+import com.vaadin.starter.bakery.backend.data.entity.Order;
+import com.vaadin.starter.bakery.backend.data.entity.OrderItem;
+import com.vaadin.starter.bakery.backend.data.entity.Product;
+import com.vaadin.starter.bakery.backend.repositories.OrderRepository;
+
+public class DashboardAggregatesTest {
+
+	private static final String ITEMS_BY_STATE = "SELECT o.id, o.due_date, oi.quantity, p.id, "
+			+ "COALESCE(oi.unit_price, p.price), o.pickup_location_id, o.version FROM order_info o "
+			+ "LEFT JOIN order_item oi ON oi.items_id = o.id LEFT JOIN product p ON p.id = oi.product_id "
+			+ "WHERE o.state = ?";
+	private static final String DELIVERIES_PER_DAY = "SELECT DAY(due_date), COUNT(*) FROM order_info "
+			+ "WHERE state = ? AND due_date >= ? AND due_date < ? GROUP BY DAY(due_date)";
+	private static final String DELIVERIES_PER_MONTH = "SELECT MONTH(due_date), COUNT(*) FROM order_info "
+			+ "WHERE state = ? AND due_date >= ? AND due_date < ? GROUP BY MONTH(due_date)";
+	private static final String SALES_PER_MONTH = "SELECT MONTH(o.due_date), "
+			+ "SUM(oi.quantity * COALESCE(oi.unit_price, p.price)) FROM order_info o "
+			+ "JOIN order_item oi ON oi.items_id = o.id JOIN product p ON p.id = oi.product_id WHERE o.state = ? AND o.due_date >= ? AND o.due_date < ? GROUP BY MONTH(o.due_date)";
+	private static final String DELIVERIES_PER_PRODUCT = "SELECT oi.product_id, SUM(oi.quantity) "
+			+ "FROM order_info o JOIN order_item oi ON oi.items_id = o.id "
+			+ "WHERE o.state = ? AND o.due_date >= ? AND o.due_date < ? GROUP BY oi.product_id";
+
+	private final Product bread = product(1L, "Bread", 300);
+	private final Product cake = product(2L, "Cake", 1500);
+	private final List<Object[]> deliveredItems = new ArrayList<>();
+	private final List<LocalDate> loadedRanges = new ArrayList<>();
+
+	/**
+	 * Creates a store whose repository answers the range loads from
+	 * {@link #deliveredItems} and records the start of each range.
+	 */
+	private DashboardAggregates createAggregates() {
+		OrderRepository repository = (OrderRepository) Proxy.newProxyInstance(getClass().getClassLoader(),
+				new Class<?>[] { OrderRepository.class }, (proxy, method, args) -> {
+					if (method.getName().equals("findItemsByStateBetween")) {
+						LocalDate start = (LocalDate) args[1];
+						LocalDate end = (LocalDate) args[2];
+						loadedRanges.add(start);
+						List<Object[]> rows = new ArrayList<>();
+						for (Object[] row : deliveredItems) {
+							LocalDate dueDate = (LocalDate) row[1];
+							if (!dueDate.isBefore(start) && dueDate.isBefore(end)) {
+								rows.add(row);
+							}
+						}
+						return rows;
+					}
+					throw new UnsupportedOperationException(method.getName());
+				});
+		return new DashboardAggregates(repository);
+	}
+
+	@Test
+	public void seriesAreComputedFromLoadedItems() {
+		deliveredItems.add(new Object[] { 10L, LocalDate.of(2024, 3, 5), 2, bread, bread.getPrice(), 1L, 0 });
+		deliveredItems.add(new Object[] { 10L, LocalDate.of(2024, 3, 5), 1, cake, cake.getPrice(), 1L, 0 });
+		deliveredItems.add(new Object[] { 11L, LocalDate.of(2024, 3, 7), 4, bread, bread.getPrice(), 1L, 0 });
+		deliveredItems.add(new Object[] { 12L, LocalDate.of(2024, 5, 1), 1, cake, cake.getPrice(), 1L, 0 });
+		DashboardAggregates aggregates = createAggregates();
+
+		TimeSeries perDay = aggregates.getDeliveriesPerDay(3, 2024);
+		assertEquals(31, perDay.size());
+		assertEquals(1, perDay.get(4));
+		assertEquals(1, perDay.get(6));
+		assertFalse(perDay.isPresent(5));
+
+		TimeSeries perMonth = aggregates.getDeliveriesPerMonth(2024);
+		assertEquals(2, perMonth.get(2));
+		assertEquals(1, perMonth.get(4));
+		assertFalse(perMonth.isPresent(3));
+
+		TimeSeries sales = aggregates.getSalesPerMonth(2024);
+		assertEquals(2 * 300 + 1500 + 4 * 300, sales.get(2));
+		assertEquals(1500, sales.get(4));
+
+		LinkedHashMap<Product, Integer> expected = new LinkedHashMap<>();
+		expected.put(bread, 6);
+		expected.put(cake, 1);
+		assertEquals(expected, aggregates.getProductDeliveries(3, 2024));
+	}
+
+	@Test
+	public void savesAndDeletesReplaceTheOrderRows() {
+		deliveredItems.add(new Object[] { 10L, LocalDate.of(2024, 3, 5), 2, bread, bread.getPrice(), 1L, 0 });
+		deliveredItems.add(new Object[] { 11L, LocalDate.of(2024, 3, 5), 1, cake, cake.getPrice(), 1L, 0 });
+		DashboardAggregates aggregates = createAggregates();
+		loadYear(aggregates, 2024);
+
+		Order moved = order(10L, LocalDate.of(2024, 3, 6), OrderState.DELIVERED, bread, 3);
+		aggregates.orderSaved(moved);
+		aggregates.orderSaved(order(11L, LocalDate.of(2024, 3, 5), OrderState.CANCELLED, cake, 1));
+		aggregates.orderSaved(order(12L, LocalDate.of(2024, 3, 6), OrderState.DELIVERED, cake, 2));
+
+		TimeSeries perDay = aggregates.getDeliveriesPerDay(3, 2024);
+		assertFalse(perDay.isPresent(4));
+		assertEquals(2, perDay.get(5));
+		assertEquals(3 * 300 + 2 * 1500, aggregates.getSalesPerMonth(2024).get(2));
+
+		aggregates.orderDeleted(12L);
+		assertEquals(1, aggregates.getDeliveriesPerMonth(2024).get(2));
+		assertEquals(Collections.singletonMap(bread, 3), aggregates.getProductDeliveries(3, 2024));
+	}
+
+	@Test
+	public void seriesAreBrokenDownByLocationInOnePass() {
+		deliveredItems.add(new Object[] { 10L, LocalDate.of(2024, 3, 5), 2, bread, 300, 1L, 0 });
+		deliveredItems.add(new Object[] { 11L, LocalDate.of(2024, 3, 5), 1, cake, 1500, 2L, 0 });
+		deliveredItems.add(new Object[] { 12L, LocalDate.of(2024, 3, 6), 3, bread, 300, 2L, 0 });
+		deliveredItems.add(new Object[] { 13L, LocalDate.of(2024, 3, 6), 1, bread, 300, null, 0 });
+		DashboardAggregates aggregates = createAggregates();
+
+		LocationBreakdown<TimeSeries> perDay = aggregates.getDeliveriesPerDayByLocation(3, 2024);
+		assertEquals(2, perDay.getTotal().get(4));
+		assertEquals(2, perDay.getTotal().get(5));
+		assertEquals(1, perDay.getByLocation().get(1L).get(4));
+		assertFalse(perDay.getByLocation().get(1L).isPresent(5));
+		assertEquals(1, perDay.getByLocation().get(2L).get(5));
+
+		LocationBreakdown<TimeSeries> sales = aggregates.getSalesPerMonthByLocation(2024);
+		assertEquals(600 + 1500 + 900 + 300, sales.getTotal().get(2));
+		assertEquals(1500 + 900, sales.getByLocation().get(2L).get(2));
+
+		LocationBreakdown<LinkedHashMap<Product, Integer>> products = aggregates.getProductDeliveriesByLocation(3,
+				2024);
+		assertEquals(Collections.singletonMap(bread, 2), products.getByLocation().get(1L));
+		assertEquals(2, products.getByLocation().size());
+		assertTrue(aggregates.getDeliveriesPerMonthByLocation(2023).getByLocation().isEmpty());
+	}
+
+	@Test
+	public void salesUseTheStoredUnitPrice() {
+		deliveredItems.add(new Object[] { 10L, LocalDate.of(2024, 3, 5), 2, bread, 250, 1L, 0 });
+		DashboardAggregates aggregates = createAggregates();
+		loadYear(aggregates, 2024);
+
+		Order saved = order(11L, LocalDate.of(2024, 3, 6), OrderState.DELIVERED, cake, 1);
+		cake.setPrice(2000);
+
+		aggregates.orderSaved(saved);
+		assertEquals(2 * 250 + 2000, aggregates.getSalesPerMonth(2024).get(2));
+	}
+
+	@Test
+	public void repeatedSavesAreCompacted() {
+		deliveredItems.add(new Object[] { 11L, LocalDate.of(2024, 3, 1), 1, cake, cake.getPrice(), 1L, 0 });
+		DashboardAggregates aggregates = createAggregates();
+		loadYear(aggregates, 2024);
+
+		for (int i = 0; i < 5000; i++) {
+			aggregates.orderSaved(order(10L, LocalDate.of(2024, 3, 1 + i % 28), OrderState.DELIVERED, bread, 1));
+		}
+
+		assertEquals(2, aggregates.getDeliveriesPerMonth(2024).get(2));
+		assertEquals(1, aggregates.getDeliveriesPerDay(3, 2024).get(4999 % 28));
+		assertEquals(300 + 1500, aggregates.getSalesPerMonth(2024).get(2));
+	}
+
+	@Test
+	public void lateSavesDoNotReplaceLaterWrites() {
+		deliveredItems.add(new Object[] { 10L, LocalDate.of(2024, 3, 5), 2, bread, bread.getPrice(), 1L, 3 });
+		DashboardAggregates aggregates = createAggregates();
+		loadYear(aggregates, 2024);
+
+		// Saved before the loaded version was committed
+		Order stale = order(10L, LocalDate.of(2024, 3, 6), OrderState.DELIVERED, cake, 1);
+		setVersion(stale, 2);
+		aggregates.orderSaved(stale);
+		assertEquals(Collections.singletonMap(bread, 2), aggregates.getProductDeliveries(3, 2024));
+
+		Order deleted = order(11L, LocalDate.of(2024, 3, 6), OrderState.DELIVERED, cake, 1);
+		aggregates.orderDeleted(11L);
+		aggregates.orderSaved(deleted);
+		assertEquals(1, aggregates.getDeliveriesPerMonth(2024).get(2));
+	}
+
+	@Test
+	public void deliveredOrdersWithoutItemsAreCounted() {
+		deliveredItems.add(new Object[] { 10L, LocalDate.of(2024, 3, 5), null, null, null, 1L, 0 });
+		DashboardAggregates aggregates = createAggregates();
+		loadYear(aggregates, 2024);
+
+		Order saved = order(11L, LocalDate.of(2024, 3, 5), OrderState.DELIVERED, bread, 1);
+		saved.getItems().clear();
+		aggregates.orderSaved(saved);
+
+		assertEquals(2, aggregates.getDeliveriesPerDay(3, 2024).get(4));
+		assertEquals(2, aggregates.getDeliveriesPerMonthByLocation(2024).getTotal().get(2));
+		assertTrue(aggregates.getProductDeliveries(3, 2024).isEmpty());
+		assertEquals(0, aggregates.getSalesPerMonth(2024).get(2));
+	}
+
+	@Test
+	public void eachYearIsLoadedOnFirstUse() {
+		deliveredItems.add(new Object[] { 10L, LocalDate.of(2023, 12, 31), 2, bread, bread.getPrice(), 1L, 0 });
+		deliveredItems.add(new Object[] { 11L, LocalDate.of(2024, 1, 1), 1, cake, cake.getPrice(), 1L, 0 });
+		DashboardAggregates aggregates = createAggregates();
+
+		assertEquals(1, aggregates.getDeliveriesPerMonth(2024).get(0));
+		assertEquals(Collections.singletonMap(cake, 1), aggregates.getProductDeliveries(1, 2024));
+		assertEquals(Collections.singletonList(LocalDate.of(2024, 1, 1)), loadedRanges);
+
+		assertEquals(1, aggregates.getDeliveriesPerDay(12, 2023).get(30));
+		assertEquals(Arrays.asList(LocalDate.of(2024, 1, 1), LocalDate.of(2023, 1, 1)), loadedRanges);
+	}
+
+	@Test
+	public void ordersMovedToAnotherYearAreStoredOnce() {
+		deliveredItems.add(new Object[] { 10L, LocalDate.of(2024, 3, 5), 2, bread, bread.getPrice(), 1L, 0 });
+		DashboardAggregates aggregates = createAggregates();
+		loadYear(aggregates, 2024);
+
+		// Committed, but the save has not been registered before 2023 is loaded
+		deliveredItems.set(0, new Object[] { 10L, LocalDate.of(2023, 3, 5), 2, bread, bread.getPrice(), 1L, 1 });
+		Order moved = order(10L, LocalDate.of(2023, 3, 5), OrderState.DELIVERED, bread, 2);
+		setVersion(moved, 1);
+
+		assertEquals(1, aggregates.getDeliveriesPerMonth(2023).get(2));
+		assertFalse(aggregates.getDeliveriesPerMonth(2024).isPresent(2));
+		aggregates.orderSaved(moved);
+		assertEquals(1, aggregates.getDeliveriesPerMonth(2023).get(2));
+		assertFalse(aggregates.getDeliveriesPerMonth(2024).isPresent(2));
+	}
+
+	@Test
+	public void parallelScanMatchesSequentialTotals() {
+		for (long id = 0; id < 100_000; id++) {
+			deliveredItems.add(
+					new Object[] { id, LocalDate.of(2024, 1, 1).plusDays(id % 366), 1, bread, bread.getPrice(), 1L, 0 });
+		}
+		DashboardAggregates aggregates = createAggregates();
+
+		TimeSeries perMonth = aggregates.getDeliveriesPerMonth(2024);
+		long total = 0;
+		for (int month = 0; month < 12; month++) {
+			total += perMonth.get(month);
+		}
+		assertEquals(100_000, total);
+		assertEquals(100_000 * 300L, sum(aggregates.getSalesPerMonth(2024)));
+	}
+
+	@Test
+	public void laterProductVersionsReplaceTheKeptOne() {
+		deliveredItems.add(new Object[] { 10L, LocalDate.of(2024, 3, 5), 2, bread, bread.getPrice(), 1L, 0 });
+		DashboardAggregates aggregates = createAggregates();
+		loadYear(aggregates, 2024);
+
+		Product renamed = product(1L, "Sourdough", 350);
+		setVersion(renamed, 1);
+		aggregates.productSaved(renamed);
+		// An order edited with the product read before the rename
+		aggregates.orderSaved(order(11L, LocalDate.of(2024, 3, 6), OrderState.DELIVERED, bread, 1));
+
+		LinkedHashMap<Product, Integer> deliveries = aggregates.getProductDeliveries(3, 2024);
+		assertEquals(Collections.singletonMap(renamed, 3), deliveries);
+		assertEquals("Sourdough", deliveries.keySet().iterator().next().getName());
+	}
+
+	@Test
+	public void resultsMatchTheRepositoryQueries() throws SQLException {
+		Map<Long, Product> productsById = new HashMap<>();
+		for (Product product : new Product[] { bread, cake, product(3L, "Pie", 1200) }) {
+			productsById.put(product.getId(), product);
+		}
+
+		try (Connection connection = DriverManager.getConnection("jdbc:h2:mem:aggregates")) {
+			createOrders(connection);
+			for (Object[] row : query(connection, ITEMS_BY_STATE, OrderState.DELIVERED.ordinal())) {
+				deliveredItems.add(new Object[] { row[0], ((Date) row[1]).toLocalDate(), row[2],
+						productsById.get(row[3]), row[4], row[5], row[6] });
+			}
+			DashboardAggregates aggregates = createAggregates();
+
+			for (int month = 1; month <= 12; month++) {
+				Date start = Date.valueOf(LocalDate.of(2024, month, 1));
+				Date end = Date.valueOf(LocalDate.of(2024, month, 1).plusMonths(1));
+				assertSeries(query(connection, DELIVERIES_PER_DAY, OrderState.DELIVERED.ordinal(), start, end),
+						aggregates.getDeliveriesPerDay(month, 2024));
+
+				Map<Product, Integer> expected = new HashMap<>();
+				for (Object[] row : query(connection, DELIVERIES_PER_PRODUCT, OrderState.DELIVERED.ordinal(), start,
+						end)) {
+					expected.put(productsById.get(row[0]), ((Number) row[1]).intValue());
+				}
+				assertEquals(expected, new HashMap<>(aggregates.getProductDeliveries(month, 2024)));
+			}
+
+			Date start = Date.valueOf(LocalDate.of(2024, 1, 1));
+			Date end = Date.valueOf(LocalDate.of(2025, 1, 1));
+			assertSeries(query(connection, DELIVERIES_PER_MONTH, OrderState.DELIVERED.ordinal(), start, end),
+					aggregates.getDeliveriesPerMonth(2024));
+			assertSeries(query(connection, SALES_PER_MONTH, OrderState.DELIVERED.ordinal(), start, end),
+					aggregates.getSalesPerMonth(2024));
+		}
+	}
+
+	/**
+	 * Creates two years of orders in all states, with up to three items each and
+	 * some items without a stored unit price.
+	 */
+	private static void createOrders(Connection connection) throws SQLException {
+		try (Statement statement = connection.createStatement()) {
+			statement.execute("CREATE TABLE product (id BIGINT PRIMARY KEY, name VARCHAR(255), price INTEGER)");
+			statement.execute("CREATE TABLE order_info (id BIGINT PRIMARY KEY, due_date DATE NOT NULL, "
+					+ "state INTEGER NOT NULL, pickup_location_id BIGINT, version INTEGER DEFAULT 0 NOT NULL)");
+			statement.execute("CREATE TABLE order_item (id BIGINT PRIMARY KEY, items_id BIGINT, "
+					+ "product_id BIGINT, quantity INTEGER, unit_price INTEGER)");
+			statement.execute("INSERT INTO product VALUES (1, 'Bread', 300), (2, 'Cake', 1500), (3, 'Pie', 1200)");
+		}
+		Random random = new Random(42);
+		try (PreparedStatement orders = connection.prepareStatement(
+				"INSERT INTO order_info (id, due_date, state, pickup_location_id) VALUES (?, ?, ?, ?)");
+				PreparedStatement items = connection.prepareStatement(
+						"INSERT INTO order_item SELECT ?, ?, ?, ?, CASE WHEN ? THEN NULL ELSE price END "
+								+ "FROM product WHERE id = ?")) {
+			long itemId = 0;
+			for (long orderId = 1; orderId <= 3000; orderId++) {
+				orders.setLong(1, orderId);
+				orders.setDate(2, Date.valueOf(LocalDate.of(2023, 7, 1).plusDays(random.nextInt(730))));
+				orders.setInt(3, random.nextInt(OrderState.values().length));
+				orders.setObject(4, random.nextInt(4) == 0 ? null : 1L + random.nextInt(3));
+				orders.executeUpdate();
+				for (int i = random.nextInt(4) - 1; i >= 0; i--) {
+					long productId = 1L + random.nextInt(3);
+					items.setLong(1, ++itemId);
+					items.setLong(2, orderId);
+					items.setLong(3, productId);
+					items.setInt(4, 1 + random.nextInt(5));
+					items.setBoolean(5, random.nextInt(10) == 0);
+					items.setLong(6, productId);
+					items.executeUpdate();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Loads a year of the store by asking for one of its series.
+	 */
+	private static void loadYear(DashboardAggregates aggregates, int year) {
+		aggregates.getDeliveriesPerMonth(year);
+	}
+
+	private static List<Object[]> query(Connection connection, String sql, Object... parameters)
+			throws SQLException {
+		try (PreparedStatement statement = connection.prepareStatement(sql)) {
+			for (int i = 0; i < parameters.length; i++) {
+				statement.setObject(i + 1, parameters[i]);
+			}
+			List<Object[]> rows = new ArrayList<>();
+			try (ResultSet result = statement.executeQuery()) {
+				int columns = result.getMetaData().getColumnCount();
+				while (result.next()) {
+					Object[] row = new Object[columns];
+					for (int i = 0; i < columns; i++) {
+						row[i] = result.getObject(i + 1);
+					}
+					rows.add(row);
+				}
+			}
+			return rows;
+		}
+	}
+
+	/**
+	 * Asserts that a series holds the values of the given rows of 1-based index
+	 * and value, and no others.
+	 */
+	private static void assertSeries(List<Object[]> rows, TimeSeries series) {
+		long[] expected = new long[series.size()];
+		for (Object[] row : rows) {
+			expected[((Number) row[0]).intValue() - 1] = ((Number) row[1]).longValue();
+		}
+		for (int i = 0; i < expected.length; i++) {
+			assertEquals(expected[i] != 0, series.isPresent(i));
+			if (expected[i] != 0) {
+				assertEquals(expected[i], series.get(i));
+			}
+		}
+	}
+
+	private static long sum(TimeSeries series) {
+		long total = 0;
+		for (int i = 0; i < series.size(); i++) {
+			total += series.get(i);
+		}
+		return total;
+	}
+
+	private static Order order(Long id, LocalDate dueDate, OrderState state, Product product, int quantity) {
+		Order order = new Order(null);
+		setId(order, id);
+		order.setDueDate(dueDate);
+		order.changeState(null, state);
+		OrderItem item = new OrderItem();
+		item.setProduct(product);
+		item.setQuantity(quantity);
+		order.getItems().add(item);
+		return order;
+	}
+
+	private static Product product(Long id, String name, int price) {
+		Product product = new Product();
+		setId(product, id);
+		product.setName(name);
+		product.setPrice(price);
+		return product;
+	}
+
+	private static void setId(AbstractEntity entity, Long id) {
+		setField(entity, "id", id);
+	}
+
+	private static void setVersion(AbstractEntity entity, int version) {
+		setField(entity, "version", version);
+	}
+
+	private static void setField(AbstractEntity entity, String name, Object value) {
+		try {
+			Field field = AbstractEntity.class.getDeclaredField(name);
+			field.setAccessible(true);
+			field.set(entity, value);
+		} catch (ReflectiveOperationException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
@@ -0,0 +1,148 @@
+package com.vaadin.starter.bakery.backend.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.vaadin.starter.bakery.backend.data.DashboardData;
+
+public class DashboardDataCacheTest {
+
+	private final AtomicInteger computations = new AtomicInteger();
+
+	private final Clock clock = Clock.fixed(Instant.parse("2024-03-15T10:00:00Z"), ZoneOffset.UTC);
+
+	private DashboardData compute() {
+		computations.incrementAndGet();
+		return new DashboardData();
+	}
+
+	@Test
+	public void samePeriodIsComputedOnce() {
+		DashboardDataCache cache = new DashboardDataCache(clock);
+
+		DashboardData first = cache.get(3, 2024, this::compute);
+		DashboardData second = cache.get(3, 2024, this::compute);
+
+		assertSame(first, second);
+		assertEquals(1, computations.get());
+		assertEquals(1, cache.getHitCount());
+		assertEquals(1, cache.getMissCount());
+	}
+
+	@Test
+	public void periodsAreCachedSeparately() {
+		DashboardDataCache cache = new DashboardDataCache(clock);
+
+		cache.get(3, 2024, this::compute);
+		cache.get(4, 2024, this::compute);
+
+		assertEquals(2, computations.get());
+	}
+
+	@Test
+	public void entriesExpireWithTheTimeBucket() {
+		DashboardDataCache cache = new DashboardDataCache(clock);
+		DashboardDataCache nextMinute = new DashboardDataCache(
+				Clock.offset(clock, Duration.ofMillis(DashboardDataCache.BUCKET_MILLIS)));
+
+		DashboardData first = cache.get(3, 2024, this::compute);
+		assertSame(first, cache.get(3, 2024, this::compute));
+		nextMinute.get(3, 2024, this::compute);
+
+		assertEquals(2, computations.get());
+	}
+
+	@Test
+	public void invalidateForcesRecomputation() {
+		DashboardDataCache cache = new DashboardDataCache(clock);
+
+		DashboardData first = cache.get(3, 2024, this::compute);
+		cache.invalidate();
+		DashboardData second = cache.get(3, 2024, this::compute);
+
+		assertNotSame(first, second);
+		assertEquals(2, computations.get());
+	}
+
+	@Test
+	public void failedComputationIsNotCached() {
+		DashboardDataCache cache = new DashboardDataCache(clock);
+
+		try {
+			cache.get(3, 2024, () -> {
+				throw new IllegalStateException("failed");
+			});
+		} catch (IllegalStateException e) {
+			assertEquals("failed", e.getMessage());
+		}
+		cache.get(3, 2024, this::compute);
+
+		assertEquals(1, computations.get());
+	}
+
+	@Test
+	public void lastComputedDataOutlivesInvalidation() {
+		DashboardDataCache cache = new DashboardDataCache(clock);
+		assertFalse(cache.getLastComputed(3, 2024).isPresent());
+
+		DashboardData first = cache.get(3, 2024, this::compute);
+		cache.invalidate();
+
+		assertSame(first, cache.getLastComputed(3, 2024).get());
+		assertEquals(1, cache.getFallbackCount());
+	}
+
+	@Test
+	public void lastComputedDataIsKeptForRecentlyUsedPeriodsOnly() {
+		DashboardDataCache cache = new DashboardDataCache(clock);
+		cache.get(1, 2000, this::compute);
+		for (int i = 1; i < DashboardDataCache.MAX_FALLBACK_PERIODS; i++) {
+			cache.get(1, 2000 + i, this::compute);
+		}
+		// Uses the oldest period again, so that the second oldest is dropped
+		assertTrue(cache.getLastComputed(1, 2000).isPresent());
+		cache.get(1, 1999, this::compute);
+
+		assertTrue(cache.getLastComputed(1, 2000).isPresent());
+		assertFalse(cache.getLastComputed(1, 2001).isPresent());
+		assertTrue(cache.getLastComputed(1, 1999).isPresent());
+	}
+
+	@Test
+	public void slowOutdatedComputationDoesNotReplaceNewerData() throws InterruptedException {
+		DashboardDataCache cache = new DashboardDataCache(clock);
+		DashboardData outdated = new DashboardData();
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+
+		Thread slow = new Thread(() -> cache.get(3, 2024, () -> {
+			started.countDown();
+			try {
+				release.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			return outdated;
+		}));
+		slow.start();
+		started.await();
+		cache.invalidate();
+		DashboardData newer = cache.get(3, 2024, this::compute);
+		release.countDown();
+		slow.join();
+
+		assertSame(newer, cache.getLastComputed(3, 2024).get());
+	}
+}
@@ -0,0 +1,160 @@
+package com.vaadin.starter.bakery.backend.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Proxy;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.junit.Test;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+
+import com.vaadin.starter.bakery.backend.data.entity.AbstractEntity;
+import com.vaadin.starter.bakery.backend.data.entity.Order;
+import com.vaadin.starter.bakery.backend.repositories.OrderRepository;
+
+public class OrderPageCacheTest {
+
+	private static final Optional<LocalDate> YESTERDAY = Optional.of(LocalDate.of(2024, 3, 14));
+
+	private static final LocalDate DUE_DATE = LocalDate.of(2024, 3, 15);
+
+	private final AtomicInteger reads = new AtomicInteger();
+
+	private final List<Collection<?>> idReads = new ArrayList<>();
+
+	/**
+	 * Creates a repository that answers reads by id with new orders due on
+	 * {@link #DUE_DATE}, as a new persistence context would.
+	 */
+	private OrderRepository createRepository() {
+		return (OrderRepository) Proxy.newProxyInstance(getClass().getClassLoader(),
+				new Class<?>[] { OrderRepository.class }, (proxy, method, args) -> {
+					if (method.getName().equals("findByIdIn")) {
+						Collection<?> ids = (Collection<?>) args[0];
+						idReads.add(ids);
+						List<Order> orders = new ArrayList<>();
+						for (Object id : ids) {
+							orders.add(0, order((Long) id));
+						}
+						return orders;
+					}
+					throw new UnsupportedOperationException(method.getName());
+				});
+	}
+
+	private static Order order(Long id) {
+		Order order = new Order(null);
+		order.setDueDate(DUE_DATE);
+		try {
+			Field field = AbstractEntity.class.getDeclaredField("id");
+			field.setAccessible(true);
+			field.set(order, id);
+		} catch (ReflectiveOperationException e) {
+			throw new IllegalStateException(e);
+		}
+		return order;
+	}
+
+	private Page<Order> read() {
+		reads.incrementAndGet();
+		return new PageImpl<>(Collections.emptyList());
+	}
+
+	@Test
+	public void samePageIsReadOnce() {
+		OrderPageCache cache = new OrderPageCache(createRepository());
+
+		Page<Order> first = cache.get(YESTERDAY, PageRequest.of(0, 50), this::read);
+		Page<Order> second = cache.get(YESTERDAY, PageRequest.of(0, 50), this::read);
+
+		assertEquals(first, second);
+		assertEquals(1, reads.get());
+		assertEquals(0.5, cache.getHitRatio(), 0);
+	}
+
+	@Test
+	public void everyRequestReceivesItsOwnOrders() {
+		OrderPageCache cache = new OrderPageCache(createRepository());
+		Order order = order(7L);
+		Supplier<Page<Order>> loader = () -> new PageImpl<>(Collections.singletonList(order));
+
+		Page<Order> first = cache.get(YESTERDAY, PageRequest.of(0, 50), loader);
+		first.getContent().get(0).setDueDate(DUE_DATE.plusDays(1));
+		Page<Order> second = cache.get(YESTERDAY, PageRequest.of(0, 50), loader);
+		Page<Order> third = cache.get(YESTERDAY, PageRequest.of(0, 50), loader);
+
+		assertNotSame(order, second.getContent().get(0));
+		assertNotSame(second.getContent().get(0), third.getContent().get(0));
+		assertEquals(DUE_DATE, second.getContent().get(0).getDueDate());
+	}
+
+	@Test
+	public void hitsReadTheOrdersByIdInPageOrder() {
+		OrderPageCache cache = new OrderPageCache(createRepository());
+		Supplier<Page<Order>> loader = () -> new PageImpl<>(Arrays.asList(order(3L), order(1L), order(2L)),
+				PageRequest.of(0, 3), 10);
+
+		cache.get(YESTERDAY, PageRequest.of(0, 3), loader);
+		Page<Order> hit = cache.get(YESTERDAY, PageRequest.of(0, 3), loader);
+
+		assertEquals(Collections.singletonList(Arrays.asList(3L, 1L, 2L)), idReads);
+		assertEquals(3L, (long) hit.getContent().get(0).getId());
+		assertEquals(1L, (long) hit.getContent().get(1).getId());
+		assertEquals(2L, (long) hit.getContent().get(2).getId());
+		assertEquals(10, hit.getTotalElements());
+		assertEquals(PageRequest.of(0, 3), hit.getPageable());
+	}
+
+	@Test
+	public void pagesAndDatesAreCachedSeparately() {
+		OrderPageCache cache = new OrderPageCache(createRepository());
+
+		cache.get(YESTERDAY, PageRequest.of(0, 50), this::read);
+		cache.get(YESTERDAY, PageRequest.of(1, 50), this::read);
+		cache.get(Optional.of(LocalDate.of(2024, 3, 15)), PageRequest.of(0, 50), this::read);
+		cache.get(Optional.empty(), PageRequest.of(0, 50), this::read);
+
+		assertEquals(4, reads.get());
+	}
+
+	@Test
+	public void writesInvalidateAllPages() {
+		OrderPageCache cache = new OrderPageCache(createRepository());
+
+		Page<Order> first = cache.get(YESTERDAY, PageRequest.of(0, 50), this::read);
+		cache.invalidate();
+		Page<Order> second = cache.get(YESTERDAY, PageRequest.of(0, 50), this::read);
+
+		assertNotSame(first, second);
+		assertEquals(2, reads.get());
+		assertEquals(1, cache.getVersion());
+	}
+
+	@Test
+	public void failedReadsAreNotCached() {
+		OrderPageCache cache = new OrderPageCache(createRepository());
+
+		try {
+			cache.get(YESTERDAY, PageRequest.of(0, 50), () -> {
+				throw new IllegalStateException("Database unavailable");
+			});
+		} catch (IllegalStateException expected) {
+			// The next request reads again
+		}
+		cache.get(YESTERDAY, PageRequest.of(0, 50), this::read);
+
+		assertEquals(1, reads.get());
+	}
+}
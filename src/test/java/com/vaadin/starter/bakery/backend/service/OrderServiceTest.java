@@ -0,0 +1,156 @@
+package com.vaadin.starter.bakery.backend.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.lang.reflect.Proxy;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.Test;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.transaction.support.TransactionOperations;
+
+import com.vaadin.starter.bakery.backend.data.DeliveryStats;
+import com.vaadin.starter.bakery.backend.data.OrderState;
+import com.vaadin.starter.bakery.backend.data.entity.Order;
+import com.vaadin.starter.bakery.backend.data.entity.OrderDueSummary;
+import com.vaadin.starter.bakery.backend.repositories.OrderRepository;
+
+public class OrderServiceTest {
+
+	private final List<String> statements = new ArrayList<>();
+
+	private final List<Object[]> indexEntries = new ArrayList<>();
+
+	/**
+	 * Creates a repository that records every call and answers the index load
+	 * with {@link #indexEntries}.
+	 */
+	private OrderRepository createRepository() {
+		return (OrderRepository) Proxy.newProxyInstance(getClass().getClassLoader(),
+				new Class<?>[] { OrderRepository.class }, (proxy, method, args) -> {
+					statements.add(method.getName());
+					if (method.getName().equals("findStateIndexEntries")) {
+						return indexEntries;
+					}
+					throw new UnsupportedOperationException(method.getName());
+				});
+	}
+
+	private OrderService createService(OrderRepository repository) {
+		return new OrderService(repository, new DashboardAggregates(repository), new DashboardDataCache(),
+				new SalesRollupService(null, null, null, TransactionOperations.withoutTransaction(), 60), new OrderStateIndex(repository),
+				new DashboardAdmissionControl(1, 0, 0), new OrderPageCache(repository), new WriteVersions());
+	}
+
+	@Test
+	public void countsAreAnsweredFromTheIndex() {
+		LocalDate today = LocalDate.now();
+		indexEntries.add(new Object[] { 1L, today, OrderState.NEW, 1L, 0 });
+		indexEntries.add(new Object[] { 2L, today, OrderState.DELIVERED, 1L, 0 });
+		indexEntries.add(new Object[] { 3L, today, OrderState.CONFIRMED, 2L, 0 });
+		indexEntries.add(new Object[] { 4L, today, OrderState.READY, 1L, 0 });
+		indexEntries.add(new Object[] { 5L, today.plusDays(1), OrderState.NEW, 2L, 0 });
+		indexEntries.add(new Object[] { 6L, today.plusDays(1), OrderState.PROBLEM, 2L, 0 });
+		indexEntries.add(new Object[] { 7L, today.plusDays(2), OrderState.NEW, null, 0 });
+		OrderService service = createService(createRepository());
+
+		DeliveryStats stats = service.getDeliveryStats();
+		assertEquals(4, stats.getDueToday());
+		assertEquals(2, stats.getDueTomorrow());
+		assertEquals(1, stats.getDeliveredToday());
+		assertEquals(2, stats.getNotAvailableToday());
+		assertEquals(3, stats.getNewOrders());
+
+		assertEquals(3, service.countAnyMatchingAfterDueDate(Optional.empty(), Optional.of(today)));
+		assertEquals(7, service.countAnyMatchingAfterDueDate(Optional.empty(), Optional.empty()));
+		assertEquals(7, service.countAnyMatchingAfterDueDate(Optional.of(""), Optional.empty()));
+		assertEquals(Optional.of(today), service.findEarliestDueDate());
+		assertEquals(Collections.singletonList("findStateIndexEntries"), statements);
+	}
+
+	@Test
+	public void deliveryStatsAreBrokenDownByLocation() {
+		LocalDate today = LocalDate.now();
+		indexEntries.add(new Object[] { 1L, today, OrderState.NEW, 1L, 0 });
+		indexEntries.add(new Object[] { 2L, today, OrderState.DELIVERED, 1L, 0 });
+		indexEntries.add(new Object[] { 3L, today, OrderState.CONFIRMED, 2L, 0 });
+		indexEntries.add(new Object[] { 4L, today.plusDays(1), OrderState.NEW, 2L, 0 });
+		OrderStateIndex index = new OrderStateIndex(createRepository());
+
+		LocationBreakdown<DeliveryStats> stats = index.getDeliveryStatsByLocation(today,
+				EnumSet.of(OrderState.NEW, OrderState.CONFIRMED));
+		assertEquals(3, stats.getTotal().getDueToday());
+		assertEquals(2, stats.getByLocation().get(1L).getDueToday());
+		assertEquals(1, stats.getByLocation().get(1L).getDeliveredToday());
+		assertEquals(1, stats.getByLocation().get(1L).getNotAvailableToday());
+		assertEquals(1, stats.getByLocation().get(2L).getDueToday());
+		assertEquals(1, stats.getByLocation().get(2L).getDueTomorrow());
+		assertEquals(1, stats.getByLocation().get(2L).getNewOrders());
+	}
+
+	@Test
+	public void deliveryStatsOnEmptyTable() {
+		OrderService service = createService(createRepository());
+
+		DeliveryStats stats = service.getDeliveryStats();
+
+		assertEquals(0, stats.getDueToday());
+		assertEquals(0, stats.getNewOrders());
+		assertEquals(Optional.empty(), service.findEarliestDueDate());
+	}
+
+	@Test
+	public void upcomingOrdersAreFetchedOneSliceAtATime() {
+		List<Pageable> slices = new ArrayList<>();
+		OrderRepository repository = (OrderRepository) Proxy.newProxyInstance(getClass().getClassLoader(),
+				new Class<?>[] { OrderRepository.class }, (proxy, method, args) -> {
+					Pageable pageable = (Pageable) args[1];
+					slices.add(pageable);
+					List<OrderDueSummary> orders = Arrays.asList(new Order(null), new Order(null));
+					return new SliceImpl<>(orders, pageable, pageable.getPageNumber() < 2);
+				});
+		OrderService service = createService(repository);
+
+		Iterator<OrderDueSummary> orders = service.findDueStartingFrom(LocalDate.now());
+		orders.next();
+		orders.next();
+		assertEquals(1, slices.size());
+
+		orders.next();
+		assertEquals(2, slices.size());
+		assertEquals(1, slices.get(1).getPageNumber());
+
+		orders.next();
+		orders.next();
+		orders.next();
+		assertFalse(orders.hasNext());
+		assertEquals(3, slices.size());
+	}
+
+	@Test
+	public void nextOrderInAStateIsFilteredInTheQuery() {
+		List<Object[]> calls = new ArrayList<>();
+		OrderRepository repository = (OrderRepository) Proxy.newProxyInstance(getClass().getClassLoader(),
+				new Class<?>[] { OrderRepository.class }, (proxy, method, args) -> {
+					calls.add(new Object[] { method.getName(), args[0] });
+					return new SliceImpl<>(Collections.singletonList(new Order(null)), (Pageable) args[2], true);
+				});
+		OrderService service = createService(repository);
+
+		Iterator<OrderDueSummary> orders = service.findDueStartingFrom(LocalDate.now(), OrderState.READY);
+		orders.next();
+
+		assertEquals(1, calls.size());
+		assertEquals("findDueSummariesByStateStartingFrom", calls.get(0)[0]);
+		assertEquals(OrderState.READY, calls.get(0)[1]);
+	}
+}
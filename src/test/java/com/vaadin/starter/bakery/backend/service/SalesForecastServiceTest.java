@@ -0,0 +1,108 @@
+package com.vaadin.starter.bakery.backend.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Proxy;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.vaadin.starter.bakery.backend.data.OrderState;
+import com.vaadin.starter.bakery.backend.data.SalesForecast;
+import com.vaadin.starter.bakery.backend.data.SalesForecast.ProductForecast;
+import com.vaadin.starter.bakery.backend.data.entity.AbstractEntity;
+import com.vaadin.starter.bakery.backend.data.entity.Product;
+import com.vaadin.starter.bakery.backend.repositories.SalesRollupRepository;
+
+public class SalesForecastServiceTest {
+
+	private static final Clock CLOCK = Clock.fixed(Instant.parse("2026-10-15T12:00:00Z"), ZoneOffset.UTC);
+
+	private final Product bread = product(1L, "Bread");
+	private final Product cake = product(2L, "Cake");
+	private final List<Object[]> monthlySales = new ArrayList<>();
+
+	@Test
+	public void forecastIsOnlyAvailableOnceComputed() {
+		SalesForecastService service = createService();
+		assertFalse(service.getLatest().isPresent());
+
+		service.refresh();
+
+		assertTrue(service.getLatest().isPresent());
+		assertEquals(YearMonth.of(2026, 11), service.getLatest().get().getNextMonth());
+	}
+
+	@Test
+	public void steadySalesAreForecastUnchanged() {
+		for (YearMonth month = YearMonth.of(2023, 10); month.isBefore(YearMonth.of(2026, 10)); month = month
+				.plusMonths(1)) {
+			sold(bread, month, 1000);
+		}
+
+		ProductForecast forecast = createService().refresh().getProducts().get(0);
+
+		assertEquals(bread, forecast.getProduct());
+		assertEquals(1000, forecast.getNextMonth());
+		assertEquals(3000, forecast.getNextQuarter());
+	}
+
+	@Test
+	public void seasonalAverageIsScaledByTheBoundedTrend() {
+		// First sold in 2025, tripled in 2026: the trend is capped at 2
+		for (int month = 1; month <= 12; month++) {
+			sold(cake, YearMonth.of(2025, month), 500);
+		}
+		for (int month = 1; month <= 9; month++) {
+			sold(cake, YearMonth.of(2026, month), 1500);
+		}
+
+		SalesForecast forecast = createService().refresh();
+
+		ProductForecast cakeForecast = forecast.getProducts().get(0);
+		// November and December: only 2025 is known; January: average of 2025 and 2026
+		assertEquals(1000, cakeForecast.getNextMonth());
+		assertEquals(1000 + 1000 + 2000, cakeForecast.getNextQuarter());
+	}
+
+	private void sold(Product product, YearMonth month, long revenue) {
+		monthlySales.add(new Object[] { product, month.getYear(), month.getMonthValue(), revenue });
+	}
+
+	private SalesForecastService createService() {
+		SalesRollupRepository repository = (SalesRollupRepository) Proxy.newProxyInstance(
+				getClass().getClassLoader(), new Class<?>[] { SalesRollupRepository.class },
+				(proxy, method, args) -> {
+					if (method.getName().equals("sumPerProductAndMonthBetween")) {
+						assertEquals(OrderState.DELIVERED, args[0]);
+						assertEquals(LocalDate.of(2023, 10, 1), args[1]);
+						assertEquals(LocalDate.of(2026, 10, 1), args[2]);
+						return monthlySales;
+					}
+					throw new UnsupportedOperationException(method.getName());
+				});
+		return new SalesForecastService(repository, CLOCK, 60);
+	}
+
+	private static Product product(Long id, String name) {
+		Product product = new Product();
+		try {
+			Field field = AbstractEntity.class.getDeclaredField("id");
+			field.setAccessible(true);
+			field.set(product, id);
+		} catch (ReflectiveOperationException e) {
+			throw new IllegalStateException(e);
+		}
+		product.setName(name);
+		return product;
+	}
+}
@@ -0,0 +1,119 @@
+package com.vaadin.starter.bakery.backend.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Proxy;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.springframework.transaction.support.TransactionOperations;
+
+import com.vaadin.starter.bakery.backend.data.OrderState;
+import com.vaadin.starter.bakery.backend.data.entity.SalesRollup;
+import com.vaadin.starter.bakery.backend.repositories.ProductRepository;
+import com.vaadin.starter.bakery.backend.repositories.SalesRollupRepository;
+
+public class SalesRollupServiceTest {
+
+	private final AtomicInteger refreshes = new AtomicInteger();
+	private final List<String> threads = Collections.synchronizedList(new ArrayList<>());
+	private final List<Object[]> orderSums = new ArrayList<>();
+	private final List<Object[]> storedRows = new ArrayList<>();
+	private final List<String> rewritten = new ArrayList<>();
+	private final List<SalesRollup> saved = new ArrayList<>();
+	private CountDownLatch blockRefreshes = new CountDownLatch(0);
+
+	/**
+	 * Creates a repository that records the refreshed rows and the threads they
+	 * run on, or fails if {@code fail} is set. The sums of the orders and the
+	 * stored rows are read from {@link #orderSums} and {@link #storedRows}.
+	 */
+	private SalesRollupRepository createRepository(boolean fail) {
+		return (SalesRollupRepository) Proxy.newProxyInstance(getClass().getClassLoader(),
+				new Class<?>[] { SalesRollupRepository.class }, (proxy, method, args) -> {
+					switch (method.getName()) {
+					case "deleteByDueDateAndState":
+						if (fail) {
+							throw new IllegalStateException("failed");
+						}
+						blockRefreshes.await();
+						threads.add(Thread.currentThread().getName());
+						rewritten.add(args[0] + " " + args[1]);
+						return 0;
+					case "sumOrderItems":
+						return args == null ? orderSums : Collections.emptyList();
+					case "findRows":
+						return storedRows;
+					case "saveAll":
+						refreshes.incrementAndGet();
+						for (Object rollup : (Iterable<?>) args[0]) {
+							saved.add((SalesRollup) rollup);
+						}
+						return Collections.emptyList();
+					default:
+						throw new UnsupportedOperationException(method.getName());
+					}
+				});
+	}
+
+	private SalesRollupService createService(SalesRollupRepository repository) {
+		ProductRepository products = (ProductRepository) Proxy.newProxyInstance(getClass().getClassLoader(),
+				new Class<?>[] { ProductRepository.class }, (proxy, method, args) -> null);
+		return new SalesRollupService(repository, null, products, TransactionOperations.withoutTransaction(), 60);
+	}
+
+	@Test
+	public void refreshesRunOnTheRollupThreadAndAreCoalesced() {
+		SalesRollupService service = createService(createRepository(false));
+		LocalDate today = LocalDate.now();
+
+		blockRefreshes = new CountDownLatch(1);
+		service.refresh(today, OrderState.DELIVERED);
+		// Waiting behind the first one, which has already started
+		for (int i = 0; i < 8; i++) {
+			service.refresh(today.plusDays(1), OrderState.DELIVERED);
+		}
+		blockRefreshes.countDown();
+		service.awaitRefreshes();
+
+		assertEquals(2, refreshes.get());
+		assertEquals(Arrays.asList("sales-rollup", "sales-rollup"), threads);
+	}
+
+	@Test
+	public void failedRefreshIsLeftToTheReconciliation() {
+		SalesRollupService service = createService(createRepository(true));
+
+		service.refresh(LocalDate.now(), OrderState.DELIVERED);
+		service.awaitRefreshes();
+
+		assertEquals(0, refreshes.get());
+	}
+
+	@Test
+	public void reconciliationRewritesOnlyTheDifferingRows() {
+		LocalDate today = LocalDate.now();
+		orderSums.add(new Object[] { today, OrderState.DELIVERED, 1L, 2L, 600L });
+		orderSums.add(new Object[] { today, OrderState.NEW, 1L, 1L, 300L });
+		orderSums.add(new Object[] { today.plusDays(1), OrderState.NEW, 2L, 1L, 1500L });
+		storedRows.add(new Object[] { today, OrderState.DELIVERED, 1L, 2L, 600L });
+		storedRows.add(new Object[] { today, OrderState.NEW, 1L, 2L, 600L });
+		storedRows.add(new Object[] { today.minusDays(1), OrderState.NEW, 1L, 1L, 300L });
+		SalesRollupService service = createService(createRepository(false));
+
+		service.reconcileNow();
+
+		Collections.sort(rewritten);
+		assertEquals(Arrays.asList(today.minusDays(1) + " NEW", today + " NEW", today.plusDays(1) + " NEW"),
+				rewritten);
+		assertEquals(2, saved.size());
+		assertTrue(saved.stream().anyMatch(rollup -> rollup.getDueDate().equals(today) && rollup.getQuantity() == 1));
+	}
+}
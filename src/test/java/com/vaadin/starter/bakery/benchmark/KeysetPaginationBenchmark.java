@@ -0,0 +1,165 @@
+package com.vaadin.starter.bakery.benchmark;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Time;
+import java.util.function.IntFunction;
+
+/**
+ * Compares the latency of reading one page of the orders grid at increasing
+ * depths with an offset query and with the keyset query of
+ * {@code OrderRepository.findFollowing}.
+ * <p>
+ * Creates an in-memory H2 database with the order and customer table layout
+ * generated by Hibernate, fills it with one million orders over ten years and
+ * prints the plan of both queries and the average time to read a page at each
+ * depth. Like the grid query, both queries join the customer. Run the
+ * {@code main} method from the IDE or with the test classpath, optionally
+ * passing the number of orders.
+ * </p>
+ */
+public class KeysetPaginationBenchmark {
+
+	private static final int PAGE_SIZE = 50;
+	private static final int ITERATIONS = 20;
+
+	private static final String OFFSET = "SELECT o.id, o.due_date, o.due_time, c.full_name FROM order_info o "
+			+ "JOIN customer c ON c.id = o.customer_id ORDER BY o.due_date, o.due_time, o.id LIMIT ? OFFSET ?";
+	private static final String KEYSET = "SELECT o.id, o.due_date, o.due_time, c.full_name FROM order_info o "
+			+ "JOIN customer c ON c.id = o.customer_id WHERE o.due_date >= ? "
+			+ "AND (o.due_date > ? OR o.due_time > ? OR (o.due_time = ? AND o.id > ?)) "
+			+ "ORDER BY o.due_date, o.due_time, o.id LIMIT ?";
+	private static final String KEY_AT = "SELECT due_date, due_time, id FROM order_info "
+			+ "ORDER BY due_date, due_time, id LIMIT 1 OFFSET ?";
+
+	public static void main(String[] args) throws SQLException {
+		int orders = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+
+		try (Connection connection = DriverManager.getConnection("jdbc:h2:mem:benchmark")) {
+			createOrders(connection, orders);
+			explain(connection, "Offset", OFFSET, PAGE_SIZE, orders / 2);
+			Object[] key = keyAt(connection, orders / 2 - 1);
+			explain(connection, "Keyset", KEYSET, key[0], key[0], key[1], key[1], key[2], PAGE_SIZE);
+
+			System.out.printf("%12s %14s %14s%n", "Depth", "Offset (ms)", "Keyset (ms)");
+			for (int depth = PAGE_SIZE; depth + PAGE_SIZE * ITERATIONS * 2 < orders; depth *= 10) {
+				System.out.printf("%,12d %14.2f %14.2f%n", depth, offset(connection, depth),
+						keyset(connection, depth));
+			}
+		}
+	}
+
+	private static void createOrders(Connection connection, int orders) throws SQLException {
+		try (Statement statement = connection.createStatement()) {
+			statement.execute("CREATE TABLE customer (id BIGINT PRIMARY KEY, full_name VARCHAR(255) NOT NULL)");
+			statement.execute("CREATE TABLE order_info (id BIGINT PRIMARY KEY, due_date DATE NOT NULL, "
+					+ "due_time TIME NOT NULL, state INTEGER NOT NULL, customer_id BIGINT NOT NULL, "
+					+ "version INTEGER NOT NULL)");
+			statement.execute("CREATE INDEX idx_due_date_due_time_id ON order_info (due_date, due_time, id)");
+
+			long start = System.nanoTime();
+			statement.execute("INSERT INTO customer SELECT x, 'Customer ' || x FROM SYSTEM_RANGE(1, " + orders + ")");
+			// Spreads the orders evenly over ten years, with three pickup times a day
+			statement.execute("INSERT INTO order_info SELECT x, DATEADD(DAY, -MOD(x, 3650), CURRENT_DATE), "
+					+ "TIME '08:00:00' + MOD(x, 3) * INTERVAL '4' HOUR, MOD(x / 3650, 6), x, 0 FROM SYSTEM_RANGE(1, "
+					+ orders + ")");
+			statement.execute("ANALYZE");
+			System.out.printf("Created %,d orders in %d ms%n%n", orders, (System.nanoTime() - start) / 1_000_000);
+		}
+	}
+
+	private static void explain(Connection connection, String name, String sql, Object... parameters)
+			throws SQLException {
+		System.out.println(name);
+		try (PreparedStatement explain = connection.prepareStatement("EXPLAIN " + sql)) {
+			bind(explain, parameters);
+			try (ResultSet plan = explain.executeQuery()) {
+				while (plan.next()) {
+					System.out.println("  " + plan.getString(1).replace("\n", "\n  "));
+				}
+			}
+		}
+		System.out.println();
+	}
+
+	/**
+	 * Returns the average time to read a page at the given depth by offset.
+	 */
+	private static double offset(Connection connection, int depth) throws SQLException {
+		try (PreparedStatement query = connection.prepareStatement(OFFSET)) {
+			return measure(query, i -> new Object[] { PAGE_SIZE, pageOffset(depth, i) });
+		}
+	}
+
+	/**
+	 * Returns the average time to read a page at the given depth continuing after
+	 * the last order of the previous page, as the grid does when scrolling.
+	 */
+	private static double keyset(Connection connection, int depth) throws SQLException {
+		Object[][] keys = new Object[ITERATIONS * 2][];
+		for (int i = 0; i < keys.length; i++) {
+			keys[i] = keyAt(connection, pageOffset(depth, i) - 1);
+		}
+		try (PreparedStatement query = connection.prepareStatement(KEYSET)) {
+			return measure(query, i -> new Object[] { keys[i][0], keys[i][0], keys[i][1], keys[i][1], keys[i][2],
+					PAGE_SIZE });
+		}
+	}
+
+	/**
+	 * Returns the offset of the page read in the given iteration. Each iteration
+	 * reads a different page, so that H2 cannot reuse a previous result.
+	 */
+	private static int pageOffset(int depth, int iteration) {
+		return depth + iteration * PAGE_SIZE;
+	}
+
+	private static Object[] keyAt(Connection connection, int offset) throws SQLException {
+		try (PreparedStatement query = connection.prepareStatement(KEY_AT)) {
+			bind(query, offset);
+			try (ResultSet result = query.executeQuery()) {
+				result.next();
+				Date dueDate = result.getDate(1);
+				Time dueTime = result.getTime(2);
+				return new Object[] { dueDate, dueTime, result.getLong(3) };
+			}
+		}
+	}
+
+	private static double measure(PreparedStatement query, IntFunction<Object[]> parameters) throws SQLException {
+		// Warm up before measuring
+		for (int i = ITERATIONS; i < ITERATIONS * 2; i++) {
+			bind(query, parameters.apply(i));
+			consume(query);
+		}
+		long start = System.nanoTime();
+		for (int i = 0; i < ITERATIONS; i++) {
+			bind(query, parameters.apply(i));
+			if (consume(query) != PAGE_SIZE) {
+				throw new IllegalStateException("Expected a full page");
+			}
+		}
+		return (System.nanoTime() - start) / 1_000_000.0 / ITERATIONS;
+	}
+
+	private static void bind(PreparedStatement statement, Object... parameters) throws SQLException {
+		for (int i = 0; i < parameters.length; i++) {
+			statement.setObject(i + 1, parameters[i]);
+		}
+	}
+
+	private static int consume(PreparedStatement query) throws SQLException {
+		int rows = 0;
+		try (ResultSet result = query.executeQuery()) {
+			while (result.next()) {
+				rows++;
+			}
+		}
+		return rows;
+	}
+}
@@ -0,0 +1,111 @@
+package com.vaadin.starter.bakery.benchmark;
+
+import static com.vaadin.starter.bakery.ui.utils.FormattingUtils.HOUR_FORMATTER;
+import static com.vaadin.starter.bakery.ui.utils.FormattingUtils.MONTH_AND_DAY_FORMATTER;
+import static com.vaadin.starter.bakery.ui.utils.FormattingUtils.SHORT_DAY_FORMATTER;
+import static com.vaadin.starter.bakery.ui.utils.FormattingUtils.WEEKDAY_FULLNAME_FORMATTER;
+import static com.vaadin.starter.bakery.ui.utils.FormattingUtils.WEEK_OF_YEAR_FIELD;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import com.vaadin.starter.bakery.backend.data.entity.Order;
+import com.vaadin.starter.bakery.ui.views.storefront.OrderCard;
+
+/**
+ * Compares rendering a page of {@link OrderCard order cards} with the previous
+ * implementation, which computed the current date and week and formatted the
+ * date and time texts for every card.
+ * <p>
+ * Renders pages of 50 cards spread over two weeks around today, reading every
+ * date dependent text as the card template does, and prints the average time
+ * per page. Run the {@code main} method from the IDE or with the test classpath,
+ * optionally passing the number of pages rendered per round.
+ * </p>
+ */
+public class OrderCardBenchmark {
+
+	private static final int PAGE_SIZE = 50;
+	private static final int ROUNDS = 20;
+
+	/** Number of days the orders are spread over, centered on today. */
+	private static final int DAYS = 14;
+
+	/** Keeps the rendered texts from being optimized away. */
+	private static int sink;
+
+	public static void main(String[] args) {
+		int pages = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+		List<Order> page = createPage();
+
+		// Warm up before measuring
+		for (int i = 0; i < ROUNDS; i++) {
+			render(pages, page, OrderCardBenchmark::renderPrevious);
+			render(pages, page, OrderCardBenchmark::renderCurrent);
+		}
+
+		System.out.printf("%-10s %14s%n", "", "Page (us)");
+		print("Previous", pages, page, OrderCardBenchmark::renderPrevious);
+		print("Current", pages, page, OrderCardBenchmark::renderCurrent);
+	}
+
+	private static void renderCurrent(Order order) {
+		OrderCard card = OrderCard.create(order);
+		consume(card.getTime(), card.getShortDay(), card.getSecondaryTime(), card.getMonth(), card.getFullDay());
+	}
+
+	/**
+	 * Renders a card as the previous implementation of {@link OrderCard} did.
+	 */
+	private static void renderPrevious(Order order) {
+		LocalDate now = LocalDate.now();
+		LocalDate date = order.getDueDate();
+		boolean recent = date.equals(now) || date.equals(now.minusDays(1));
+		boolean inWeek = !recent && now.getYear() == date.getYear()
+				&& now.get(WEEK_OF_YEAR_FIELD) == date.get(WEEK_OF_YEAR_FIELD);
+		consume(recent ? HOUR_FORMATTER.format(order.getDueTime()) : null,
+				inWeek ? SHORT_DAY_FORMATTER.format(date) : null,
+				inWeek ? HOUR_FORMATTER.format(order.getDueTime()) : null,
+				recent || inWeek ? null : MONTH_AND_DAY_FORMATTER.format(date),
+				recent || inWeek ? null : WEEKDAY_FULLNAME_FORMATTER.format(date));
+	}
+
+	private static void consume(String... texts) {
+		for (String text : texts) {
+			if (text != null) {
+				sink += text.length();
+			}
+		}
+	}
+
+	private static long render(int pages, List<Order> page, Consumer<Order> renderer) {
+		long start = System.nanoTime();
+		for (int i = 0; i < pages; i++) {
+			page.forEach(renderer);
+		}
+		return System.nanoTime() - start;
+	}
+
+	private static void print(String name, int pages, List<Order> page, Consumer<Order> renderer) {
+		long elapsed = 0;
+		for (int i = 0; i < ROUNDS; i++) {
+			elapsed += render(pages, page, renderer);
+		}
+		System.out.printf("%-10s %14.2f%n", name, elapsed / 1000.0 / ROUNDS / pages);
+	}
+
+	private static List<Order> createPage() {
+		LocalDate first = LocalDate.now().minusDays(DAYS / 2);
+		List<Order> page = new ArrayList<>();
+		for (int i = 0; i < PAGE_SIZE; i++) {
+			Order order = new Order(null);
+			order.setDueDate(first.plusDays(i * DAYS / PAGE_SIZE));
+			order.setDueTime(LocalTime.of(8 + i % 3 * 4, 0));
+			page.add(order);
+		}
+		return page;
+	}
+}
@@ -0,0 +1,227 @@
+package com.vaadin.starter.bakery.benchmark;
+
+import java.lang.reflect.Field;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+import com.vaadin.starter.bakery.backend.data.entity.AbstractEntity;
+import com.vaadin.starter.bakery.backend.data.entity.Order;
+import com.vaadin.starter.bakery.ui.views.storefront.OrderCardHeaderGenerator;
+import com.vaadin.starter.bakery.ui.views.storefront.beans.OrderCardHeader;
+
+/**
+ * Compares {@link OrderCardHeaderGenerator} with the previous implementation,
+ * which walked a chain of date predicates and remembered every order read in a
+ * hash map.
+ * <p>
+ * Reads pages of 50 orders spread over the previous and next two months, as the
+ * storefront grid does, and then looks up the header of every order, as the
+ * card renderer does. Prints the average time per page and per lookup. The
+ * pages are read in order, as the previous implementation requires, and for the
+ * new implementation also shuffled. Run the {@code main} method from the IDE or
+ * with the test classpath, optionally passing the number of orders.
+ * </p>
+ */
+public class OrderCardHeaderGeneratorBenchmark {
+
+	private static final int PAGE_SIZE = 50;
+	private static final int ROUNDS = 20;
+
+	/** Number of days the orders are spread over, centered on today. */
+	private static final int DAYS = 120;
+
+	public static void main(String[] args) {
+		int orderCount = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+		List<List<Order>> pages = createPages(orderCount);
+		List<List<Order>> shuffled = new ArrayList<>(pages);
+		Collections.shuffle(shuffled, new Random(42));
+
+		// Warm up before measuring
+		for (int i = 0; i < ROUNDS; i++) {
+			previous(pages);
+			current(pages);
+			current(shuffled);
+		}
+
+		System.out.printf("%-28s %14s %14s%n", "", "Page (us)", "Lookup (ns)");
+		print("Previous, pages in order", pages, () -> previous(pages));
+		print("Current, pages in order", pages, () -> current(pages));
+		print("Current, pages shuffled", pages, () -> current(shuffled));
+	}
+
+	/**
+	 * Reads all pages with the previous implementation and returns the time spent
+	 * reading and looking up.
+	 */
+	private static long[] previous(List<List<Order>> pages) {
+		PreviousOrderCardHeaderGenerator generator = new PreviousOrderCardHeaderGenerator();
+		generator.resetHeaderChain(true);
+		long start = System.nanoTime();
+		for (List<Order> page : pages) {
+			generator.ordersRead(page);
+		}
+		long read = System.nanoTime() - start;
+		return new long[] { read, lookUp(pages, generator::get) };
+	}
+
+	/**
+	 * Reads all pages with the current implementation and returns the time spent
+	 * reading and looking up.
+	 */
+	private static long[] current(List<List<Order>> pages) {
+		OrderCardHeaderGenerator generator = new OrderCardHeaderGenerator();
+		generator.resetHeaderChain(true);
+		long start = System.nanoTime();
+		for (List<Order> page : pages) {
+			generator.ordersRead(page);
+		}
+		long read = System.nanoTime() - start;
+		return new long[] { read, lookUp(pages, generator::get) };
+	}
+
+	private static long lookUp(List<List<Order>> pages, Function<Long, OrderCardHeader> get) {
+		int headers = 0;
+		long start = System.nanoTime();
+		for (List<Order> page : pages) {
+			for (Order order : page) {
+				if (get.apply(order.getId()) != null) {
+					headers++;
+				}
+			}
+		}
+		long elapsed = System.nanoTime() - start;
+		if (headers == 0) {
+			throw new IllegalStateException("Expected headers");
+		}
+		return elapsed;
+	}
+
+	private static void print(String name, List<List<Order>> pages, Supplier<long[]> run) {
+		long read = 0;
+		long lookUp = 0;
+		for (int i = 0; i < ROUNDS; i++) {
+			long[] times = run.get();
+			read += times[0];
+			lookUp += times[1];
+		}
+		int orders = pages.size() * PAGE_SIZE;
+		System.out.printf("%-28s %14.2f %14.2f%n", name, read / 1000.0 / ROUNDS / pages.size(),
+				(double) lookUp / ROUNDS / orders);
+	}
+
+	/**
+	 * Creates the given number of orders, sorted as in the grid, and splits them
+	 * into pages.
+	 */
+	private static List<List<Order>> createPages(int orderCount) {
+		LocalDate first = LocalDate.now().minusDays(DAYS / 2);
+		List<List<Order>> pages = new ArrayList<>();
+		List<Order> page = new ArrayList<>();
+		for (int i = 0; i < orderCount; i++) {
+			Order order = new Order(null);
+			setId(order, (long) i);
+			order.setDueDate(first.plusDays((long) i * DAYS / orderCount));
+			order.setDueTime(LocalTime.of(8, 0));
+			page.add(order);
+			if (page.size() == PAGE_SIZE) {
+				pages.add(page);
+				page = new ArrayList<>();
+			}
+		}
+		return pages;
+	}
+
+	private static void setId(AbstractEntity entity, Long id) {
+		try {
+			Field field = AbstractEntity.class.getDeclaredField("id");
+			field.setAccessible(true);
+			field.set(entity, id);
+		} catch (ReflectiveOperationException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * The previous implementation of {@link OrderCardHeaderGenerator}, reduced to
+	 * the parts being measured.
+	 */
+	private static class PreviousOrderCardHeaderGenerator {
+
+		private static class HeaderWrapper {
+			private final Predicate<LocalDate> matcher;
+			private final OrderCardHeader header;
+			private Long selected;
+
+			HeaderWrapper(Predicate<LocalDate> matcher, OrderCardHeader header) {
+				this.matcher = matcher;
+				this.header = header;
+			}
+		}
+
+		private final Map<Long, OrderCardHeader> ordersWithHeaders = new HashMap<>();
+		private List<HeaderWrapper> headerChain = new ArrayList<>();
+
+		OrderCardHeader get(Long id) {
+			return ordersWithHeaders.get(id);
+		}
+
+		void resetHeaderChain(boolean showPrevious) {
+			headerChain = createHeaderChain(showPrevious);
+			ordersWithHeaders.clear();
+		}
+
+		void ordersRead(List<Order> orders) {
+			Iterator<HeaderWrapper> headerIterator = headerChain.stream().filter(h -> h.selected == null)
+					.iterator();
+			if (!headerIterator.hasNext()) {
+				return;
+			}
+
+			HeaderWrapper current = headerIterator.next();
+			for (Order order : orders) {
+				if (current.selected != null && current.matcher.test(order.getDueDate())) {
+					continue;
+				}
+				while (current != null && !current.matcher.test(order.getDueDate())) {
+					current = headerIterator.hasNext() ? headerIterator.next() : null;
+				}
+				if (current == null) {
+					break;
+				}
+				current.selected = order.getId();
+				ordersWithHeaders.put(order.getId(), current.header);
+			}
+		}
+
+		private List<HeaderWrapper> createHeaderChain(boolean showPrevious) {
+			List<HeaderWrapper> chain = new ArrayList<>();
+			LocalDate today = LocalDate.now();
+			LocalDate startOfTheWeek = today.minusDays(today.getDayOfWeek().getValue() - 1);
+			if (showPrevious) {
+				LocalDate yesterday = today.minusDays(1);
+				chain.add(new HeaderWrapper(d -> d.isBefore(startOfTheWeek), new OrderCardHeader("Recent", "")));
+				if (startOfTheWeek.isBefore(yesterday)) {
+					chain.add(new HeaderWrapper(d -> d.isBefore(yesterday) && !d.isAfter(startOfTheWeek),
+							new OrderCardHeader("This week before yesterday", "")));
+				}
+				chain.add(new HeaderWrapper(yesterday::equals, new OrderCardHeader("Yesterday", "")));
+			}
+			LocalDate firstDayOfTheNextWeek = startOfTheWeek.plusDays(7);
+			chain.add(new HeaderWrapper(today::equals, new OrderCardHeader("Today", "")));
+			chain.add(new HeaderWrapper(d -> d.isAfter(today) && d.isBefore(firstDayOfTheNextWeek),
+					new OrderCardHeader("This week", "")));
+			chain.add(new HeaderWrapper(d -> !d.isBefore(firstDayOfTheNextWeek), new OrderCardHeader("Upcoming", "")));
+			return chain;
+		}
+	}
+}
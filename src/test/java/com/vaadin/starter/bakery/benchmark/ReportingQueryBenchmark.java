@@ -0,0 +1,114 @@
+package com.vaadin.starter.bakery.benchmark;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.function.IntFunction;
+
+/**
+ * Compares the execution plans and latency of loading the delivered orders of
+ * one year, as done by {@code DashboardAggregates} through
+ * {@code OrderRepository.findItemsByStateBetween}, with loading all delivered
+ * orders and with filtering by {@code year(dueDate)}.
+ * <p>
+ * Creates an in-memory H2 database with the order table layout generated by
+ * Hibernate, fills it with one million orders over ten years and prints the plan
+ * and the average time of each query. Run the {@code main} method from the IDE or
+ * with the test classpath, optionally passing the number of orders.
+ * </p>
+ */
+public class ReportingQueryBenchmark {
+
+	private static final int DELIVERED = 3;
+	private static final int ITERATIONS = 20;
+
+	private static final String ALL = "SELECT id, due_date, version FROM order_info WHERE state = ?";
+	private static final String YEAR_FUNCTION = "SELECT id, due_date, version FROM order_info "
+			+ "WHERE state = ? AND YEAR(due_date) = ?";
+	private static final String YEAR_RANGE = "SELECT id, due_date, version FROM order_info "
+			+ "WHERE state = ? AND due_date >= ? AND due_date < ?";
+
+	public static void main(String[] args) throws SQLException {
+		int orders = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+		LocalDate year = LocalDate.now().withDayOfYear(1);
+
+		try (Connection connection = DriverManager.getConnection("jdbc:h2:mem:benchmark")) {
+			createOrders(connection, orders);
+
+			// Each iteration queries a different year, so that H2 cannot reuse a previous result
+			run(connection, "Delivered orders, all years", ALL, i -> new Object[] { DELIVERED });
+			run(connection, "Delivered orders of a year, year()", YEAR_FUNCTION,
+					i -> new Object[] { DELIVERED, year.minusYears(i % 10).getYear() });
+			run(connection, "Delivered orders of a year, dueDate range", YEAR_RANGE,
+					i -> new Object[] { DELIVERED, Date.valueOf(year.minusYears(i % 10)),
+							Date.valueOf(year.minusYears(i % 10 - 1L)) });
+		}
+	}
+
+	private static void createOrders(Connection connection, int orders) throws SQLException {
+		try (Statement statement = connection.createStatement()) {
+			statement.execute("CREATE TABLE order_info (id BIGINT PRIMARY KEY, due_date DATE NOT NULL, "
+					+ "due_time TIME NOT NULL, state INTEGER NOT NULL, version INTEGER NOT NULL)");
+			statement.execute("CREATE INDEX idx_due_date ON order_info (due_date)");
+			statement.execute("CREATE INDEX idx_state_due_date ON order_info (state, due_date)");
+
+			long start = System.nanoTime();
+			// Spreads the orders evenly over ten years and the six states
+			statement.execute("INSERT INTO order_info SELECT x, DATEADD(DAY, -MOD(x, 3650), CURRENT_DATE), "
+					+ "TIME '08:00:00' + MOD(x, 3) * INTERVAL '4' HOUR, MOD(x / 3650, 6), 0 FROM SYSTEM_RANGE(1, "
+					+ orders + ")");
+			statement.execute("ANALYZE");
+			System.out.printf("Created %,d orders in %d ms%n%n", orders, (System.nanoTime() - start) / 1_000_000);
+		}
+	}
+
+	private static void run(Connection connection, String name, String sql, IntFunction<Object[]> parameters)
+			throws SQLException {
+		System.out.println(name);
+		try (PreparedStatement explain = connection.prepareStatement("EXPLAIN " + sql)) {
+			bind(explain, parameters.apply(0));
+			try (ResultSet plan = explain.executeQuery()) {
+				while (plan.next()) {
+					System.out.println("  " + plan.getString(1).replace("\n", "\n  "));
+				}
+			}
+		}
+
+		try (PreparedStatement query = connection.prepareStatement(sql)) {
+			// Warm up before measuring
+			for (int i = 0; i < ITERATIONS; i++) {
+				bind(query, parameters.apply(i));
+				consume(query);
+			}
+			long start = System.nanoTime();
+			long rows = 0;
+			for (int i = 0; i < ITERATIONS; i++) {
+				bind(query, parameters.apply(i));
+				rows += consume(query);
+			}
+			System.out.printf("  -> %d rows, %.2f ms per query%n%n", rows / ITERATIONS,
+					(System.nanoTime() - start) / 1_000_000.0 / ITERATIONS);
+		}
+	}
+
+	private static void bind(PreparedStatement statement, Object[] parameters) throws SQLException {
+		for (int i = 0; i < parameters.length; i++) {
+			statement.setObject(i + 1, parameters[i]);
+		}
+	}
+
+	private static int consume(PreparedStatement query) throws SQLException {
+		int rows = 0;
+		try (ResultSet result = query.executeQuery()) {
+			while (result.next()) {
+				rows++;
+			}
+		}
+		return rows;
+	}
+}
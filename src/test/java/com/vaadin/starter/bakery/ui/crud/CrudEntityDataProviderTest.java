@@ -0,0 +1,105 @@
+package com.vaadin.starter.bakery.ui.crud;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import com.vaadin.flow.data.provider.Query;
+import com.vaadin.starter.bakery.backend.data.entity.Product;
+import com.vaadin.starter.bakery.backend.service.FilterableCrudService;
+
+public class CrudEntityDataProviderTest {
+
+	private final Map<String, Integer> calls = new HashMap<>();
+	private long writeVersion;
+
+	@Test
+	public void repeatedPagesAndCountsAreServedFromTheCache() {
+		CrudEntityDataProvider<Product> dataProvider = new CrudEntityDataProvider<>(service());
+
+		Object first = dataProvider.fetchFromBackEnd(query("Bread"), PageRequest.of(0, 50, Sort.by("id")));
+		Object second = dataProvider.fetchFromBackEnd(query("Bread"), PageRequest.of(0, 50, Sort.by("id")));
+		dataProvider.fetchFromBackEnd(query("Bread"), PageRequest.of(1, 50, Sort.by("id")));
+		dataProvider.fetchFromBackEnd(query("Cake"), PageRequest.of(0, 50, Sort.by("id")));
+		dataProvider.sizeInBackEnd(query("Bread"));
+		dataProvider.sizeInBackEnd(query("Bread"));
+
+		assertSame(first, second);
+		assertEquals(3, (int) calls.get("findAnyMatching"));
+		assertEquals(1, (int) calls.get("countAnyMatching"));
+		assertEquals(2, dataProvider.getHitCount());
+		assertEquals(4, dataProvider.getMissCount());
+	}
+
+	@Test
+	public void refreshClearsTheCache() {
+		CrudEntityDataProvider<Product> dataProvider = new CrudEntityDataProvider<>(service());
+
+		dataProvider.sizeInBackEnd(query(null));
+		dataProvider.refreshAll();
+		dataProvider.sizeInBackEnd(query(null));
+		dataProvider.invalidate();
+		dataProvider.sizeInBackEnd(query(null));
+
+		assertEquals(3, (int) calls.get("countAnyMatching"));
+	}
+
+	@Test
+	public void writesInOtherUisClearTheCache() {
+		CrudEntityDataProvider<Product> dataProvider = new CrudEntityDataProvider<>(service());
+
+		dataProvider.fetchFromBackEnd(query(null), PageRequest.of(0, 50));
+		dataProvider.sizeInBackEnd(query(null));
+		writeVersion++;
+		dataProvider.fetchFromBackEnd(query(null), PageRequest.of(0, 50));
+		dataProvider.sizeInBackEnd(query(null));
+		dataProvider.fetchFromBackEnd(query(null), PageRequest.of(0, 50));
+
+		assertEquals(2, (int) calls.get("findAnyMatching"));
+		assertEquals(2, (int) calls.get("countAnyMatching"));
+	}
+
+	@Test
+	public void leastRecentlyUsedPagesAreEvicted() {
+		CrudEntityDataProvider<Product> dataProvider = new CrudEntityDataProvider<>(service());
+
+		for (int page = 0; page <= CrudEntityDataProvider.CACHE_SIZE; page++) {
+			dataProvider.fetchFromBackEnd(query(null), PageRequest.of(page, 50));
+		}
+		dataProvider.fetchFromBackEnd(query(null), PageRequest.of(CrudEntityDataProvider.CACHE_SIZE, 50));
+		dataProvider.fetchFromBackEnd(query(null), PageRequest.of(0, 50));
+
+		assertEquals(CrudEntityDataProvider.CACHE_SIZE + 2, (int) calls.get("findAnyMatching"));
+	}
+
+	private static Query<Product, String> query(String filter) {
+		return new Query<>(0, 50, Collections.emptyList(), null, filter);
+	}
+
+	@SuppressWarnings("unchecked")
+	private FilterableCrudService<Product> service() {
+		return (FilterableCrudService<Product>) Proxy.newProxyInstance(getClass().getClassLoader(),
+				new Class<?>[] { FilterableCrudService.class }, (proxy, method, args) -> {
+					calls.merge(method.getName(), 1, Integer::sum);
+					switch (method.getName()) {
+					case "findAnyMatching":
+						return new PageImpl<Product>(Collections.emptyList());
+					case "countAnyMatching":
+						return 0L;
+					case "getWriteVersion":
+						return writeVersion;
+					default:
+						throw new UnsupportedOperationException(method.getName());
+					}
+				});
+	}
+}
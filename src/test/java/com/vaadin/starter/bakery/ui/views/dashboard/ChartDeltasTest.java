@@ -0,0 +1,72 @@
+package com.vaadin.starter.bakery.ui.views.dashboard;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.LinkedHashMap;
+
+import org.junit.Test;
+
+import com.vaadin.flow.component.charts.model.DataSeries;
+import com.vaadin.flow.component.charts.model.DataSeriesItem;
+import com.vaadin.flow.component.charts.model.ListSeries;
+import com.vaadin.starter.bakery.backend.data.TimeSeries;
+import com.vaadin.starter.bakery.backend.data.entity.Product;
+
+public class ChartDeltasTest {
+
+	@Test
+	public void onlyChangedPointsAreUpdated() {
+		TimeSeries shown = series(3, 5L, null, 7L);
+		ListSeries chartSeries = new ListSeries("per Day", shown.toNumbers());
+
+		assertEquals(0, ChartDeltas.update(chartSeries, shown, series(3, 5L, null, 7L)));
+		assertEquals(2, ChartDeltas.update(chartSeries, shown, series(3, 5L, 1L, null)));
+		assertArrayEquals(new Number[] { 5L, 1L, null }, chartSeries.getData());
+	}
+
+	@Test
+	public void seriesOfAnotherSizeAreNotComparable() {
+		TimeSeries shown = series(2, 1L, 2L);
+		ListSeries chartSeries = new ListSeries("per Day", shown.toNumbers());
+
+		assertEquals(ChartDeltas.NOT_COMPARABLE, ChartDeltas.update(chartSeries, shown, series(3, 1L, 2L, 3L)));
+	}
+
+	@Test
+	public void productSlicesAreUpdatedWhileTheProductsStayTheSame() {
+		Product bread = product("Bread");
+		Product cake = product("Cake");
+		LinkedHashMap<Product, Integer> shown = new LinkedHashMap<>();
+		shown.put(bread, 4);
+		shown.put(cake, 2);
+		DataSeries chartSeries = new DataSeries();
+		shown.forEach((product, quantity) -> chartSeries.add(new DataSeriesItem(product.getName(), quantity)));
+
+		LinkedHashMap<Product, Integer> current = new LinkedHashMap<>(shown);
+		current.put(cake, 3);
+		assertEquals(1, ChartDeltas.update(chartSeries, shown, current));
+		assertEquals(3, chartSeries.get(1).getY().intValue());
+
+		LinkedHashMap<Product, Integer> reordered = new LinkedHashMap<>();
+		reordered.put(cake, 3);
+		reordered.put(bread, 4);
+		assertEquals(ChartDeltas.NOT_COMPARABLE, ChartDeltas.update(chartSeries, current, reordered));
+	}
+
+	private static TimeSeries series(int size, Long... values) {
+		TimeSeries series = new TimeSeries(size);
+		for (int i = 0; i < values.length; i++) {
+			if (values[i] != null) {
+				series.set(i, values[i]);
+			}
+		}
+		return series;
+	}
+
+	private static Product product(String name) {
+		Product product = new Product();
+		product.setName(name);
+		return product;
+	}
+}
@@ -0,0 +1,137 @@
+package com.vaadin.starter.bakery.ui.views.storefront;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Field;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.vaadin.starter.bakery.backend.data.entity.AbstractEntity;
+import com.vaadin.starter.bakery.backend.data.entity.Order;
+
+public class OrderCardHeaderGeneratorTest {
+
+	/** A Wednesday. */
+	private static final LocalDate TODAY = LocalDate.of(2024, 3, 13);
+
+	private final OrderCardHeaderGenerator generator = new OrderCardHeaderGenerator(
+			Clock.fixed(TODAY.atStartOfDay().toInstant(ZoneOffset.UTC), ZoneOffset.UTC));
+
+	@Test
+	public void firstOrderOfEachPeriodGetsTheHeader() {
+		generator.resetHeaderChain(true);
+
+		generator.ordersRead(Arrays.asList(order(1, -10), order(2, -9), order(3, -2), order(4, -1), order(5, 0),
+				order(6, 0), order(7, 1), order(8, 5), order(9, 6)));
+
+		assertEquals("Recent", generator.get(1L).getMain());
+		assertNull(generator.get(2L));
+		assertEquals("This week before yesterday", generator.get(3L).getMain());
+		assertEquals("Mon, Mar 11 - Tue, Mar 12", generator.get(3L).getSecondary());
+		assertEquals("Yesterday", generator.get(4L).getMain());
+		assertEquals("Today", generator.get(5L).getMain());
+		assertNull(generator.get(6L));
+		assertEquals("This week starting tomorrow", generator.get(7L).getMain());
+		assertEquals("Thu, Mar 14 - Sun, Mar 17", generator.get(7L).getSecondary());
+		assertEquals("Upcoming", generator.get(8L).getMain());
+		assertNull(generator.get(9L));
+	}
+
+	@Test
+	public void previousPeriodsAreOnlyShownWhenRequested() {
+		generator.resetHeaderChain(false);
+
+		generator.ordersRead(Arrays.asList(order(1, -1), order(2, 0), order(3, 1)));
+
+		assertNull(generator.get(1L));
+		assertEquals("Today", generator.get(2L).getMain());
+		assertEquals("This week", generator.get(3L).getMain());
+	}
+
+	@Test
+	public void pagesReadOutOfOrderMoveTheHeaderToTheFirstOrder() {
+		generator.resetHeaderChain(false);
+		Order second = order(3, 5);
+
+		assertTrue(generator.ordersRead(Arrays.asList(second, order(4, 6))).isEmpty());
+		assertEquals("Upcoming", generator.get(3L).getMain());
+
+		List<Order> displaced = generator.ordersRead(Arrays.asList(order(1, 0), order(2, 5)));
+
+		assertEquals(Collections.singletonList(second), displaced);
+		assertNull(generator.get(3L));
+		assertEquals("Upcoming", generator.get(2L).getMain());
+		assertEquals("Today", generator.get(1L).getMain());
+	}
+
+	@Test
+	public void dateChangesReturnTheOrdersWithHeaders() {
+		Instant[] now = { TODAY.atStartOfDay().toInstant(ZoneOffset.UTC) };
+		OrderCardHeaderGenerator rolling = new OrderCardHeaderGenerator(new Clock() {
+			@Override
+			public ZoneId getZone() {
+				return ZoneOffset.UTC;
+			}
+
+			@Override
+			public Clock withZone(ZoneId zone) {
+				return this;
+			}
+
+			@Override
+			public Instant instant() {
+				return now[0];
+			}
+		});
+		rolling.resetHeaderChain(false);
+		Order today = order(1, 0);
+		Order tomorrow = order(2, 1);
+		Order nextWeek = order(3, 5);
+		rolling.ordersRead(Arrays.asList(today, tomorrow, order(4, 2), nextWeek));
+
+		now[0] = TODAY.plusDays(1).atStartOfDay().toInstant(ZoneOffset.UTC);
+		List<Order> changed = rolling.ordersRead(Collections.emptyList());
+
+		assertEquals(Arrays.asList(today, tomorrow, nextWeek), changed);
+		assertNull(rolling.get(1L));
+		assertEquals("Today", rolling.get(2L).getMain());
+		assertNull(rolling.get(4L));
+		assertEquals("Upcoming", rolling.get(3L).getMain());
+		assertTrue(rolling.ordersRead(Collections.emptyList()).isEmpty());
+	}
+
+	@Test
+	public void resetClearsTheHeaders() {
+		generator.resetHeaderChain(false);
+		generator.ordersRead(Collections.singletonList(order(1, 0)));
+
+		generator.resetHeaderChain(false);
+
+		assertNull(generator.get(1L));
+	}
+
+	private static Order order(long id, int daysFromToday) {
+		Order order = new Order(null);
+		order.setDueDate(TODAY.plusDays(daysFromToday));
+		order.setDueTime(LocalTime.of(8, 0));
+		try {
+			Field field = AbstractEntity.class.getDeclaredField("id");
+			field.setAccessible(true);
+			field.set(order, id);
+		} catch (ReflectiveOperationException e) {
+			throw new IllegalStateException(e);
+		}
+		return order;
+	}
+}
@@ -0,0 +1,65 @@
+package com.vaadin.starter.bakery.ui.views.storefront;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+import org.junit.Test;
+
+import com.vaadin.starter.bakery.backend.data.entity.Order;
+
+public class OrderCardTest {
+
+	/** A Wednesday. */
+	private static final LocalDate TODAY = LocalDate.of(2024, 3, 13);
+
+	private final OrderCardRenderContext context = OrderCardRenderContext.of(TODAY);
+
+	@Test
+	public void recentOrdersShowTheTime() {
+		OrderCard card = new OrderCard(order(TODAY.minusDays(1), LocalTime.of(14, 0)), context);
+
+		assertEquals("2:00 PM", card.getTime());
+		assertNull(card.getShortDay());
+		assertNull(card.getMonth());
+	}
+
+	@Test
+	public void ordersInTheWeekShowTheDayAndTime() {
+		OrderCard card = new OrderCard(order(TODAY.plusDays(2), LocalTime.of(8, 30)), context);
+
+		assertNull(card.getTime());
+		assertEquals("Fri 15", card.getShortDay());
+		assertEquals("8:30 AM", card.getSecondaryTime());
+		assertNull(card.getFullDay());
+	}
+
+	@Test
+	public void otherOrdersShowTheDate() {
+		OrderCard card = new OrderCard(order(LocalDate.of(2024, 3, 1), LocalTime.of(8, 0)), context);
+
+		assertNull(card.getTime());
+		assertNull(card.getSecondaryTime());
+		assertEquals("Mar 1", card.getMonth());
+		assertEquals("Friday", card.getFullDay());
+	}
+
+	@Test
+	public void textsAreFormattedOncePerDueDateAndTime() {
+		OrderCard first = new OrderCard(order(TODAY.plusDays(2), LocalTime.of(8, 30)), context);
+		OrderCard second = new OrderCard(order(TODAY.plusDays(2), LocalTime.of(8, 30)), context);
+
+		assertSame(first.getShortDay(), second.getShortDay());
+		assertSame(first.getSecondaryTime(), second.getSecondaryTime());
+	}
+
+	private static Order order(LocalDate dueDate, LocalTime dueTime) {
+		Order order = new Order(null);
+		order.setDueDate(dueDate);
+		order.setDueTime(dueTime);
+		return order;
+	}
+}